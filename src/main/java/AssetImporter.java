@@ -0,0 +1,459 @@
+package main.java;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Converts an image (PNG) into an asset of the game: a map, an obstacle or a skin, written as a CSV matrix of colors.
+ *
+ * The colors of the image are reduced to the pallet of the game (`0-colors.csv`):
+ * the colors that are already in the pallet are kept, and the others are grouped by median cut,
+ * then refined by k-means, into as many new colors as the pallet can still take.
+ * The new colors are added at the end of the pallet, so the existing assets don't change.
+ * A pixel that is mostly transparent becomes a transparent pixel (-1).
+ *
+ * The work is done on a histogram of the colors of the image (at most 2^18 bins) rather than on its pixels,
+ * and the steps that go through all of them run in parallel, so that a large image converts in a few seconds.
+ *
+ * Usage: `java main.java.AssetImporter <image> <maps|obstacles|skins> [name] [--width N] [--max-colors N] [--assets directory]`
+ */
+public final class AssetImporter {
+  /**
+   * The default maximum number of colors of the pallet, the existing ones included.
+   * It's also the highest: the maps kept off-heap store a color in a byte (see `OffHeapRaster`).
+   */
+  public static final int DEFAULT_MAX_COLORS = OffHeapRaster.MAX_COLORS;
+
+  /**
+   * A pixel whose alpha is below this value is transparent.
+   */
+  static final int OPAQUE_ALPHA = 128;
+
+  /**
+   * Two colors closer than this (squared distance between their RGB components) are considered the same:
+   * a color of the image this close to a color of the pallet doesn't need a new color.
+   */
+  static final int SAME_COLOR_DISTANCE = 3 * 6 * 6;
+
+  private static final int KMEANS_ITERATIONS = 10;
+  private static final int BIN_COUNT = 1 << 18;
+
+  private AssetImporter() {}
+
+  /**
+   * The result of the reduction of the colors of an image.
+   */
+  public static final class Quantization {
+    private final int[] indices;
+    private final int[] newColors;
+
+    Quantization(int[] indices, int[] newColors) {
+      this.indices = indices;
+      this.newColors = newColors;
+    }
+
+    /**
+     * @return The index in the pallet of each pixel (row by row), or -1 for a transparent pixel.
+     */
+    public int[] getIndices() { return indices; }
+
+    /**
+     * @return The colors to add at the end of the pallet (`0xRRGGBB`), in the order of their indices.
+     */
+    public int[] getNewColors() { return newColors; }
+  }
+
+  /**
+   * Reduces the colors of pixels to a pallet.
+   * @param argb The pixels, row by row (`0xAARRGGBB`).
+   * @param pallet The colors already in the pallet (`0xRRGGBB`).
+   * @param maxColors The maximum size of the pallet once the new colors are added.
+   * @return The index of each pixel in the pallet, and the new colors.
+   */
+  public static Quantization quantize(int[] argb, int[] pallet, int maxColors) {
+    // the histogram of the image: the colors of a bin are so close that they're replaced by their average
+    long[] bins = new long[BIN_COUNT * 4];
+    for (int pixel : argb) {
+      if (isOpaque(pixel)) {
+        accumulate(bins, 4 * bin(pixel), pixel, 1);
+      }
+    }
+    int[] binIndex = new int[BIN_COUNT];
+    int distinct = 0;
+    for (int b = 0; b < BIN_COUNT; b++) {
+      binIndex[b] = bins[4 * b + 3] > 0 ? distinct++ : -1;
+    }
+    int[] colors = new int[distinct];
+    int[] counts = new int[distinct];
+    for (int b = 0; b < BIN_COUNT; b++) {
+      if (binIndex[b] != -1) {
+        colors[binIndex[b]] = average(Arrays.copyOfRange(bins, 4 * b, 4 * b + 4));
+        counts[binIndex[b]] = (int)bins[4 * b + 3];
+      }
+    }
+
+    int[] uncovered = IntStream.range(0, distinct).parallel()
+      .filter(i -> pallet.length == 0 || distance(colors[i], pallet[nearest(colors[i], pallet, pallet.length)]) > SAME_COLOR_DISTANCE)
+      .toArray();
+    int free = Math.max(0, maxColors - pallet.length);
+    int[] centroids = Arrays.copyOf(pallet, pallet.length + Math.min(free, uncovered.length));
+    int newCount = medianCut(colors, counts, uncovered, centroids.length - pallet.length, centroids, pallet.length);
+    centroids = Arrays.copyOf(centroids, pallet.length + newCount);
+
+    int[] assignment = new int[distinct];
+    for (int iteration = 0; iteration < KMEANS_ITERATIONS && newCount > 0; iteration++) {
+      assign(colors, centroids, assignment);
+      if (!moveCentroids(colors, counts, assignment, centroids, pallet.length)) {
+        break;
+      }
+    }
+    assign(colors, centroids, assignment);
+
+    // the new colors that ended up with no pixel aren't added
+    boolean[] used = new boolean[centroids.length];
+    for (int index : assignment) {
+      used[index] = true;
+    }
+    int[] newIndex = new int[centroids.length];
+    List<Integer> newColors = new ArrayList<>();
+    for (int c = 0; c < centroids.length; c++) {
+      if (c < pallet.length) {
+        newIndex[c] = c;
+      } else if (used[c]) {
+        newIndex[c] = pallet.length + newColors.size();
+        newColors.add(centroids[c]);
+      }
+    }
+
+    int[] indices = IntStream.range(0, argb.length).parallel()
+      .map(i -> isOpaque(argb[i]) ? newIndex[assignment[binIndex[bin(argb[i])]]] : -1)
+      .toArray();
+    return new Quantization(indices, newColors.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /**
+   * @return The bin of the histogram of a color: the 6 highest bits of each component.
+   */
+  private static int bin(int argb) {
+    return (argb >> 18 & 0x3F) << 12 | (argb >> 10 & 0x3F) << 6 | (argb >> 2 & 0x3F);
+  }
+
+  private static boolean isOpaque(int argb) {
+    return argb >>> 24 >= OPAQUE_ALPHA;
+  }
+
+  private static int distance(int a, int b) {
+    int dr = (a >> 16 & 0xFF) - (b >> 16 & 0xFF);
+    int dg = (a >> 8 & 0xFF) - (b >> 8 & 0xFF);
+    int db = (a & 0xFF) - (b & 0xFF);
+    return dr * dr + dg * dg + db * db;
+  }
+
+  /**
+   * @return The index of the closest of the first `count` colors, or 0 if there's none.
+   */
+  private static int nearest(int color, int[] candidates, int count) {
+    int best = 0;
+    int bestDistance = Integer.MAX_VALUE;
+    for (int i = 0; i < count; i++) {
+      int d = distance(color, candidates[i]);
+      if (d < bestDistance) {
+        best = i;
+        bestDistance = d;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Splits colors into boxes, always cutting the box with the most pixels along its widest component,
+   * at the pixel in the middle of the box. The average color of each box is a new color.
+   * @param members The indices of the colors to split.
+   * @param maxBoxes The maximum number of boxes.
+   * @param out Where the new colors are written.
+   * @param offset The index in `out` of the first new color.
+   * @return The number of new colors.
+   */
+  private static int medianCut(int[] colors, int[] counts, int[] members, int maxBoxes, int[] out, int offset) {
+    if (members.length == 0 || maxBoxes == 0) {
+      return 0;
+    }
+    List<int[]> boxes = new ArrayList<>();
+    boxes.add(members);
+    while (boxes.size() < maxBoxes) {
+      int largest = -1;
+      long largestPixels = 0;
+      for (int b = 0; b < boxes.size(); b++) {
+        long pixels = pixelCount(boxes.get(b), counts);
+        if (boxes.get(b).length > 1 && pixels > largestPixels) {
+          largest = b;
+          largestPixels = pixels;
+        }
+      }
+      if (largest == -1) {
+        break; // each box has a single color
+      }
+      int[] box = boxes.get(largest);
+      int shift = widestComponent(box, colors);
+      Integer[] sorted = Arrays.stream(box).boxed().toArray(Integer[]::new);
+      Arrays.sort(sorted, (a, b) -> Integer.compare(colors[a] >> shift & 0xFF, colors[b] >> shift & 0xFF));
+      int cut = 0;
+      for (long seen = 0; cut < sorted.length - 1 && seen + counts[sorted[cut]] <= largestPixels / 2; cut++) {
+        seen += counts[sorted[cut]];
+      }
+      cut = Math.max(1, cut);
+      boxes.set(largest, Arrays.stream(sorted, 0, cut).mapToInt(Integer::intValue).toArray());
+      boxes.add(Arrays.stream(sorted, cut, sorted.length).mapToInt(Integer::intValue).toArray());
+    }
+    for (int b = 0; b < boxes.size(); b++) {
+      long[] sums = new long[4];
+      for (int i : boxes.get(b)) {
+        accumulate(sums, colors[i], counts[i]);
+      }
+      out[offset + b] = average(sums);
+    }
+    return boxes.size();
+  }
+
+  private static long pixelCount(int[] box, int[] counts) {
+    long pixels = 0;
+    for (int i : box) {
+      pixels += counts[i];
+    }
+    return pixels;
+  }
+
+  /**
+   * @return The shift of the component (red, green or blue) whose values are the most spread in the box.
+   */
+  private static int widestComponent(int[] box, int[] colors) {
+    int bestShift = 0;
+    int bestRange = -1;
+    for (int shift = 0; shift <= 16; shift += 8) {
+      int min = 255;
+      int max = 0;
+      for (int i : box) {
+        int value = colors[i] >> shift & 0xFF;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      if (max - min > bestRange) {
+        bestShift = shift;
+        bestRange = max - min;
+      }
+    }
+    return bestShift;
+  }
+
+  private static void assign(int[] colors, int[] centroids, int[] assignment) {
+    IntStream.range(0, colors.length).parallel().forEach(i -> assignment[i] = nearest(colors[i], centroids, centroids.length));
+  }
+
+  /**
+   * Moves each new color to the average of the colors assigned to it. The colors of the pallet never move.
+   * @return `true` if a color moved.
+   */
+  private static boolean moveCentroids(int[] colors, int[] counts, int[] assignment, int[] centroids, int fixed) {
+    int k = centroids.length;
+    long[] sums = IntStream.range(0, colors.length).parallel()
+      .filter(i -> assignment[i] >= fixed)
+      .collect(() -> new long[k * 4],
+        (acc, i) -> accumulate(acc, 4 * assignment[i], colors[i], counts[i]),
+        (a, b) -> { for (int j = 0; j < a.length; j++) a[j] += b[j]; });
+    boolean moved = false;
+    for (int c = fixed; c < k; c++) {
+      if (sums[4 * c + 3] > 0) {
+        int centroid = average(Arrays.copyOfRange(sums, 4 * c, 4 * c + 4));
+        moved |= centroid != centroids[c];
+        centroids[c] = centroid;
+      }
+    }
+    return moved;
+  }
+
+  private static void accumulate(long[] sums, int color, int count) {
+    accumulate(sums, 0, color, count);
+  }
+
+  private static void accumulate(long[] sums, int offset, int color, int count) {
+    sums[offset] += (long)(color >> 16 & 0xFF) * count;
+    sums[offset + 1] += (long)(color >> 8 & 0xFF) * count;
+    sums[offset + 2] += (long)(color & 0xFF) * count;
+    sums[offset + 3] += count;
+  }
+
+  /**
+   * @param sums The sums of the red, green and blue components, then the number of pixels.
+   */
+  private static int average(long[] sums) {
+    long n = sums[3];
+    return (int)((sums[0] + n / 2) / n) << 16 | (int)((sums[1] + n / 2) / n) << 8 | (int)((sums[2] + n / 2) / n);
+  }
+
+  /**
+   * Shrinks an image to a given width (the proportions are kept).
+   * Each pixel of the result is the average of the pixels of the image it covers; it's transparent if most of them are.
+   * @param image The image.
+   * @param width The width of the result. An image that isn't wider is returned as is.
+   * @return The shrunk image.
+   */
+  static BufferedImage shrink(BufferedImage image, int width) {
+    int sourceWidth = image.getWidth();
+    int sourceHeight = image.getHeight();
+    if (width <= 0 || width >= sourceWidth) {
+      return image;
+    }
+    int[] source = image.getRGB(0, 0, sourceWidth, sourceHeight, null, 0, sourceWidth);
+    int height = Math.max(1, Math.round((float)sourceHeight * width / sourceWidth));
+    int[] pixels = new int[width * height];
+    IntStream.range(0, height).parallel().forEach(y -> {
+      int fromY = y * sourceHeight / height;
+      int toY = Math.max(fromY + 1, (y + 1) * sourceHeight / height);
+      for (int x = 0; x < width; x++) {
+        int fromX = x * sourceWidth / width;
+        int toX = Math.max(fromX + 1, (x + 1) * sourceWidth / width);
+        long[] sums = new long[4];
+        int transparent = 0;
+        for (int sy = fromY; sy < toY; sy++) {
+          for (int sx = fromX; sx < toX; sx++) {
+            int pixel = source[sy * sourceWidth + sx];
+            if (isOpaque(pixel)) {
+              accumulate(sums, pixel, 1);
+            } else {
+              transparent++;
+            }
+          }
+        }
+        pixels[y * width + x] = sums[3] > transparent ? 0xFF000000 | average(sums) : 0;
+      }
+    });
+    BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    result.setRGB(0, 0, width, height, pixels, 0, width);
+    return result;
+  }
+
+  /**
+   * Reads the colors of a pallet file (`x,r,g,b` after a header).
+   * @return The colors (`0xRRGGBB`), in the order of their indices.
+   */
+  static int[] readPallet(Path path) throws IOException {
+    List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+    return lines.stream().skip(1).filter(line -> !line.isBlank()).mapToInt(line -> {
+      String[] cells = line.trim().split(",");
+      return Integer.parseInt(cells[1]) << 16 | Integer.parseInt(cells[2]) << 8 | Integer.parseInt(cells[3]);
+    }).toArray();
+  }
+
+  /**
+   * Adds colors at the end of a pallet file.
+   * @param walkable Can the player walk on the new colors? (see `Color`)
+   */
+  static void appendColors(Path path, int[] colors, boolean walkable) throws IOException {
+    if (colors.length == 0) {
+      return;
+    }
+    byte[] content = Files.readAllBytes(path);
+    StringBuilder lines = new StringBuilder();
+    for (int color : colors) {
+      if (lines.length() > 0 || (content.length > 0 && content[content.length - 1] != '\n')) {
+        lines.append('\n'); // the pallet doesn't end with a new line
+      }
+      lines.append(walkable ? 1 : 0).append(',').append(color >> 16 & 0xFF).append(',').append(color >> 8 & 0xFF).append(',').append(color & 0xFF);
+    }
+    Files.writeString(path, lines, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Writes a matrix of colors in the format of the assets: a header (`a0,a1,...`), then one line per row.
+   */
+  static void writeMatrix(Path path, int[] indices, int width) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      for (int x = 0; x < width; x++) {
+        writer.write((x == 0 ? "a" : ",a") + x);
+      }
+      writer.write('\n');
+      for (int row = 0; row < indices.length / width; row++) {
+        for (int x = 0; x < width; x++) {
+          if (x > 0) {
+            writer.write(',');
+          }
+          writer.write(Integer.toString(indices[row * width + x]));
+        }
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Converts an image and saves it with the assets.
+   * @param image The path to the image.
+   * @param assetsDirectory The directory of the assets (with the pallet and the directories of each kind of asset).
+   * @param kind The kind of asset: `maps`, `obstacles` or `skins`.
+   * @param name The name of the asset.
+   * @param width The width of the asset, or 0 to keep the size of the image.
+   * @param maxColors The maximum size of the pallet.
+   * @return The result of the reduction of the colors.
+   * @throws IOException If the image can't be read, or the asset can't be written.
+   */
+  public static Quantization importImage(Path image, Path assetsDirectory, String kind, String name, int width, int maxColors) throws IOException {
+    if (!kind.equals("maps") && !kind.equals("obstacles") && !kind.equals("skins")) {
+      throw new IllegalArgumentException("Unknown kind of asset: " + kind);
+    }
+    BufferedImage source = ImageIO.read(image.toFile());
+    if (source == null) {
+      throw new IOException("Unreadable image: " + image);
+    }
+    BufferedImage shrunk = shrink(source, width);
+    int[] pixels = shrunk.getRGB(0, 0, shrunk.getWidth(), shrunk.getHeight(), null, 0, shrunk.getWidth());
+    Path palletPath = assetsDirectory.resolve(Paths.get(AssetRegistry.COLORS_PATH).getFileName());
+    Quantization result = quantize(pixels, readPallet(palletPath), maxColors);
+    writeMatrix(assetsDirectory.resolve(kind).resolve(name + ".csv"), result.getIndices(), shrunk.getWidth());
+    appendColors(palletPath, result.getNewColors(), !kind.equals("obstacles")); // the player can't walk through an obstacle
+    return result;
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<String> positional = new ArrayList<>();
+    int width = 0;
+    int maxColors = DEFAULT_MAX_COLORS;
+    Path assets = Paths.get(AssetRegistry.ASSETS_DIRECTORY);
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--width") && i + 1 < args.length) {
+        width = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("--max-colors") && i + 1 < args.length) {
+        maxColors = Integer.parseInt(args[++i]);
+        if (maxColors > DEFAULT_MAX_COLORS) {
+          System.err.println("--max-colors est ramené à " + DEFAULT_MAX_COLORS + " : les cartes gardées hors du tas n'acceptent pas plus de couleurs.");
+          maxColors = DEFAULT_MAX_COLORS;
+        }
+      } else if (args[i].equals("--assets") && i + 1 < args.length) {
+        assets = Paths.get(args[++i]);
+      } else {
+        positional.add(args[i]);
+      }
+    }
+    if (positional.size() < 2) {
+      System.err.println("Usage : java main.java.AssetImporter <image> <maps|obstacles|skins> [nom] [--width N] [--max-colors N] [--assets dossier]");
+      System.exit(1);
+    }
+    Path image = Paths.get(positional.get(0));
+    String name = positional.size() > 2 ? positional.get(2) : Utils.removeFileExtension(image.getFileName().toString()).toLowerCase(Locale.ROOT);
+    long start = System.nanoTime();
+    Quantization result = importImage(image, assets, positional.get(1), name, width, maxColors);
+    System.out.printf("%s/%s.csv : %d pixels, %d nouvelle(s) couleur(s), en %.1f ms%n",
+      positional.get(1), name, result.getIndices().length, result.getNewColors().length, (System.nanoTime() - start) / 1e6);
+  }
+}
@@ -0,0 +1,413 @@
+package main.java;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * All the assets of the game: the colors, the maps, the obstacles, the skins and the configs of the maps.
+ * 
+ * A registry is built once with a `Builder` and is never modified afterwards,
+ * so it can be shared by many games (or any other tool) without any lock.
+ * All its fields are final, which guarantees that another thread sees it fully built.
+ */
+public final class AssetRegistry {
+  public static final String ASSETS_DIRECTORY = "assets";
+  public static final String COLORS_PATH = ASSETS_DIRECTORY + "/0-colors.csv";
+  public static final String MAPS_DIRECTORY = ASSETS_DIRECTORY + "/maps";
+  public static final String OBSTACLES_DIRECTORY = ASSETS_DIRECTORY + "/obstacles";
+  public static final String SKINS_DIRECTORY = ASSETS_DIRECTORY + "/skins";
+  public static final String CONFIGS_DIRECTORY = ASSETS_DIRECTORY + "/map-configs";
+
+  /**
+   * The system property that keeps the maps of the default registry outside of the Java heap (`-Dgame.offHeapMaps=true`).
+   */
+  public static final String OFF_HEAP_MAPS_PROPERTY = "game.offHeapMaps";
+
+  private final List<Color> colors;
+  private final java.util.Map<String, Map> maps;
+  private final java.util.Map<String, Obstacle> obstacles;
+  private final java.util.Map<String, Skin> skins;
+  private final java.util.Map<String, MapSpawnConfig> configs; // where, when and how fast the obstacles spawn for each map
+  private final java.util.Map<String, Terrain> terrains; // computed from the maps and the pallet
+  private final boolean offHeapMaps;
+
+  private AssetRegistry(Builder builder) {
+    this.offHeapMaps = builder.offHeapMaps;
+    this.colors = List.copyOf(builder.colors);
+    this.maps = java.util.Map.copyOf(builder.maps);
+    this.obstacles = java.util.Map.copyOf(builder.obstacles);
+    this.skins = java.util.Map.copyOf(builder.skins);
+    this.configs = java.util.Map.copyOf(builder.configs);
+    HashMap<String, Terrain> terrains = new HashMap<>();
+    for (Map map : maps.values()) {
+      Terrain terrain = builder.terrains.get(map);
+      terrains.put(map.getName(), terrain != null ? terrain : Terrain.of(map.getRaster(), colors));
+    }
+    this.terrains = java.util.Map.copyOf(terrains);
+  }
+
+  /**
+   * Gets the registry containing everything in the `assets` folder.
+   * It's read from the disk the first time it's needed, then it's shared by everyone.
+   * @return The default registry.
+   */
+  public static AssetRegistry getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * The JVM initializes this class only once, the first time `getDefault()` is called.
+   */
+  private static class DefaultHolder {
+    private static final AssetRegistry INSTANCE = loadDefault(Boolean.getBoolean(OFF_HEAP_MAPS_PROPERTY), System.getProperty(AssetSnapshot.SNAPSHOT_PROPERTY));
+
+    /**
+     * Reads the `assets` folder, or its snapshot if there's an up-to-date one (see `AssetSnapshot`).
+     * @param offHeapMaps Should the pixels of the maps be stored outside of the Java heap?
+     * @param snapshot The path of the snapshot, or `null` to always read the files.
+     */
+    private static AssetRegistry loadDefault(boolean offHeapMaps, String snapshot) {
+      Supplier<AssetRegistry> loader = () -> new Builder()
+        .offHeapMaps(offHeapMaps)
+        .loadColors(COLORS_PATH)
+        .loadMaps(MAPS_DIRECTORY)
+        .loadObstacles(OBSTACLES_DIRECTORY)
+        .loadSkins(SKINS_DIRECTORY)
+        .loadConfigs(CONFIGS_DIRECTORY)
+        .build();
+      if (snapshot == null) {
+        return loader.get();
+      }
+      return AssetSnapshot.loadOrBuild(Path.of(snapshot), Path.of(ASSETS_DIRECTORY), offHeapMaps, loader);
+    }
+  }
+
+  /**
+   * Creates a builder already containing all the assets of this registry.
+   * Useful to create a new version of the registry where only a few assets changed.
+   * @return A new builder.
+   */
+  public Builder toBuilder() {
+    Builder builder = new Builder().offHeapMaps(offHeapMaps);
+    builder.colors.addAll(colors);
+    builder.maps.putAll(maps);
+    for (Map map : maps.values()) {
+      builder.terrains.put(map, terrains.get(map.getName())); // same maps, same pallet
+    }
+    builder.obstacles.putAll(obstacles);
+    builder.skins.putAll(skins);
+    builder.configs.putAll(configs);
+    return builder;
+  }
+
+  /**
+   * Gets a color of the pallet.
+   * @param index The index of the color in the pallet.
+   * @return The color.
+   */
+  public Color getColor(int index) { return colors.get(index); }
+
+  /**
+   * Gets all the colors of the pallet.
+   * @return A read-only list of the colors, where the index of a color is its index in the pallet.
+   */
+  public List<Color> getColors() { return colors; }
+
+  public Map getMap(String name) { return maps.get(name); }
+  public Obstacle getObstacle(String name) { return obstacles.get(name); }
+  public Skin getSkin(String name) { return skins.get(name); }
+
+  /**
+   * Gets the solid pixels of a map, found when the registry was created.
+   * @param mapName The name of the map.
+   * @return The terrain of the map, or `null` if there's no such map.
+   */
+  public Terrain getTerrain(String mapName) { return terrains.get(mapName); }
+
+  /**
+   * Gets the config of a map.
+   * @param mapName The name of the map.
+   * @return Where, when and how fast the obstacles spawn on this map.
+   */
+  public MapSpawnConfig getConfig(String mapName) { return configs.get(mapName); }
+
+  /**
+   * Are the maps of this registry stored outside of the Java heap?
+   * @return `true` if the maps loaded by this registry (and by its builders) are off-heap.
+   */
+  public boolean hasOffHeapMaps() { return offHeapMaps; }
+
+  public Set<String> getMapNames() { return maps.keySet(); }
+  public Set<String> getObstacleNames() { return obstacles.keySet(); }
+  public Set<String> getSkinNames() { return skins.keySet(); }
+  public Set<String> getConfigNames() { return configs.keySet(); }
+
+  /**
+   * Gets the name of an asset from the path to its file.
+   * @param path The path to the file, for example "assets/maps/desert.csv".
+   * @return The name of the asset, for example "desert".
+   */
+  public static String getAssetName(String path) {
+    return Utils.removeFileExtension(new File(path).getName());
+  }
+
+  /**
+   * Gets the name of the map a config file belongs to.
+   * @param path The path to the config, for example "assets/map-configs/desert-config.csv".
+   * @return The name of the map, for example "desert".
+   */
+  public static String getConfigMapName(String path) {
+    String fileName = new File(path).getName();
+    return fileName.substring(0, fileName.indexOf("-"));
+  }
+
+  /**
+   * Reads a matrix of integers (the grid of a colored element on the map).
+   * Useful to get the style of an obstacle, a map and a player skin.
+   * Each integer is the index of a color in the pallet.
+   * 
+   * Note that the header is ignored.
+   * @param reader The reader for the CSV file containing the matrix.
+   * @return The grid (a list of lists of integers where each integer is a color).
+   */
+  public static ArrayList<ArrayList<Integer>> readMatrix(BufferedReader reader) {
+    ArrayList<ArrayList<Integer>> grid = new ArrayList<>();
+    try {
+      reader.readLine(); // voluntarily ignoring the header
+      String line = "";
+      while ((line = reader.readLine()) != null) {
+        ArrayList<Integer> pixels = new ArrayList<>();
+        Scanner scanner = new Scanner(line).useDelimiter(",");
+        while (scanner.hasNext()) {
+          pixels.add(scanner.nextInt());
+        }
+        grid.add(pixels);
+        scanner.close();
+      }
+    } catch (IOException ignore) {}
+    return grid;
+  }
+
+  /**
+   * Collects the assets one by one, then creates the immutable registry.
+   * A builder must only be used by one thread.
+   */
+  public static class Builder {
+    private final ArrayList<Color> colors = new ArrayList<>();
+    private final HashMap<String, Map> maps = new HashMap<>();
+    private final HashMap<String, Obstacle> obstacles = new HashMap<>();
+    private final HashMap<String, Skin> skins = new HashMap<>();
+    private final HashMap<String, MapSpawnConfig> configs = new HashMap<>();
+    private boolean offHeapMaps = false;
+
+    /**
+     * The terrains already found for some of the maps with the current pallet, so that `build` doesn't find them again.
+     * They're forgotten as soon as the pallet changes.
+     */
+    private final IdentityHashMap<Map, Terrain> terrains = new IdentityHashMap<>();
+
+    /**
+     * Chooses where the pixels of the maps loaded from now on are stored.
+     * @param offHeapMaps `true` to keep them outside of the Java heap (see `OffHeapRaster`).
+     * @return This builder.
+     */
+    public Builder offHeapMaps(boolean offHeapMaps) { this.offHeapMaps = offHeapMaps; return this; }
+
+    public Builder addColor(Color color) { colors.add(color); terrains.clear(); return this; }
+    public Builder putMap(Map map) { maps.put(map.getName(), map); return this; }
+    public Builder putObstacle(Obstacle obstacle) { obstacles.put(obstacle.getName(), obstacle); return this; }
+    public Builder putSkin(Skin skin) { skins.put(skin.getName(), skin); return this; }
+    public Builder putConfig(String mapName, MapSpawnConfig config) { configs.put(mapName, config); return this; }
+    public Builder removeMap(String name) { maps.remove(name); return this; }
+    public Builder removeObstacle(String name) { obstacles.remove(name); return this; }
+    public Builder removeSkin(String name) { skins.remove(name); return this; }
+    public Builder removeConfig(String mapName) { configs.remove(mapName); return this; }
+
+    /**
+     * Adds a map whose terrain was already found with the current pallet (restored from a snapshot, see `AssetSnapshot`).
+     * @return This builder.
+     */
+    Builder putMap(Map map, Terrain terrain) { putMap(map); terrains.put(map, terrain); return this; }
+
+    /**
+     * Reads a file containing all the colors and metadata associated with them.
+     * Each color has one metadata called "x".
+     * If "x" is set `true` then it means the user can walk on it.
+     * For obstacles, this variable will be `false`.
+     * @param path The path to the CSV file of the pallet.
+     * @return This builder.
+     */
+    public Builder loadColors(String path) {
+      colors.clear();
+      terrains.clear();
+      GameEvents.AssetLoad event = GameEvents.ENABLED ? GameEvents.beginAssetLoad("colors", path) : null;
+      try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+        reader.readLine(); // voluntarily ignoring the header
+        String line = "";
+        while ((line = reader.readLine()) != null) {
+          Scanner scanner = new Scanner(line).useDelimiter(",");
+          int x = scanner.nextInt();
+          int r = scanner.nextInt();
+          int g = scanner.nextInt();
+          int b = scanner.nextInt();
+          colors.add(new Color(Utils.RGBToANSI(new int[]{r,g,b}, true), x == 1));
+          scanner.close();
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+      } finally {
+        if (event != null) {
+          event.commit();
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Reads all maps contained in a directory.
+     * Each CSV file is a unique map, which is a matrix of integers.
+     * The files that can't be read are skipped.
+     * @param directory The path to the directory.
+     * @return This builder.
+     * @throws IllegalArgumentException If a map can't be kept off-heap (see `offHeapMaps`), because one of its colors doesn't fit in a byte.
+     */
+    public Builder loadMaps(String directory) {
+      for (String map : Utils.getAllFilesFromDirectory(directory)) {
+        try {
+          loadMap(directory + "/" + map);
+        } catch (IllegalArgumentException e) {
+          if (offHeapMaps && !(e instanceof NumberFormatException)) { // thrown by `OffHeapRaster`
+            throw new IllegalArgumentException("La carte " + directory + "/" + map + " ne peut pas être gardée hors du tas : " + e.getMessage(), e);
+          }
+        } catch (Exception ignore) {}
+      }
+      return this;
+    }
+
+    /**
+     * Reads a single map. Its name is the name of the file.
+     * @param path The path to the CSV file of the map.
+     * @return This builder.
+     * @throws IOException If the file can't be read.
+     */
+    public Builder loadMap(String path) throws IOException {
+      GameEvents.AssetLoad event = GameEvents.ENABLED ? GameEvents.beginAssetLoad("map", path) : null;
+      try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+        return putMap(new Map(getAssetName(path), readMatrix(reader), offHeapMaps));
+      } finally {
+        if (event != null) {
+          event.commit();
+        }
+      }
+    }
+
+    /**
+     * Reads all obstacles contained in a directory.
+     * @param directory The path to the directory.
+     * @return This builder.
+     */
+    public Builder loadObstacles(String directory) {
+      for (String obstacle : Utils.getAllFilesFromDirectory(directory)) {
+        try {
+          loadObstacle(directory + "/" + obstacle);
+        } catch (Exception ignore) {}
+      }
+      return this;
+    }
+
+    /**
+     * Reads a single obstacle. Its name is the name of the file.
+     * @param path The path to the CSV file of the obstacle.
+     * @return This builder.
+     * @throws IOException If the file can't be read.
+     */
+    public Builder loadObstacle(String path) throws IOException {
+      GameEvents.AssetLoad event = GameEvents.ENABLED ? GameEvents.beginAssetLoad("obstacle", path) : null;
+      try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+        return putObstacle(new Obstacle(getAssetName(path), readMatrix(reader)));
+      } finally {
+        if (event != null) {
+          event.commit();
+        }
+      }
+    }
+
+    /**
+     * Reads all the skins of the player contained in a directory.
+     * @param directory The path to the directory.
+     * @return This builder.
+     */
+    public Builder loadSkins(String directory) {
+      for (String skin : Utils.getAllFilesFromDirectory(directory)) {
+        try {
+          loadSkin(directory + "/" + skin);
+        } catch (Exception ignore) {}
+      }
+      return this;
+    }
+
+    /**
+     * Reads a single skin. Its name is the name of the file.
+     * @param path The path to the CSV file of the skin.
+     * @return This builder.
+     * @throws IOException If the file can't be read.
+     */
+    public Builder loadSkin(String path) throws IOException {
+      GameEvents.AssetLoad event = GameEvents.ENABLED ? GameEvents.beginAssetLoad("skin", path) : null;
+      try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+        return putSkin(new Skin(getAssetName(path), readMatrix(reader)));
+      } finally {
+        if (event != null) {
+          event.commit();
+        }
+      }
+    }
+
+    /**
+     * Reads all the maps' unique config.
+     * A map config contains where, when and how fast its obstacles spawn.
+     * @param directory The path to the directory.
+     * @return This builder.
+     */
+    public Builder loadConfigs(String directory) {
+      for (String config : Utils.getAllFilesFromDirectory(directory)) {
+        loadConfig(directory + "/" + config);
+      }
+      return this;
+    }
+
+    /**
+     * Reads the config of a single map.
+     * The name of the file must be the name of the map followed by "-config.csv".
+     * @param path The path to the CSV file of the config.
+     * @return This builder.
+     */
+    public Builder loadConfig(String path) {
+      GameEvents.AssetLoad event = GameEvents.ENABLED ? GameEvents.beginAssetLoad("config", path) : null;
+      putConfig(getConfigMapName(path), MapSpawnConfig.fromCSV(path));
+      if (event != null) {
+        event.commit();
+      }
+      return this;
+    }
+
+    /**
+     * Creates the registry.
+     * The builder can keep being used afterwards, it won't change the registry.
+     * @return An immutable registry containing everything that was added so far.
+     */
+    public AssetRegistry build() {
+      return new AssetRegistry(this);
+    }
+  }
+}
@@ -0,0 +1,395 @@
+package main.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * A copy of a fully loaded asset registry in a single binary file, so the next launch doesn't parse the CSV files again.
+ *
+ * The snapshot is keyed by a hash of the asset tree (the path, the size and the modification date of each file):
+ * as soon as an asset changes, the key changes and the snapshot is rebuilt from the files.
+ * Hashing the tree only reads the metadata of the files, not their content.
+ *
+ * The rasters are stored as runs (see `RunLengthRaster`), so restoring a snapshot is a single mapped read
+ * followed by bulk copies of int arrays. The smaller versions of each raster (see `GameObject.getRaster(int)`)
+ * and the terrains of the maps are stored too, so nothing is computed again when the snapshot is restored.
+ */
+public final class AssetSnapshot {
+  public static final String DEFAULT_PATH = "assets.snapshot";
+
+  /**
+   * The system property giving the path of the snapshot of the default registry (`-Dgame.assetSnapshot=assets.snapshot`).
+   * Without it, the default registry is always loaded from the files.
+   */
+  public static final String SNAPSHOT_PROPERTY = "game.assetSnapshot";
+
+  private static final int MAGIC = 0x44444153; // "DDAS"
+  private static final int VERSION = 2;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * magic, version, key, CRC32 of the body
+   */
+  private static final int HEADER_LENGTH = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES;
+
+  private AssetSnapshot() {}
+
+  /**
+   * Gets the registry from its snapshot if it's up to date, or loads it from the files and saves a new snapshot.
+   * @param snapshot The file of the snapshot.
+   * @param assetsDirectory The asset tree from which the registry is loaded.
+   * @param offHeapMaps Should the pixels of the maps be stored outside of the Java heap?
+   * @param loader Loads the registry from the files, if the snapshot can't be used.
+   * @return The registry.
+   */
+  public static AssetRegistry loadOrBuild(Path snapshot, Path assetsDirectory, boolean offHeapMaps, Supplier<AssetRegistry> loader) {
+    long key = computeKey(assetsDirectory);
+    AssetRegistry registry = load(snapshot, key, offHeapMaps);
+    if (registry == null) {
+      registry = loader.get();
+      try {
+        save(snapshot, key, registry);
+      } catch (IOException e) {
+        System.err.println("Le snapshot des assets n'a pas pu être sauvegardé : " + e.getMessage());
+      }
+    }
+    return registry;
+  }
+
+  /**
+   * Is there a snapshot of the current version of the asset tree?
+   * If so, the assets were already checked when the snapshot was made.
+   * @param snapshot The file of the snapshot.
+   * @param assetsDirectory The asset tree.
+   * @return `true` if `loadOrBuild` would use the snapshot.
+   */
+  public static boolean isUpToDate(Path snapshot, Path assetsDirectory) {
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+      while (header.hasRemaining() && channel.read(header) >= 0) {}
+      return header.flip().remaining() == HEADER_LENGTH && hasKey(header, computeKey(assetsDirectory));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Is there a snapshot of the current version of the `assets` folder, for the default registry?
+   * It's used to skip the checks of the assets at launch (see `AssetValidator.check`).
+   * @return `true` if `AssetRegistry.getDefault()` will use a snapshot.
+   */
+  public static boolean isDefaultUpToDate() {
+    String snapshot = System.getProperty(SNAPSHOT_PROPERTY);
+    return snapshot != null && isUpToDate(Path.of(snapshot), Path.of(AssetRegistry.ASSETS_DIRECTORY));
+  }
+
+  /**
+   * Hashes the path, the size and the modification date of each file of the asset tree, with FNV-1a on 64 bits.
+   * The hash is computed by hand and the tree is walked with `File`: at launch, loading a digest algorithm
+   * or the classes of the streams would take longer than restoring the snapshot itself.
+   * @param assetsDirectory The asset tree.
+   * @return The key of the snapshot of this tree.
+   */
+  static long computeKey(Path assetsDirectory) {
+    return hashTree(assetsDirectory.toFile(), "", FNV_OFFSET_BASIS);
+  }
+
+  private static long hashTree(File directory, String relativePath, long hash) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return hash;
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      String path = relativePath + "/" + file.getName();
+      if (file.isDirectory()) {
+        hash = hashTree(file, path, hash);
+      } else {
+        hash = hash(hash, path.hashCode());
+        hash = hash(hash, file.length());
+        hash = hash(hash, file.lastModified());
+      }
+    }
+    return hash;
+  }
+
+  private static long hash(long hash, long value) {
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash = (hash ^ ((value >>> (i * 8)) & 0xFF)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * Restores a registry from its snapshot.
+   * @param snapshot The file of the snapshot.
+   * @param key The key of the current asset tree.
+   * @param offHeapMaps Should the pixels of the maps be stored outside of the Java heap?
+   * @return The registry, or `null` if there's no snapshot, if it's outdated or if it's corrupted.
+   */
+  static AssetRegistry load(Path snapshot, long key, boolean offHeapMaps) {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      System.err.println("Le snapshot des assets n'a pas pu être lu : " + e.getMessage());
+      return null;
+    }
+    try {
+      if (buffer.remaining() < HEADER_LENGTH || !hasKey(buffer, key)) {
+        return null;
+      }
+      int checksum = buffer.getInt(HEADER_LENGTH - Integer.BYTES);
+      ByteBuffer body = buffer.position(HEADER_LENGTH).slice();
+      CRC32 crc = new CRC32();
+      crc.update(body.duplicate());
+      if ((int)crc.getValue() != checksum) {
+        return null;
+      }
+      return readRegistry(body, offHeapMaps);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      return null; // written by a broken version of the game, it's simply rebuilt
+    }
+  }
+
+  /**
+   * Saves a snapshot of a registry. The snapshot is written next to its final file, then moved, so it's never seen half written.
+   * @param snapshot The file of the snapshot.
+   * @param key The key of the asset tree from which the registry was loaded.
+   * @param registry The registry.
+   * @throws IOException If the snapshot can't be written.
+   */
+  static void save(Path snapshot, long key, AssetRegistry registry) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+    writeRegistry(new DataOutputStream(bytes), registry);
+    byte[] body = bytes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION).putLong(key).putInt((int)crc.getValue());
+    Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer[] buffers = { header.flip(), ByteBuffer.wrap(body) };
+      while (buffers[1].hasRemaining()) {
+        channel.write(buffers);
+      }
+    }
+    Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static boolean hasKey(ByteBuffer header, long key) {
+    return header.getInt(0) == MAGIC && header.getInt(Integer.BYTES) == VERSION && header.getLong(Integer.BYTES * 2) == key;
+  }
+
+  private static void writeRegistry(DataOutputStream out, AssetRegistry registry) throws IOException {
+    out.writeInt(registry.getColors().size());
+    for (Color color : registry.getColors()) {
+      writeString(out, color.ANSI);
+      out.writeBoolean(color.x);
+    }
+    out.writeInt(registry.getMapNames().size());
+    for (String name : registry.getMapNames()) {
+      writeString(out, name);
+      writeLevels(out, registry.getMap(name));
+      writeTerrain(out, registry.getTerrain(name));
+    }
+    out.writeInt(registry.getObstacleNames().size());
+    for (String name : registry.getObstacleNames()) {
+      writeString(out, name);
+      writeLevels(out, registry.getObstacle(name));
+    }
+    out.writeInt(registry.getSkinNames().size());
+    for (String name : registry.getSkinNames()) {
+      writeString(out, name);
+      writeLevels(out, registry.getSkin(name));
+    }
+    out.writeInt(registry.getConfigNames().size());
+    for (String mapName : registry.getConfigNames()) {
+      writeString(out, mapName);
+      List<ObstacleSpawn> spawns = registry.getConfig(mapName).getSpawns();
+      out.writeInt(spawns.size());
+      for (ObstacleSpawn spawn : spawns) {
+        writeString(out, spawn.getName());
+        out.writeInt(spawn.getSpeed());
+        out.writeInt(spawn.getY());
+      }
+    }
+  }
+
+  private static AssetRegistry readRegistry(ByteBuffer in, boolean offHeapMaps) {
+    AssetRegistry.Builder builder = new AssetRegistry.Builder().offHeapMaps(offHeapMaps);
+    for (int i = in.getInt(); i > 0; i--) {
+      String ansi = readString(in);
+      builder.addColor(new Color(ansi, in.get() != 0));
+    }
+    for (int i = in.getInt(); i > 0; i--) {
+      String name = readString(in);
+      Raster[] levels = readLevels(in);
+      if (offHeapMaps) {
+        for (int level = 0; level < levels.length; level++) {
+          levels[level] = OffHeapRaster.copyOf(levels[level]);
+        }
+      }
+      builder.putMap(new Map(name, levels), readTerrain(in));
+    }
+    for (int i = in.getInt(); i > 0; i--) {
+      String name = readString(in);
+      builder.putObstacle(new Obstacle(name, readLevels(in)));
+    }
+    for (int i = in.getInt(); i > 0; i--) {
+      String name = readString(in);
+      builder.putSkin(new Skin(name, readLevels(in)));
+    }
+    for (int i = in.getInt(); i > 0; i--) {
+      String mapName = readString(in);
+      int count = in.getInt();
+      ArrayList<ObstacleSpawn> spawns = new ArrayList<>(count);
+      for (int j = 0; j < count; j++) {
+        String name = readString(in);
+        int speed = in.getInt();
+        spawns.add(new ObstacleSpawn(name, speed, in.getInt()));
+      }
+      builder.putConfig(mapName, new MapSpawnConfig(spawns));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Writes the raster of an object and its smaller versions: `levels | raster[levels]`.
+   */
+  private static void writeLevels(DataOutputStream out, GameObject object) throws IOException {
+    out.writeInt(GameObject.LEVELS);
+    for (int level = 0; level < GameObject.LEVELS; level++) {
+      writeRaster(out, object.getRaster(level));
+    }
+  }
+
+  private static Raster[] readLevels(ByteBuffer in) {
+    if (in.getInt() != GameObject.LEVELS) {
+      throw new IllegalArgumentException("The snapshot doesn't have the same number of levels");
+    }
+    Raster[] levels = new Raster[GameObject.LEVELS];
+    for (int level = 0; level < levels.length; level++) {
+      levels[level] = readRaster(in);
+    }
+    return levels;
+  }
+
+  /**
+   * Writes the solid pixels of a map: `width | height | solid[(width * height + 63) / 64] | floors[width]`.
+   */
+  private static void writeTerrain(DataOutputStream out, Terrain terrain) throws IOException {
+    out.writeInt(terrain.getWidth());
+    out.writeInt(terrain.getHeight());
+    for (long bits : terrain.getSolidBits()) {
+      out.writeLong(bits);
+    }
+    for (int floor : terrain.getFloors()) {
+      out.writeInt(floor);
+    }
+  }
+
+  private static Terrain readTerrain(ByteBuffer in) {
+    int width = in.getInt();
+    int height = in.getInt();
+    long[] solid = readLongs(in, (int)(((long)width * height + 63) / 64));
+    return Terrain.restore(width, height, solid, readInts(in, width));
+  }
+
+  /**
+   * Writes the runs of a raster: `width | height | runs | rowOffsets[height + 1] | runEnds[runs] | runColors[runs]`.
+   */
+  private static void writeRaster(DataOutputStream out, Raster raster) throws IOException {
+    int height = raster.getHeight();
+    int[] rowOffsets = new int[height + 1];
+    for (int y = 0; y < height; y++) {
+      rowOffsets[y + 1] = rowOffsets[y] + raster.getRunCount(y);
+    }
+    out.writeInt(raster.getWidth());
+    out.writeInt(height);
+    out.writeInt(rowOffsets[height]);
+    for (int offset : rowOffsets) {
+      out.writeInt(offset);
+    }
+    for (int y = 0; y < height; y++) {
+      raster.forEachRun(y, 0, Integer.MAX_VALUE, (x, length, colorIndex) -> writeInt(out, x + length));
+    }
+    for (int y = 0; y < height; y++) {
+      raster.forEachRun(y, 0, Integer.MAX_VALUE, (x, length, colorIndex) -> writeInt(out, colorIndex));
+    }
+  }
+
+  private static Raster readRaster(ByteBuffer in) {
+    int width = in.getInt();
+    int height = in.getInt();
+    int runs = in.getInt();
+    int[] rowOffsets = readInts(in, height + 1);
+    int[] runEnds = readInts(in, runs);
+    int[] runColors = readInts(in, runs);
+    return RunLengthRaster.fromRuns(width, height, rowOffsets, runEnds, runColors);
+  }
+
+  private static int[] readInts(ByteBuffer in, int count) {
+    if (count < 0 || count > in.remaining() / Integer.BYTES) {
+      throw new BufferUnderflowException();
+    }
+    int[] values = new int[count];
+    in.asIntBuffer().get(values); // a bulk copy, the buffer is big-endian like `DataOutputStream`
+    in.position(in.position() + count * Integer.BYTES);
+    return values;
+  }
+
+  private static long[] readLongs(ByteBuffer in, int count) {
+    if (count < 0 || count > in.remaining() / Long.BYTES) {
+      throw new BufferUnderflowException();
+    }
+    long[] values = new long[count];
+    in.asLongBuffer().get(values);
+    in.position(in.position() + count * Long.BYTES);
+    return values;
+  }
+
+  private static void writeInt(DataOutputStream out, int value) {
+    try {
+      out.writeInt(value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // impossible, it's written in memory
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0 || length > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,357 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the whole asset tree before it's used by the game.
+ * 
+ * The game itself doesn't check anything: a bad asset either disappears silently
+ * or crashes the game in the middle of a level. The validator reads every file in parallel
+ * and reports all the problems at once, with the file and the line of each of them:
+ * - the pallet must contain valid colors,
+ * - each row of a matrix must have as many cells as its header,
+ * - each cell of a matrix must be a color of the pallet (or -1 for a transparent pixel),
+ * - a config must only use obstacles that exist, on a map that exists,
+ * - an obstacle must spawn inside the map, and the player must stay inside the map while jumping.
+ * 
+ * Usage: `java main.java.AssetValidator [assets directory]`
+ */
+public class AssetValidator {
+  /**
+   * One problem found in the assets.
+   */
+  public static class Problem {
+    private final Path file;
+    private final int line; // 0 if the problem concerns the whole file
+    private final String message;
+
+    public Problem(Path file, int line, String message) {
+      this.file = file;
+      this.line = line;
+      this.message = message;
+    }
+
+    public Path getFile() { return file; }
+    public int getLine() { return line; }
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+      return file + (line > 0 ? ":" + line : "") + " : " + message;
+    }
+  }
+
+  /**
+   * A matrix (map, obstacle or skin) once it's been checked.
+   * Only its dimensions are needed to check the other files.
+   */
+  private static class Raster {
+    final Path file;
+    final String name;
+    final int width;
+    final int height;
+    final List<Problem> problems;
+
+    Raster(Path file, int width, int height, List<Problem> problems) {
+      this.file = file;
+      this.name = AssetRegistry.getAssetName(file.toString());
+      this.width = width;
+      this.height = height;
+      this.problems = problems;
+    }
+  }
+
+  private final Path root;
+
+  /**
+   * @param root The directory containing the assets (organized like the `assets` folder).
+   */
+  public AssetValidator(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Validates the `assets` folder of the game.
+   */
+  public AssetValidator() {
+    this(Paths.get(AssetRegistry.ASSETS_DIRECTORY));
+  }
+
+  /**
+   * Gets where a default asset path would be in `root`.
+   * @param defaultPath A path starting with the default assets directory, for example "assets/maps".
+   * @return The same path within `root`.
+   */
+  private Path resolve(String defaultPath) {
+    return root.resolve(Paths.get(AssetRegistry.ASSETS_DIRECTORY).relativize(Paths.get(defaultPath)));
+  }
+
+  /**
+   * Checks all the assets.
+   * @return All the problems that were found, sorted by file and line. It's empty if the assets are valid.
+   */
+  public List<Problem> validate() {
+    ArrayList<Problem> problems = new ArrayList<>();
+
+    int palletSize = checkPallet(resolve(AssetRegistry.COLORS_PATH), problems);
+
+    // The matrices are the biggest files, so they are read in parallel.
+    HashMap<String, Raster> maps = new HashMap<>();
+    HashMap<String, Raster> obstacles = new HashMap<>();
+    HashMap<String, Raster> skins = new HashMap<>();
+    // The directories are listed first: `listCSV` adds to `problems`, which only this thread may touch.
+    ArrayList<Path> files = new ArrayList<>();
+    for (String directory : List.of(AssetRegistry.MAPS_DIRECTORY, AssetRegistry.OBSTACLES_DIRECTORY, AssetRegistry.SKINS_DIRECTORY)) {
+      files.addAll(listCSV(resolve(directory), problems));
+    }
+    List<Raster> rasters = files.parallelStream()
+      .map(file -> checkRaster(file, palletSize))
+      .collect(Collectors.toList());
+    for (Raster raster : rasters) {
+      problems.addAll(raster.problems);
+      Path directory = raster.file.getParent();
+      if (directory.equals(resolve(AssetRegistry.MAPS_DIRECTORY))) {
+        maps.put(raster.name, raster);
+      } else if (directory.equals(resolve(AssetRegistry.OBSTACLES_DIRECTORY))) {
+        obstacles.put(raster.name, raster);
+      } else {
+        skins.put(raster.name, raster);
+      }
+    }
+
+    Raster skin = skins.get(Game.PLAYER_DEFAULT_SKIN);
+    if (skin == null) {
+      problems.add(new Problem(resolve(AssetRegistry.SKINS_DIRECTORY), 0, "le skin par défaut '" + Game.PLAYER_DEFAULT_SKIN + "' n'existe pas"));
+    }
+
+    HashMap<String, Path> configs = new HashMap<>();
+    for (Path config : listCSV(resolve(AssetRegistry.CONFIGS_DIRECTORY), problems)) {
+      if (!config.getFileName().toString().contains("-")) {
+        problems.add(new Problem(config, 0, "le nom du fichier doit être le nom de la carte suivi de '-config.csv'"));
+        continue;
+      }
+      String mapName = AssetRegistry.getConfigMapName(config.toString());
+      configs.put(mapName, config);
+      checkConfig(config, maps.get(mapName), obstacles, problems);
+    }
+
+    for (Page page : Page.values()) {
+      if (page.isMap()) {
+        Raster map = maps.get(page.getMapName());
+        if (map == null) {
+          problems.add(new Problem(resolve(AssetRegistry.MAPS_DIRECTORY), 0, "la carte '" + page.getMapName() + "' du menu n'existe pas"));
+        } else if (skin != null) {
+          checkPlayerBounds(map, skin, problems);
+        }
+        if (!configs.containsKey(page.getMapName())) {
+          problems.add(new Problem(resolve(AssetRegistry.CONFIGS_DIRECTORY), 0, "la carte '" + page.getMapName() + "' du menu n'a pas de configuration"));
+        }
+      }
+    }
+
+    problems.sort(Comparator.comparing((Problem p) -> p.getFile().toString()).thenComparingInt(Problem::getLine));
+    return problems;
+  }
+
+  /**
+   * Lists the CSV files of a directory.
+   * @param directory The directory.
+   * @param problems Where to add a problem if the directory can't be read.
+   * @return The CSV files, or an empty list if the directory can't be read.
+   */
+  private List<Path> listCSV(Path directory, List<Problem> problems) {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(".csv")).sorted().collect(Collectors.toList());
+    } catch (IOException e) {
+      problems.add(new Problem(directory, 0, "le dossier est illisible (" + e + ")"));
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Reads all the lines of a file.
+   * @return The lines, or `null` if the file can't be read.
+   */
+  private List<String> readLines(Path file, List<Problem> problems) {
+    try {
+      return Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (IOException | UncheckedIOException e) {
+      problems.add(new Problem(file, 0, "le fichier est illisible (" + e + ")"));
+      return null;
+    }
+  }
+
+  /**
+   * Parses an integer, and reports a problem if it's not one.
+   * @return The integer, or `null` if it's not one.
+   */
+  private Integer parse(String value, Path file, int line, List<Problem> problems) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      problems.add(new Problem(file, line, "'" + value + "' n'est pas un nombre"));
+      return null;
+    }
+  }
+
+  /**
+   * Checks the pallet: each line must be `x,r,g,b`, where `x` is 0 or 1 and each component is between 0 and 255.
+   * When the maps are kept off-heap (`AssetRegistry.OFF_HEAP_MAPS_PROPERTY`), a color of a map must also fit in a byte (see `OffHeapRaster`).
+   * @return The number of colors in the pallet.
+   */
+  private int checkPallet(Path file, List<Problem> problems) {
+    List<String> lines = readLines(file, problems);
+    if (lines == null) {
+      return 0;
+    }
+    for (int i = 1; i < lines.size(); i++) {
+      int line = i + 1;
+      String[] cells = lines.get(i).split(",", -1);
+      if (cells.length != 4) {
+        problems.add(new Problem(file, line, "une couleur doit avoir 4 valeurs (x,r,g,b), pas " + cells.length));
+        continue;
+      }
+      Integer x = parse(cells[0], file, line, problems);
+      if (x != null && x != 0 && x != 1) {
+        problems.add(new Problem(file, line, "x doit valoir 0 ou 1, pas " + x));
+      }
+      for (int c = 1; c < 4; c++) {
+        Integer component = parse(cells[c], file, line, problems);
+        if (component != null && (component < 0 || component > 255)) {
+          problems.add(new Problem(file, line, "une composante doit être entre 0 et 255, pas " + component));
+        }
+      }
+    }
+    if (Boolean.getBoolean(AssetRegistry.OFF_HEAP_MAPS_PROPERTY) && lines.size() - 1 > OffHeapRaster.MAX_COLORS) {
+      problems.add(new Problem(file, OffHeapRaster.MAX_COLORS + 2, "la palette a " + (lines.size() - 1)
+        + " couleurs, mais les cartes gardées hors du tas (--off-heap-maps) n'en acceptent que " + OffHeapRaster.MAX_COLORS));
+    }
+    return lines.size() - 1;
+  }
+
+  /**
+   * Checks a matrix: every row must be as long as the header and every cell must be a color of the pallet.
+   * This method is called in parallel, so it only adds the problems to the returned raster.
+   */
+  private Raster checkRaster(Path file, int palletSize) {
+    ArrayList<Problem> problems = new ArrayList<>();
+    List<String> lines = readLines(file, problems);
+    if (lines == null || lines.size() < 2) {
+      if (lines != null) {
+        problems.add(new Problem(file, 0, "la matrice est vide"));
+      }
+      return new Raster(file, 0, 0, problems);
+    }
+    int width = lines.get(0).split(",", -1).length;
+    for (int i = 1; i < lines.size(); i++) {
+      int line = i + 1;
+      String[] cells = lines.get(i).split(",", -1);
+      if (cells.length != width) {
+        problems.add(new Problem(file, line, "la ligne a " + cells.length + " cases au lieu de " + width));
+      }
+      for (String cell : cells) {
+        Integer n = parse(cell, file, line, problems);
+        if (n != null && (n < -1 || n >= palletSize)) {
+          problems.add(new Problem(file, line, "la couleur " + n + " n'existe pas dans la palette (de 0 à " + (palletSize - 1) + ", ou -1)"));
+        }
+      }
+    }
+    return new Raster(file, width, lines.size() - 1, problems);
+  }
+
+  /**
+   * Checks the config of a map: each line must be `name,speed,y`,
+   * the obstacle must exist and it must fit in the map at the given `y`.
+   * @param map The map of this config, `null` if it doesn't exist.
+   */
+  private void checkConfig(Path file, Raster map, HashMap<String, Raster> obstacles, List<Problem> problems) {
+    if (map == null) {
+      problems.add(new Problem(file, 0, "la carte '" + AssetRegistry.getConfigMapName(file.toString()) + "' n'existe pas"));
+    }
+    List<String> lines = readLines(file, problems);
+    if (lines == null) {
+      return;
+    }
+    for (int i = 1; i < lines.size(); i++) {
+      int line = i + 1;
+      String[] cells = lines.get(i).split(",", -1);
+      if (cells.length != 3) {
+        problems.add(new Problem(file, line, "un obstacle doit avoir 3 valeurs (name,speed,y), pas " + cells.length));
+        continue;
+      }
+      Raster obstacle = obstacles.get(cells[0]);
+      if (obstacle == null) {
+        problems.add(new Problem(file, line, "l'obstacle '" + cells[0] + "' n'existe pas"));
+      }
+      Integer speed = parse(cells[1], file, line, problems);
+      if (speed != null && speed <= 0) {
+        problems.add(new Problem(file, line, "la vitesse doit être positive, pas " + speed));
+      }
+      Integer y = parse(cells[2], file, line, problems);
+      if (y != null && obstacle != null && map != null) {
+        // The background behind an element at `y` is read from the row `y - PIXEL_SIZE` of the map.
+        int top = y - Game.PIXEL_SIZE;
+        if (top < 0 || top + obstacle.height > map.height) {
+          problems.add(new Problem(file, line, "l'obstacle sort de la carte : il occupe les lignes " + top + " à " + (top + obstacle.height - 1) + " alors que la carte en a " + map.height));
+        }
+        if (obstacle.width > map.width) {
+          problems.add(new Problem(file, line, "l'obstacle est plus large que la carte"));
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that the player stays inside the map, both on the floor and at the top of its jump.
+   */
+  private void checkPlayerBounds(Raster map, Raster skin, List<Problem> problems) {
+    int lowest = Game.MAP_DISTANCE_UNTIL_FLOOR - Game.PIXEL_SIZE;
+    int highest = lowest - Game.JUMP_HEIGHT;
+    if (highest < 0 || lowest + skin.height > map.height) {
+      problems.add(new Problem(map.file, 0, "le joueur sort de la carte : il occupe les lignes " + highest + " à " + (lowest + skin.height - 1) + " alors que la carte en a " + map.height));
+    }
+  }
+
+  /**
+   * Validates the `assets` folder and prints the problems.
+   * Meant to be called before starting the game, so that it doesn't crash later.
+   * @param out Where to print the problems.
+   * @return `true` if the assets are valid.
+   */
+  public static boolean check(PrintStream out) {
+    List<Problem> problems = new AssetValidator().validate();
+    for (Problem problem : problems) {
+      out.println(problem);
+    }
+    if (!problems.isEmpty()) {
+      out.println(problems.size() + " problème(s) trouvé(s) dans les assets.");
+    }
+    return problems.isEmpty();
+  }
+
+  public static void main(String[] args) {
+    AssetValidator validator = args.length > 0 ? new AssetValidator(Paths.get(args[0])) : new AssetValidator();
+    long start = System.nanoTime();
+    List<Problem> problems = validator.validate();
+    for (Problem problem : problems) {
+      System.out.println(problem);
+    }
+    System.out.printf("%d problème(s) trouvé(s) en %.1f ms%n", problems.size(), (System.nanoTime() - start) / 1e6);
+    if (!problems.isEmpty()) {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Reloads the assets when their files change, without restarting the game.
+ * 
+ * The watcher has its own thread: when a file changes, only this file is read again,
+ * then a new registry is created from the previous one and replaces it atomically.
+ * The games get the latest registry at the beginning of each step of their movements,
+ * so they never wait for a file to be read and they never see a registry being built.
+ *
+ * Editors often write a file in several chunks, and a file read in the middle may look valid with fewer rows.
+ * So a file is only read once it hasn't changed for `DEBOUNCE_MILLIS`, and the new version is only published
+ * if `AssetValidator` doesn't find any new problem in the assets (an obstacle out of a smaller map, for example).
+ */
+public class AssetWatcher implements Supplier<AssetRegistry> {
+  /**
+   * What kind of asset is stored in a watched directory.
+   */
+  private enum Kind { COLORS, MAPS, OBSTACLES, SKINS, CONFIGS }
+
+  /**
+   * How long a file must stay unchanged before it's read again.
+   */
+  public static final long DEBOUNCE_MILLIS = 200;
+
+  /**
+   * A file that changed, waiting for the editor to finish writing it.
+   */
+  private static class PendingReload {
+    private final Kind kind;
+    private final boolean deleted;
+    private final long nanoTime; // of the last event of the file
+
+    private PendingReload(Kind kind, boolean deleted, long nanoTime) {
+      this.kind = kind;
+      this.deleted = deleted;
+      this.nanoTime = nanoTime;
+    }
+  }
+
+  private final Path root;
+  private final AtomicReference<AssetRegistry> latest;
+  private final WatchService watchService;
+  private final HashMap<WatchKey, Kind> directories = new HashMap<>();
+
+  /**
+   * The files waiting to be read, the oldest event first. Only used by the thread of the watcher.
+   */
+  private final LinkedHashMap<Path, PendingReload> pending = new LinkedHashMap<>();
+
+  /**
+   * The problems the assets had when the current version was published, so that only new problems prevent a reload.
+   * Only used by the thread of the watcher.
+   */
+  private Set<String> knownProblems;
+
+  /**
+   * Where to write what was reloaded. If it's `null`, nothing is written
+   * (the game uses the whole terminal, so we can't write on it).
+   */
+  private final PrintStream log;
+
+  /**
+   * Starts watching the default `assets` folder.
+   * @param initial The registry to use until a file changes.
+   * @param log Where to write what was reloaded, can be `null`.
+   * @throws IOException If the directories can't be watched.
+   */
+  public AssetWatcher(AssetRegistry initial, PrintStream log) throws IOException {
+    this(initial, Paths.get(AssetRegistry.ASSETS_DIRECTORY), log);
+  }
+
+  /**
+   * Starts watching an asset folder.
+   * @param initial The registry to use until a file changes, loaded from `root`.
+   * @param root The directory containing the assets (organized like the `assets` folder).
+   * @param log Where to write what was reloaded, can be `null`.
+   * @throws IOException If the directories can't be watched.
+   */
+  public AssetWatcher(AssetRegistry initial, Path root, PrintStream log) throws IOException {
+    this.root = root;
+    this.latest = new AtomicReference<>(initial);
+    this.log = log;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    watch(resolve(AssetRegistry.COLORS_PATH).getParent(), Kind.COLORS);
+    watch(resolve(AssetRegistry.MAPS_DIRECTORY), Kind.MAPS);
+    watch(resolve(AssetRegistry.OBSTACLES_DIRECTORY), Kind.OBSTACLES);
+    watch(resolve(AssetRegistry.SKINS_DIRECTORY), Kind.SKINS);
+    watch(resolve(AssetRegistry.CONFIGS_DIRECTORY), Kind.CONFIGS);
+    this.knownProblems = findProblems();
+
+    Thread thread = new Thread(this::watchForever, "asset-watcher");
+    thread.setDaemon(true); // it must not prevent the game from stopping
+    thread.start();
+  }
+
+  /**
+   * Gets where a default asset path is in `root` (see `AssetValidator`).
+   */
+  private Path resolve(String defaultPath) {
+    return root.resolve(Paths.get(AssetRegistry.ASSETS_DIRECTORY).relativize(Paths.get(defaultPath)));
+  }
+
+  private void watch(Path directory, Kind kind) throws IOException {
+    WatchKey key = directory.register(watchService,
+      StandardWatchEventKinds.ENTRY_CREATE,
+      StandardWatchEventKinds.ENTRY_MODIFY,
+      StandardWatchEventKinds.ENTRY_DELETE);
+    directories.put(key, kind);
+  }
+
+  /**
+   * Gets the most recent version of the assets.
+   * @return The latest registry.
+   */
+  @Override
+  public AssetRegistry get() {
+    return latest.get();
+  }
+
+  /**
+   * Stops watching the files.
+   */
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException ignore) {}
+  }
+
+  private void watchForever() {
+    try {
+      while (true) {
+        WatchKey key = pending.isEmpty()
+          ? watchService.take()
+          : watchService.poll(nanosUntilFirstReload(), TimeUnit.NANOSECONDS);
+        if (key != null) {
+          Kind kind = directories.get(key);
+          Path directory = (Path)key.watchable();
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              continue;
+            }
+            Path file = directory.resolve((Path)event.context());
+            if (file.toString().endsWith(".csv")) {
+              pending.remove(file); // so that the files stay sorted by their last event
+              pending.put(file, new PendingReload(kind, event.kind() == StandardWatchEventKinds.ENTRY_DELETE, System.nanoTime()));
+            }
+          }
+          key.reset();
+        }
+        reloadQuietFiles();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException ignore) {}
+  }
+
+  private long nanosUntilFirstReload() {
+    PendingReload first = pending.values().iterator().next();
+    return Math.max(0, first.nanoTime + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS) - System.nanoTime());
+  }
+
+  /**
+   * Reads the files that haven't changed for `DEBOUNCE_MILLIS`.
+   */
+  private void reloadQuietFiles() {
+    long now = System.nanoTime();
+    for (Iterator<java.util.Map.Entry<Path, PendingReload>> i = pending.entrySet().iterator(); i.hasNext();) {
+      java.util.Map.Entry<Path, PendingReload> entry = i.next();
+      PendingReload reload = entry.getValue();
+      if (now - reload.nanoTime < TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS)) {
+        break; // the next ones changed even more recently
+      }
+      i.remove();
+      reload(reload.kind, entry.getKey(), reload.deleted);
+    }
+  }
+
+  /**
+   * Validates the whole asset folder.
+   * @return The problems, as text.
+   */
+  private Set<String> findProblems() {
+    List<AssetValidator.Problem> problems = new AssetValidator(root).validate();
+    return problems.stream().map(AssetValidator.Problem::toString).collect(Collectors.toCollection(HashSet::new));
+  }
+
+  /**
+   * Reads a single file again and publishes a new registry containing it.
+   * If the file can't be read, or if it adds problems to the assets (see `AssetValidator`), the previous version is kept.
+   * @param kind What kind of asset the file contains.
+   * @param file The file that changed.
+   * @param deleted Was the file deleted?
+   */
+  private void reload(Kind kind, Path file, boolean deleted) {
+    long start = System.nanoTime();
+    String path = file.toString();
+    String name = AssetRegistry.getAssetName(path);
+    if (kind == Kind.COLORS && (!file.equals(resolve(AssetRegistry.COLORS_PATH)) || deleted)) {
+      return; // the other files of the folder aren't assets
+    }
+    FileTime validated = lastModified(file);
+    Set<String> problems = findProblems();
+    if (!knownProblems.containsAll(problems)) {
+      if (log != null) {
+        problems.removeAll(knownProblems);
+        log.println("Version de " + path + " ignorée : " + String.join(", ", problems));
+      }
+      return;
+    }
+    AssetRegistry.Builder builder = latest.get().toBuilder();
+    try {
+      switch (kind) {
+        case COLORS:
+          builder.loadColors(path);
+          break;
+        case MAPS:
+          if (deleted) builder.removeMap(name); else builder.loadMap(path);
+          break;
+        case OBSTACLES:
+          if (deleted) builder.removeObstacle(name); else builder.loadObstacle(path);
+          break;
+        case SKINS:
+          if (deleted) builder.removeSkin(name); else builder.loadSkin(path);
+          break;
+        case CONFIGS:
+          if (deleted) builder.removeConfig(AssetRegistry.getConfigMapName(path)); else builder.loadConfig(path);
+          break;
+      }
+    } catch (Exception e) {
+      if (log != null) {
+        log.println("Impossible de recharger " + path + " : " + e);
+      }
+      return;
+    }
+    if (!deleted && !lastModified(file).equals(validated)) {
+      return; // it changed again since it was validated, the next event will read it again
+    }
+    // Only this thread publishes new versions, so nothing was published since we called `latest.get()`.
+    latest.set(builder.build());
+    knownProblems = problems;
+    if (log != null) {
+      log.printf("%s rechargé en %.1f ms%n", path, (System.nanoTime() - start) / 1e6);
+    }
+  }
+
+  private static FileTime lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+}
@@ -3,21 +3,30 @@ package main.java;
 /**
  * Represents a pixel in the game.
  * Cannot be transparent.
+ * It's immutable, like the registry that holds it.
  */
 public class Color {
   /**
    * ANSI format of the color.
    */
-  String ANSI;
+  final String ANSI;
+
+  /**
+   * ANSI format of the color, as the color of the text (see `RasterRenderer` with half blocks).
+   */
+  final String FOREGROUND_ANSI;
 
   /**
    * Can the user walk on this color?
-   * By default it is `true` for all colors, but if you want to make a wall, then set it to `false`.
+   * It's `true` for most colors, but if you want to make a wall, then set it to `false`.
    */
-  boolean x = true;
+  final boolean x;
 
   public Color(String ansi, boolean x) {
     this.ANSI = ansi;
+    this.FOREGROUND_ANSI = ansi.replace("[48;", "[38;");
     this.x = x;
   }
+
+  public String getANSI() { return ANSI; }
 }
\ No newline at end of file
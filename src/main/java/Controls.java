@@ -2,13 +2,52 @@ package main.java;
 
 import java.io.Console;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import sun.misc.Signal;
 
 /**
  * Allows our code to actually detect the key inputs instead of writing them in the standard input.
  * This code is partially based on the work of <a href="https://www.cristal.univ-lille.fr/~ysecq/">Yann Secq</a> (author of iJava)
  */
 public class Controls {
+  /**
+   * Moves the cursor to the top left corner, then clears the whole screen.
+   * It also adds an empty line at the beginning, so that the drawings start on the second line.
+   */
+  protected static final String CLEAR_SCREEN = "\033[H\033[2J\r\n";
+
+  /**
+   * How often the size of the terminal is checked, where the terminal can't tell when it changes (see `listenToResizes`).
+   */
+  private static final int RESIZE_POLL_MILLIS = 1000;
+
+  /**
+   * How long the terminal must stop sending WINCH before `terminalResized()` is called.
+   * Dragging the corner of a window sends a burst of signals, and the size only needs to be read once at the end.
+   */
+  private static final long RESIZE_DEBOUNCE_MILLIS = 100;
+
+  /**
+   * Where everything is drawn.
+   * By default it's the standard output, but a session connected through a socket has its own stream.
+   */
+  protected final PrintStream out;
+
+  /**
+   * Where the keys come from.
+   * If it's `null`, then the keys are read from the terminal of the process (`System.console()`).
+   */
+  private final InputStream input;
+
   /**
    * If the console is listening to key inputs from the console, then this is `true`.
    * By default, it will be `false`.
@@ -21,6 +60,32 @@ public class Controls {
    */
   private Thread keyboardListener;
 
+  /**
+   * Uses the terminal of the process for both the inputs and the outputs.
+   */
+  public Controls() {
+    this(null, System.out);
+  }
+
+  /**
+   * Uses specific streams for the inputs and the outputs (a socket for example).
+   * The stream is expected to send the keys as they are pressed (raw mode is the job of the client).
+   * @param input The stream from which the keys are read.
+   * @param out The stream on which everything is drawn.
+   */
+  public Controls(InputStream input, PrintStream out) {
+    this.input = input;
+    this.out = out;
+  }
+
+  /**
+   * Are the keys coming from the terminal of the process?
+   * @return `true` if we're using `System.console()`, `false` if we were given a stream.
+   */
+  private boolean isUsingConsole() {
+    return input == null;
+  }
+
   /**
    * In order to detect the actual key presses of the user, without writing any of them, 
    * then this function needs to be called with `newState` set to `true`.
@@ -33,13 +98,22 @@ public class Controls {
       keyboardListener = new Thread() {
         public void run() {
           try {
-            String[] commands = new String[] { "/bin/sh", "-c", "stty raw </dev/tty" };
-            Runtime.getRuntime().exec(commands).waitFor();
-            Console console = System.console();
             Reader reader;
+            if (isUsingConsole()) {
+              String[] commands = new String[] { "/bin/sh", "-c", "stty raw </dev/tty" };
+              Runtime.getRuntime().exec(commands).waitFor();
+              Console console = System.console();
+              reader = console.reader();
+            } else {
+              reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+            }
 
-            for (reader = console.reader(); listeningConsole; Thread.sleep(100L)) {
+            for (; listeningConsole; Thread.sleep(100L)) {
               int keyInput = reader.read();
+              if (keyInput == -1) { // the other end is gone
+                inputClosed();
+                break;
+              }
               if (keyInput == 27) { // Escape key
                 keyInput = reader.read();
                 if (keyInput == 91) { // Meta
@@ -65,7 +139,10 @@ public class Controls {
 
             reader.close();
           } catch (InterruptedException | IOException e) {
-            e.printStackTrace();
+            // A socket closed on purpose makes the pending read fail, it's not an error.
+            if (listeningConsole) {
+              e.printStackTrace();
+            }
           }
         }
       };
@@ -73,11 +150,13 @@ public class Controls {
     } else {
       listeningConsole = false;
 
-      try {
-        String[] commands = new String[] { "/bin/sh", "-c", "stty sane </dev/tty" };
-        Runtime.getRuntime().exec(commands).waitFor();
-      } catch (InterruptedException | IOException e) {
-        e.printStackTrace();
+      if (isUsingConsole()) {
+        try {
+          String[] commands = new String[] { "/bin/sh", "-c", "stty sane </dev/tty" };
+          Runtime.getRuntime().exec(commands).waitFor();
+        } catch (InterruptedException | IOException e) {
+          e.printStackTrace();
+        }
       }
     }
   }
@@ -93,6 +172,92 @@ public class Controls {
    */
   protected void keyTypedInConsole(int keyCode) { }
 
+  /**
+   * This function is meant to be overriden by any class inherited from `Controls`.
+   * It's called once when there is nothing left to read (the client of a socket disconnected for example).
+   */
+  protected void inputClosed() { }
+
+  /**
+   * This function is meant to be overriden by any class inherited from `Controls`.
+   * It's called each time the terminal of the process changes size, once `listenToResizes()` was called:
+   * once the terminal stopped changing for a moment, not for every intermediate size.
+   * It runs on its own thread.
+   */
+  protected void terminalResized() { }
+
+  /**
+   * Gets the size of the terminal of the process.
+   * @return `[columns, lines]`, or `null` if it's unknown (a session through a socket, or no terminal at all).
+   */
+  protected int[] getTerminalSize() {
+    if (!isUsingConsole()) {
+      return null;
+    }
+    try {
+      String[] commands = new String[] { "/bin/sh", "-c", "stty size </dev/tty" };
+      Process process = Runtime.getRuntime().exec(commands);
+      String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+      if (process.waitFor() != 0) {
+        return null;
+      }
+      String[] size = output.split("\\s+"); // "lines columns"
+      return new int[] { Integer.parseInt(size[1]), Integer.parseInt(size[0]) };
+    } catch (IOException | RuntimeException e) {
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Starts calling `terminalResized()` each time the terminal of the process changes size.
+   * The terminal sends the signal WINCH when it does. Where the signal can't be caught, the size is checked every second instead.
+   * It does nothing for a session through a socket, whose size isn't known.
+   *
+   * Java has no public API for the signals, so this uses `sun.misc.Signal`:
+   * it's still exported by the module `jdk.unsupported`, but javac warns about it, and a future JDK may remove it.
+   * The poller would work everywhere, but it runs `stty` every second and it notices a resize up to a second late.
+   */
+  protected void listenToResizes() {
+    if (!isUsingConsole()) {
+      return;
+    }
+    BlockingQueue<Signal> signals = new LinkedBlockingQueue<>();
+    try {
+      Signal.handle(new Signal("WINCH"), signals::offer); // the handler must return quickly, it runs on the thread of the signals
+    } catch (IllegalArgumentException unsupported) { // no WINCH on this system
+      Thread poller = new Thread(() -> {
+        int[] last = getTerminalSize();
+        while (true) {
+          sleep(RESIZE_POLL_MILLIS);
+          int[] size = getTerminalSize();
+          if (!Arrays.equals(size, last)) {
+            last = size;
+            terminalResized();
+          }
+        }
+      }, "resize-poller");
+      poller.setDaemon(true);
+      poller.start();
+      return;
+    }
+    Thread listener = new Thread(() -> {
+      try {
+        while (true) {
+          signals.take();
+          while (signals.poll(RESIZE_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS) != null) {
+            // the terminal is still changing size
+          }
+          terminalResized();
+        }
+      } catch (InterruptedException ignore) {}
+    }, "resize-listener");
+    listener.setDaemon(true);
+    listener.start();
+  }
+
   /**
    * Allows the program to sleep for a while.
    * @param milliseconds The exact sleep duration in milliseconds.
@@ -109,7 +274,7 @@ public class Controls {
    * @param y The coordinates on the Y-axis
    */
   protected void moveCursorTo(int x, int y) {
-    System.out.print("\033[" + y + ";" + x + "H");
+    out.print("\033[" + y + ";" + x + "H");
   }
 
   /**
@@ -117,15 +282,8 @@ public class Controls {
    * It also adds an empty line at the beginning.
    */
   protected void clearMyScreen() {
-    // This doesn't work:
-    //System.out.print("\033[2J");
-    //moveCursorTo(0,0);
-    // Desperate solution:
-    for (int i = 80; i >= 0; i--) {
-      moveCursorTo(0, i);
-      System.out.print(" ".repeat(200));
-    }
-    println("");
+    // The cursor must be moved before clearing, hence `CLEAR_SCREEN` instead of "\033[2J" alone.
+    out.print(CLEAR_SCREEN);
   }
 
   /**
@@ -133,14 +291,14 @@ public class Controls {
    * The cursor will be directed to this position when `restoredCursorPosition` is called.
    */
   protected void saveCursorPosition() {
-    System.out.print("\033[s");
+    out.print("\033[s");
   }
 
   /**
    * The cursor goes back to its previously saved position.
    */
   protected void restoreCursorPosition() {
-    System.out.print("\033[u");
+    out.print("\033[u");
   }
 
   /**
@@ -155,7 +313,7 @@ public class Controls {
    * 
    * @param content The content to be printed.
    */
-  protected static void println(String content) {
-    System.out.print("\r" + content + "\r\n");
+  protected void println(String content) {
+    out.print("\r" + content + "\r\n");
   }
 }
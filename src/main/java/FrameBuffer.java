@@ -0,0 +1,269 @@
+package main.java;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The bytes of a frame, written to the screen all at once.
+ * The buffer is reused from a frame to another, so once it's big enough, drawing doesn't allocate anything.
+ * It's not thread-safe: it must be used while holding the lock of the output.
+ *
+ * The buffer knows where the cursor is while the frame is being drawn,
+ * so that it can move the cursor with the shortest sequence (see `appendCursorMove`).
+ */
+public final class FrameBuffer {
+  private static final byte ESC = 0x1B;
+
+  /**
+   * The position of the cursor is unknown (at the beginning of a frame, for example).
+   */
+  private static final int UNKNOWN = -1;
+
+  /**
+   * The decimal digits of the numbers from 0 to 999, so the coordinates are written without any division.
+   */
+  private static final byte[][] DIGITS = new byte[1000][];
+
+  static {
+    for (int i = 0; i < DIGITS.length; i++) {
+      DIGITS[i] = Integer.toString(i).getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private byte[] bytes;
+  private int length = 0;
+  private int cursorX = UNKNOWN;
+  private int cursorY = UNKNOWN;
+
+  public FrameBuffer(int initialCapacity) {
+    this.bytes = new byte[initialCapacity];
+  }
+
+  /**
+   * Appends text, encoded in UTF-8.
+   * The text must not move the cursor (a color sequence for example), use `repeat` to print visible characters.
+   * It's encoded character by character, without creating any intermediate array.
+   * @param text The text to append.
+   * @return This buffer.
+   */
+  public FrameBuffer append(String text) {
+    int size = text.length();
+    ensureCapacity(size * 3);
+    for (int i = 0; i < size; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes[length++] = (byte)c;
+      } else if (c < 0x800) {
+        bytes[length++] = (byte)(0xC0 | (c >> 6));
+        bytes[length++] = (byte)(0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i)); // 4 bytes for 2 chars, so the capacity is enough
+        bytes[length++] = (byte)(0xF0 | (codePoint >> 18));
+        bytes[length++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[length++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[length++] = (byte)(0x80 | (codePoint & 0x3F));
+      } else {
+        bytes[length++] = (byte)(0xE0 | (c >> 12));
+        bytes[length++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+        bytes[length++] = (byte)(0x80 | (c & 0x3F));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Appends visible characters several times, and moves the known position of the cursor accordingly.
+   * @param text The text to repeat, where each character takes one column.
+   * @param count The number of times.
+   * @return This buffer.
+   */
+  public FrameBuffer repeat(String text, int count) {
+    for (int i = 0; i < count; i++) {
+      append(text);
+    }
+    if (cursorX != UNKNOWN) {
+      cursorX += text.length() * count;
+    }
+    return this;
+  }
+
+  /**
+   * Appends a positive integer, in decimal.
+   * @param value The integer (>= 0).
+   * @return This buffer.
+   */
+  public FrameBuffer append(int value) {
+    if (value < DIGITS.length) {
+      byte[] digits = DIGITS[value];
+      ensureCapacity(digits.length);
+      for (byte digit : digits) {
+        bytes[length++] = digit;
+      }
+      return this;
+    }
+    ensureCapacity(10);
+    int digits = digitCount(value);
+    for (int i = length + digits - 1; i >= length; i--) {
+      bytes[i] = (byte)('0' + value % 10);
+      value /= 10;
+    }
+    length += digits;
+    return this;
+  }
+
+  /**
+   * Appends the shortest sequence moving the cursor to a specific position on the screen.
+   * When the current position is known, a relative move is used if it's shorter than the absolute one:
+   * forward (CUF) and/or down (CUD), or a carriage return followed by a line feed or a move down.
+   * The cursor is never moved backward relatively, because it may wait at the right edge of the terminal.
+   * @param x The coordinates on the X-axis (from 1).
+   * @param y The coordinates on the Y-axis (from 1).
+   * @return This buffer.
+   */
+  public FrameBuffer appendCursorMove(int x, int y) {
+    int absolute = 4 + digitCount(y) + digitCount(x); // ESC [ y ; x H
+    int best = absolute;
+    int move = 0; // 0: absolute, 1: relative, 2: carriage return first
+    if (cursorX != UNKNOWN) {
+      int dx = x - cursorX;
+      int dy = y - cursorY;
+      if (dx == 0 && dy == 0) {
+        return this;
+      }
+      if (dx >= 0) {
+        int relative = relativeLength(dx) + verticalLength(dy);
+        if (relative < best) {
+          best = relative;
+          move = 1;
+        }
+      }
+      int afterReturn = 1 + (dy == 1 ? 1 : verticalLength(dy)) + relativeLength(x - 1);
+      if (afterReturn < best) {
+        move = 2;
+      }
+    }
+    switch (move) {
+      case 1:
+        appendVertical(y - cursorY);
+        appendRelative(x - cursorX, 'C');
+        break;
+      case 2:
+        ensureCapacity(1);
+        bytes[length++] = '\r';
+        if (y - cursorY == 1) {
+          ensureCapacity(1);
+          bytes[length++] = '\n'; // always after a carriage return, so it also works when the terminal adds one to each line feed
+        } else {
+          appendVertical(y - cursorY);
+        }
+        appendRelative(x - 1, 'C');
+        break;
+      default:
+        ensureCapacity(2);
+        bytes[length++] = ESC;
+        bytes[length++] = '[';
+        append(y);
+        ensureCapacity(1);
+        bytes[length++] = ';';
+        append(x);
+        ensureCapacity(1);
+        bytes[length++] = 'H';
+    }
+    cursorX = x;
+    cursorY = y;
+    return this;
+  }
+
+  /**
+   * Forgets the position of the cursor, after writing something that moved it in an unknown way.
+   * The next move is then absolute.
+   * @return This buffer.
+   */
+  public FrameBuffer forgetCursor() {
+    cursorX = UNKNOWN;
+    cursorY = UNKNOWN;
+    return this;
+  }
+
+  private static int digitCount(int value) {
+    int digits = 1;
+    for (int rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    return digits;
+  }
+
+  /**
+   * The length of a relative move: nothing if `n` is 0, `ESC [ C` if it's 1, `ESC [ n C` otherwise.
+   */
+  private static int relativeLength(int n) {
+    return n == 0 ? 0 : n == 1 ? 3 : 3 + digitCount(n);
+  }
+
+  private static int verticalLength(int dy) {
+    return relativeLength(Math.abs(dy));
+  }
+
+  private void appendVertical(int dy) {
+    appendRelative(Math.abs(dy), dy > 0 ? 'B' : 'A');
+  }
+
+  private void appendRelative(int n, char direction) {
+    if (n == 0) {
+      return;
+    }
+    ensureCapacity(2);
+    bytes[length++] = ESC;
+    bytes[length++] = '[';
+    if (n > 1) {
+      append(n);
+    }
+    ensureCapacity(1);
+    bytes[length++] = (byte)direction;
+  }
+
+  public int length() { return length; }
+
+  /**
+   * Writes the frame in a single write, then empties the buffer.
+   * @param out The output of the game.
+   */
+  public void writeTo(PrintStream out) {
+    if (GameEvents.ENABLED) {
+      GameEvents.FrameFlush event = GameEvents.beginFrameFlush(length);
+      out.write(bytes, 0, length);
+      out.flush();
+      event.commit();
+    } else {
+      out.write(bytes, 0, length);
+      out.flush();
+    }
+    length = 0;
+    forgetCursor(); // others may write to the output between two frames
+  }
+
+  /**
+   * Copies the frame instead of writing it, for a frame drawn once and written many times, then empties the buffer.
+   * @return The bytes of the frame.
+   */
+  public byte[] toByteArray() {
+    byte[] frame = Arrays.copyOf(bytes, length);
+    clear();
+    return frame;
+  }
+
+  /**
+   * Empties the buffer without writing it.
+   */
+  public void clear() {
+    length = 0;
+    forgetCursor();
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+    }
+  }
+}
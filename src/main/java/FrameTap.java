@@ -0,0 +1,83 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A stream between the game and the terminal of the player, that also gets each frame the game draws:
+ * the bytes written between two flushes. The game flushes once it has drawn a whole frame (see `FrameBuffer.flush`).
+ *
+ * The bytes go to the terminal right away, and the frame is handed over with a single copy when it's flushed.
+ * What is done with it (see `SpectatorBroadcast` and `SessionRecorder`) must happen on another thread,
+ * so that the game doesn't wait. Taps can be chained, the terminal of one being another one.
+ */
+public abstract class FrameTap extends OutputStream {
+  /**
+   * The size of the copies of the screen of the player, big enough for the largest maps and menus.
+   */
+  public static final int SCREEN_COLUMNS = 200;
+  public static final int SCREEN_ROWS = 60;
+
+  private final OutputStream player;
+
+  /**
+   * The frame being written by the game.
+   */
+  private byte[] pending = new byte[8192];
+  private int pendingLength = 0;
+
+  /**
+   * @param player Where the player sees the game (the standard output for example).
+   */
+  protected FrameTap(OutputStream player) {
+    this.player = player;
+  }
+
+  @Override
+  public synchronized void write(int b) throws IOException {
+    player.write(b);
+    ensureCapacity(1);
+    pending[pendingLength++] = (byte)b;
+  }
+
+  @Override
+  public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+    player.write(bytes, offset, length);
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, pending, pendingLength, length);
+    pendingLength += length;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (pendingLength + extra > pending.length) {
+      pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + extra));
+    }
+  }
+
+  /**
+   * Shows the frame to the player, then hands it over without waiting.
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    player.flush();
+    if (pendingLength > 0) {
+      frameFlushed(Arrays.copyOf(pending, pendingLength)); // the only copy of the frame
+      pendingLength = 0;
+    }
+  }
+
+  /**
+   * Called by the thread of the game each time it flushes a frame. It must not block.
+   * @param frame The bytes of the frame, that nobody else will change.
+   */
+  protected abstract void frameFlushed(byte[] frame);
+
+  /**
+   * Hands the last frame over. It doesn't close the stream of the player.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+}
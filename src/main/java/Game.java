@@ -1,28 +1,46 @@
 package main.java;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class Game extends Controls {
-  private final String ANSI_RESET = "\u001b[0m";
-  private final String ANSI_BG_DEFAULT_COLOR = "\u001b[49m";
-  private final String PIXEL = "  "; // In reality, a pixel is composed of two spaces and the background is then colored using ANSI
-  private final int PIXEL_SIZE = PIXEL.length(); // we'll need this in the calculations of the movements
+  static final int PIXEL_SIZE = RasterRenderer.PIXEL.length(); // we'll need this in the calculations of the movements
 
   /**
    * The number of pixels the player will jump upwards and downwards.
    */
-  private final int JUMP_HEIGHT = 13;
+  static final int JUMP_HEIGHT = 13;
 
   /**
-   * The delay between each step of the jump.
-   * A delay too low will make the jump look instantaneous or hard to follow.
+   * How long the player takes to reach the top of the jump, in milliseconds. It takes as long to land.
+   * A duration too low will make the jump look instantaneous or hard to follow.
    */
-  private final int JUMP_DELAY_BETWEEN_EACH_FRAME = 40;
+  static final int JUMP_APEX_MILLIS = 520;
+
+  /**
+   * The delay between each frame of the jump.
+   * The arc of the jump doesn't depend on it (see `JumpPhysics`): a lower delay only makes the jump smoother.
+   * A frame where the player stays on the same row draws nothing.
+   */
+  static final int JUMP_DELAY_BETWEEN_EACH_FRAME = 16;
   
   /**
    * The minimal height, in characters, for the console so that the game can be played normally.
@@ -36,17 +54,18 @@ public class Game extends Controls {
    */
   private final int MINIMAL_GUI_WIDTH = 35;
 
-  private final String COLORS_PATH = "assets/0-colors.csv";
-  private final String PLAYER_DEFAULT_SKIN = "assets/skins/amongus.csv";
-  private final String MAPS_DIRECTORY = "assets/maps";
-  private final String OBSTACLES_DIRECTORY = "assets/obstacles";
-  private final String CONFIGS_DIRECTORY = "assets/map-configs";
+  static final String PLAYER_DEFAULT_SKIN = "amongus";
+
+  /**
+   * The number of best runs displayed at the end of a run.
+   */
+  private static final int DISPLAYED_SCORES = 5;
 
   /**
    * The number of pixels on the Y-axis between the top of the map and the floor.
-   * It must be the same on all maps, hence this constant.
+   * It must be the same on all maps, hence this constant. The solid pixels of a map can only add platforms above it (see `getFloorY`).
    */
-  private final int MAP_DISTANCE_UNTIL_FLOOR = 32;
+  static final int MAP_DISTANCE_UNTIL_FLOOR = 32;
 
   private final int JUMP_KEY = 32;
   private final int TOP_ARROW_KEY = 17;
@@ -57,55 +76,168 @@ public class Game extends Controls {
 
   /**
    * The player's position on the X-axis in the map.
-   * In theory, it should always be the same.
+   * It's the same in every game, so the other modes and the analysis of the levels use it too.
    */
-  private int playerX = 2; // ! MUST BE DIVISIBLE BY `PIXEL_SIZE` AND > 0 !
+  static final int PLAYER_X = 2; // ! MUST BE DIVISIBLE BY `PIXEL_SIZE` AND > 0 !
 
   /**
-   * The player's position on the Y-axis in the map.
-   * This position is within the map itself, so y=0 means the top of the map, not the top of the GUI.
-   * By default, the player needs to be placed on the floor.
+   * Where the assets come from.
+   * It always gives the latest version of the assets (they can be reloaded while the game is running).
    */
-  private int playerY = MAP_DISTANCE_UNTIL_FLOOR;
+  private final Supplier<AssetRegistry> assetSource;
+
+  /**
+   * The colors, maps, obstacles, skins and configs of the game.
+   * It's shared with the other games running in the same JVM.
+   * It's replaced by the latest version of the assets at the beginning of each step of the obstacles.
+   */
+  private volatile AssetRegistry assets;
+
+  private volatile Raster playerCurrentMatrix;
 
-  private ArrayList<Color> allColors = new ArrayList<>();
-  private HashMap<String, Map> allMaps = new HashMap<>();
-  private HashMap<String, Obstacle> allObstacles = new HashMap<>();
-  private HashMap<String, MapSpawnConfig> allConfigs = new HashMap<>(); // where, when and how fast the obstacles spawn for each map
-  private ArrayList<ArrayList<Integer>> playerCurrentMatrix = new ArrayList<>();
+  /**
+   * The skin of the player, to draw it at the level of the renderer (see `GameObject.getRaster(int)`).
+   * `playerCurrentMatrix` is its raster at its size, used by the rules of the game.
+   */
+  private volatile Skin playerSkin;
 
   /**
-   * Since we don't want the main thread to terminate too soon,
-   * as long as we're waiting for user inputs, we'll put it to sleep.
-   * Terminate this sleep by setting this variable to `true`.
+   * The identifiers of the rows of the player at each level, so that a jump only redraws the rows that change (see `RasterRenderer.identifyRows`).
    */
-  private boolean gameFinished = false;
+  private volatile int[][] playerRowIds;
 
   /**
-   * Can the player jump? By default, it is `true`.
-   * It's necessary to make sure that the player doesn't double-jump.
+   * The size of the terminal (`[columns, lines]`), or `null` if it's unknown (see `Controls.getTerminalSize`).
    */
-  private boolean canJump = true;
+  private volatile int[] terminalSize;
 
   /**
-   * The name of the current map.
+   * Where the player stands on the current map, and the highest it can jump before hitting the terrain (see `Terrain`).
+   * They're found once when the map starts, so a frame of a jump doesn't look at the terrain.
    */
-  private String currentMapName = "desert";
+  private volatile int floorY = MAP_DISTANCE_UNTIL_FLOOR;
+  private volatile int ceilingY = PIXEL_SIZE;
 
   /**
-   * The current menu being displayed to the user.
-   * This variable is useful to detect what choice the user made
-   * when pressing the Enter key.
+   * The menu, the map, the position of the player and its jump, at this moment.
+   * The keyboard, the jump and the obstacles run on different threads,
+   * so the state is immutable and each change publishes a new one atomically (see `GameState`).
    * 
-   * Since the only page that doesn't have menus is the game itself,
-   * then if this is `null` it means the user's playing the game.
+   * Reading the state never blocks. However, a change that must be drawn is published
+   * while holding the lock of `out` (see `publish`), so that the screen always matches the state.
+   */
+  private final AtomicReference<GameState> state = new AtomicReference<>();
+
+  /**
+   * What the user did in the menus, waiting to be handled by the loop of `start()`.
+   * The keyboard thread doesn't change the menus itself: it sends events,
+   * so that only one thread of the session changes and draws the menus.
    */
-  private GameMenu currentMenu = null;
+  private final BlockingQueue<MenuEvent> menuEvents = new LinkedBlockingQueue<>();
 
   /**
-   * The thread responsible for the jump.
+   * The identifier of the last jump. Only the keyboard thread makes the player jump.
    */
-  private Thread jumpThread = null;
+  private int lastJumpId = GameState.NOT_JUMPING;
+
+  /**
+   * Draws the map, the obstacles and the player. It's only used while holding the lock of `out`.
+   */
+  private final RasterRenderer renderer = new RasterRenderer(Boolean.getBoolean(RasterRenderer.HALF_BLOCKS_PROPERTY));
+
+  /**
+   * Runs the movements of the obstacles and of the player.
+   * Several games can share the same scheduler, so that each of them doesn't need its own threads.
+   */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * Is `scheduler` owned by this game? If so, it must be shut down when the game ends.
+   */
+  private final boolean ownsScheduler;
+
+  /**
+   * Where the results of the runs are saved, or `null` if they aren't.
+   */
+  private final ScoreStore scores;
+
+  /**
+   * When the current run started, in milliseconds since the epoch.
+   */
+  private volatile long runStartMillis;
+
+  /**
+   * What the screen shows (a menu or a map), for the recordings (see `GameEvents`).
+   * It's only used while holding the lock of `out`.
+   */
+  private String shownScreen = "";
+
+  /**
+   * Creates a game played in the terminal of the process.
+   * The assets are loaded when the game starts.
+   */
+  public Game() {
+    this(AssetRegistry::getDefault);
+  }
+
+  /**
+   * Creates a game played in the terminal of the process.
+   * @param assetSource Where to get the assets, it's called when the game starts and before each step of the obstacles.
+   */
+  public Game(Supplier<AssetRegistry> assetSource) {
+    this(assetSource, null);
+  }
+
+  /**
+   * Creates a game played in the terminal of the process.
+   * @param assetSource Where to get the assets, it's called when the game starts and before each step of the obstacles.
+   * @param scores Where to save the results of the runs, or `null` to not save them.
+   */
+  public Game(Supplier<AssetRegistry> assetSource, ScoreStore scores) {
+    this(System.out, assetSource, scores);
+  }
+
+  /**
+   * Creates a game played with the keyboard of the terminal of the process, but drawn on a specific stream
+   * (one that also shows the game to spectators, for example).
+   * @param out The stream on which the game is drawn.
+   * @param assetSource Where to get the assets, it's called when the game starts and before each step of the obstacles.
+   * @param scores Where to save the results of the runs, or `null` to not save them.
+   */
+  public Game(PrintStream out, Supplier<AssetRegistry> assetSource, ScoreStore scores) {
+    super(null, out);
+    this.assetSource = assetSource;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    this.ownsScheduler = true;
+    this.scores = scores;
+  }
+
+  /**
+   * Creates a game session played through specific streams (a socket for example).
+   * @param input The stream from which the keys are read.
+   * @param out The stream on which the game is drawn.
+   * @param scheduler The scheduler shared with the other sessions, to run the movements.
+   * @param assetSource Where to get the assets shared with the other sessions.
+   */
+  public Game(InputStream input, PrintStream out, ScheduledExecutorService scheduler, Supplier<AssetRegistry> assetSource) {
+    this(input, out, scheduler, assetSource, null);
+  }
+
+  /**
+   * Creates a game session played through specific streams (a socket for example).
+   * @param input The stream from which the keys are read.
+   * @param out The stream on which the game is drawn.
+   * @param scheduler The scheduler shared with the other sessions, to run the movements.
+   * @param assetSource Where to get the assets shared with the other sessions.
+   * @param scores Where to save the results of the runs (shared with the other sessions), or `null` to not save them.
+   */
+  public Game(InputStream input, PrintStream out, ScheduledExecutorService scheduler, Supplier<AssetRegistry> assetSource, ScoreStore scores) {
+    super(input, out);
+    this.assetSource = assetSource;
+    this.scheduler = scheduler;
+    this.ownsScheduler = false;
+    this.scores = scores;
+  }
 
   /**
    * Starts the game.
@@ -113,29 +245,163 @@ public class Game extends Controls {
    * When this function stops, it means the game ended.
    */
   public void start() {
-    currentMenu = new MainMenu(); // the player starts with the main menu
+    state.set(GameState.initial(new MainMenu(), MAP_DISTANCE_UNTIL_FLOOR)); // the player starts with the main menu
     enableKeyTypedInConsole(true);
+    terminalSize = getTerminalSize();
+    listenToResizes();
 
     println("Chargement...");
+    refreshAssets();
 
-    initializeColors();
-    initializeAllMaps();
-    initializeAllObstacles();
-    initializeAllConfigs();
-
-    clearMyScreen();
-    currentMenu.display();
+    drawMenu(state.get().getMenu());
 
-    while (!gameFinished) {
-      sleep(100);
+    while (!state.get().isFinished()) {
+      try {
+        MenuEvent event = menuEvents.poll(100, TimeUnit.MILLISECONDS);
+        if (event != null) {
+          handleMenuEvent(event);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
     }
     println("Game was terminated.");
     enableKeyTypedInConsole(false);
+    if (ownsScheduler) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Uses the latest version of the assets.
+   * It must only be called between two steps, so that a step is drawn with a single version of the assets.
+   */
+  private void refreshAssets() {
+    assets = assetSource.get();
+  }
+
+  /**
+   * Clears the screen and draws a menu onto the output of this game.
+   * @param menu The menu to draw.
+   */
+  private void drawMenu(GameMenu menu) {
+    synchronized (out) {
+      GameEvents.MenuTransition transition = GameEvents.ENABLED ? screenChanged(menu.getClass().getSimpleName()) : null;
+      menu.show(out);
+      if (transition != null) {
+        transition.commit();
+      }
+    }
+  }
+
+  /**
+   * Starts timing a change of screen, for the recordings (see `GameEvents`).
+   * It must be called while holding the lock of `out`.
+   * @param to The menu or the map shown now.
+   * @return The event to commit once the screen is drawn.
+   */
+  private GameEvents.MenuTransition screenChanged(String to) {
+    GameEvents.MenuTransition transition = GameEvents.beginMenuTransition(shownScreen, to);
+    shownScreen = to;
+    return transition;
+  }
+
+  /**
+   * Clears the screen and displays a menu, whatever the user was doing.
+   * @param menu The menu to display.
+   */
+  private void openMenu(GameMenu menu) {
+    synchronized (out) {
+      state.updateAndGet(current -> current.withMenu(menu));
+      drawMenu(menu);
+    }
+  }
+
+  /**
+   * Publishes a new state and draws the change, as a single step.
+   * Nothing is published nor drawn if the state changed since `expected` was read.
+   * @param expected The state from which `next` was computed.
+   * @param next The new state.
+   * @param draw What to draw once the new state is published.
+   * @return `true` if the new state was published.
+   */
+  private boolean publish(GameState expected, GameState next, Runnable draw) {
+    synchronized (out) {
+      if (!state.compareAndSet(expected, next)) {
+        return false;
+      }
+      draw.run();
+      return true;
+    }
+  }
+
+  /**
+   * Ends a round by displaying a menu.
+   * Several movements may try to end the same round at the same time:
+   * only one of them succeeds, so the menu is displayed and the result is saved only once.
+   * The result and the menu are only created once the round is sure to end, since an obstacle tries at each check.
+   * @param round The round to end.
+   * @param condition The round is only ended if this condition is true for the current state.
+   * @param mapName The map of the run.
+   * @param distance The number of obstacles the player got past.
+   * @param menuFor Creates the menu to display from the result of the run (`null` if it mustn't be saved) and the best runs of the map.
+   * @return `true` if this call ended the round.
+   */
+  private boolean endRound(int round, Predicate<GameState> condition, String mapName, int distance, BiFunction<RunResult, List<RunResult>, GameMenu> menuFor) {
+    RunResult result = null;
+    GameMenu menu = null;
+    while (true) {
+      GameState current = state.get();
+      if (!current.isPlaying(round) || !condition.test(current)) {
+        return false;
+      }
+      if (menu == null) {
+        result = getRunResult(mapName, distance);
+        menu = menuFor.apply(result, getBestScoresWith(result));
+      }
+      GameMenu shown = menu;
+      if (publish(current, current.withMenu(shown), () -> drawMenu(shown))) {
+        if (result != null) {
+          scores.record(result); // it only adds the result to a queue, the file is written by another thread
+        }
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Gets the result of the current run, if the results are saved.
+   * @param mapName The map of the run.
+   * @param distance The number of obstacles the player got past.
+   * @return The result, or `null` if the results aren't saved.
+   */
+  private RunResult getRunResult(String mapName, int distance) {
+    if (scores == null) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    return new RunResult(mapName, distance, now - runStartMillis, 0, now);
+  }
+
+  /**
+   * Gets the best runs of a map, as they will be once a result is saved.
+   * @param result The result that is about to be saved, or `null`.
+   * @return The best runs, the best first.
+   */
+  private List<RunResult> getBestScoresWith(RunResult result) {
+    if (result == null) {
+      return List.of();
+    }
+    List<RunResult> best = new ArrayList<>(scores.getTopScores(result.getMapName(), DISPLAYED_SCORES));
+    best.add(result);
+    best.sort(RunResult.BEST_FIRST);
+    return best.subList(0, Math.min(DISPLAYED_SCORES, best.size()));
   }
 
   /**
    * Spawns the objects for the given map and make them move.
-   * A separate thread is created during this process.
+   * The movement is executed step by step by `scheduler`.
    * The object moves until it reaches the beginning of the map.
    * 
    * TODO: this code doesn't work if the map is not at (0;0)
@@ -143,77 +409,220 @@ public class Game extends Controls {
    * @param spawnIndex The index of the spawn configuration of the current map.
    */
   public void moveObstacle(int spawnIndex) {
-    ObstacleSpawn spawn = allConfigs.get(currentMapName).getSpawns().get(spawnIndex);
-    Obstacle obstacle = allObstacles.get(spawn.getName());
-    long delayBetweenEachStep = (long)(spawn.getSpeed() * 0.15);
-    int[] mapDimensions = allMaps.get(currentMapName).getMatrixDimensions();
-    int[] obstacleDimensions = obstacle.getMatrixDimensions();
-    int playerWidth = playerCurrentMatrix.get(0).size();
-    int playerHeight = playerCurrentMatrix.size();
-    int posX = (mapDimensions[0] - obstacleDimensions[0]) * PIXEL_SIZE;
-    int posY = spawn.getY();
-    Thread movementThread = new Thread() {
-      public void run() {
-        boolean lost = false;
-        boolean quit = false;
-        int maxX = obstacleDimensions[0];
-        int x = posX;
-        while (x > maxX) {
-          // Just to make sure this thread gets the word that the player isn't playing anymore.
-          if (gameFinished || currentMenu != null) {
-            quit = true;
-            break;
-          }
-          // For the player to lose:
-          // Check if the `x` variable is equal to `(playerX + playerWidth) * PIXEL_SIZE` (the last pixel of a line from the player's matrix).
-          // If the player is not colliding with the obstacle, then:
-          // - the Y of the obstacle + its height < playerY
-          // - the Y of the obstacle > playerY + its height
-          if (x == (playerX + playerWidth) * PIXEL_SIZE) {
-            boolean isObstacleAbovePlayer = posY + obstacleDimensions[1] < playerY;
-            boolean isObstacleBelowPlayer = posY > playerY + playerHeight;
-            if (!isObstacleAbovePlayer && !isObstacleBelowPlayer) {
-              lost = true;
-              clearMyScreen();
-              (currentMenu = new GameOverMenu()).display();
-              break;
-            }
-          }
+    GameState current = state.get();
+    new ObstacleMovement(spawnIndex, current.getMapName(), current.getRound()).start();
+  }
 
-          // Stop showing the obstacles when the player is jumping
-          if (!canJump) {
-            try {
-              x--;
-              Thread.sleep(delayBetweenEachStep);
-              continue;
-            } catch (InterruptedException ignore) {}
-          }
-          try {
-            removeElementFromForeground(obstacle.getMatrix(), x, posY, x, posY);
-            x--;
-            displayMatrix(obstacle.getMatrix(), true, x, posY, x, posY);
-            Thread.sleep(delayBetweenEachStep);
-          } catch (InterruptedException ignore) { }
-          removeElementFromForeground(obstacle.getMatrix(), x, posY, x, posY);
+  /**
+   * Something moving step by step on the scheduler, until it stops itself.
+   * It's scheduled only once, with a fixed delay between the steps:
+   * scheduling each step separately would allocate a new task at each step.
+   */
+  private abstract class Movement implements Runnable {
+    private final String name;
+    private final long delayBetweenEachStep;
+    private volatile ScheduledFuture<?> future;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param name What is moving, for the events of the recordings (see `GameEvents`).
+     * @param delayBetweenEachStep The delay between the end of a step and the beginning of the next one, in milliseconds.
+     */
+    Movement(String name, long delayBetweenEachStep) {
+      this.name = name;
+      this.delayBetweenEachStep = Math.max(1, delayBetweenEachStep);
+    }
+
+    /**
+     * Runs the first step right now, then the others after each delay.
+     */
+    void start() {
+      future = scheduler.scheduleWithFixedDelay(this, 0, delayBetweenEachStep, TimeUnit.MILLISECONDS);
+      if (stopped) { // it stopped during its first step
+        future.cancel(false);
+      }
+    }
+
+    /**
+     * Stops the movement. It's called by the last step.
+     */
+    void stop() {
+      stopped = true;
+      ScheduledFuture<?> current = future;
+      if (current != null) {
+        current.cancel(false);
+      }
+    }
+
+    @Override
+    public final void run() {
+      if (stopped) {
+        return;
+      }
+      if (GameEvents.ENABLED) {
+        GameEvents.Tick tick = GameEvents.beginTick(name);
+        step();
+        tick.commit();
+      } else {
+        step();
+      }
+    }
+
+    /**
+     * One step of the movement. It must not allocate anything, unless it's the last one.
+     */
+    abstract void step();
+  }
+
+  /**
+   * The movement of one obstacle from the right of the map to its left.
+   * Each execution is one step of the movement.
+   */
+  private class ObstacleMovement extends Movement {
+    private final int spawnIndex;
+    private final ObstacleSpawn spawn;
+    private final String mapName;
+    private final int round;
+    private final Obstacle obstacle;
+    private final int obstacleWidth;
+    private final int obstacleHeight;
+    private final int playerWidth;
+    private final int playerHeight;
+    private final int posY;
+    private int x;
+
+    /**
+     * Is the obstacle currently drawn? If so, it must be removed at the beginning of the next step.
+     */
+    private boolean visible = false;
+
+    /**
+     * The condition to end the round, made once so that the step reaching the player doesn't allocate it.
+     */
+    private final Predicate<GameState> collision = this::collidesWithPlayer;
+
+    ObstacleMovement(int spawnIndex, String mapName, int round) {
+      this(spawnIndex, mapName, round, assets.getConfig(mapName).getSpawns().get(spawnIndex));
+    }
+
+    private ObstacleMovement(int spawnIndex, String mapName, int round, ObstacleSpawn spawn) {
+      super("obstacle", getStepDelay(spawn));
+      this.spawnIndex = spawnIndex;
+      this.spawn = spawn;
+      this.mapName = mapName;
+      this.round = round;
+      this.obstacle = assets.getObstacle(spawn.getName());
+      this.obstacleWidth = obstacle.getRaster().getWidth();
+      this.obstacleHeight = obstacle.getRaster().getHeight();
+      this.playerWidth = playerCurrentMatrix.getWidth();
+      this.playerHeight = playerCurrentMatrix.getHeight();
+      this.posY = spawn.getY();
+      this.x = (assets.getMap(mapName).getRaster().getWidth() - obstacleWidth) * PIXEL_SIZE;
+    }
+
+    @Override
+    void start() {
+      if (GameEvents.ENABLED) {
+        GameEvents.obstacleSpawned(mapName, spawn.getName(), spawnIndex, spawn.getSpeed(), posY);
+      }
+      super.start();
+    }
+
+    @Override
+    void step() {
+      refreshAssets();
+      boolean wasVisible = visible;
+      visible = false;
+      if (x <= obstacleWidth) {
+        if (wasVisible) {
+          drawObstacle(true, false);
         }
-        if (!lost && !quit) {
-          if ((spawnIndex + 1) < allConfigs.get(currentMapName).getSpawns().size()) {
-            moveObstacle(spawnIndex + 1);
-          } else {
-            // the player won
-            clearMyScreen();
-            (currentMenu = new VictoryMenu()).display();
-          }
+        end(false);
+        return;
+      }
+      // Just to make sure this movement gets the word that the player isn't playing anymore.
+      if (!state.get().isPlaying(round)) {
+        end(true);
+        return;
+      }
+      // For the player to lose:
+      // Check if the `x` variable is equal to `(PLAYER_X + playerWidth) * PIXEL_SIZE` (the last pixel of a line from the player's matrix).
+      // If the player is not colliding with the obstacle, then:
+      // - the Y of the obstacle + its height < playerY
+      // - the Y of the obstacle > playerY + its height
+      if (x == (PLAYER_X + playerWidth) * PIXEL_SIZE) {
+        if (endRound(round, collision, mapName, spawnIndex, GameOverMenu::new)) {
+          end(true);
+          return;
+        }
+      }
+
+      // Stop showing the obstacles when the player is jumping
+      boolean show = state.get().canJump();
+      if (wasVisible || show) {
+        drawObstacle(wasVisible, show);
+      }
+      visible = show;
+      x--;
+    }
+
+    /**
+     * Removes the obstacle from its current position and/or draws it one pixel to the left, in a single frame.
+     * Nothing is drawn if the round is over (a menu may be displayed by now).
+     * @param remove Should the obstacle be removed from its current position?
+     * @param draw Should the obstacle be drawn at its next position?
+     */
+    private void drawObstacle(boolean remove, boolean draw) {
+      synchronized (out) {
+        if (!state.get().isPlaying(round)) {
+          return;
         }
-        if (jumpThread != null) {
-          jumpThread.interrupt();
-          jumpThread = null;
-          canJump = true;
-          playerY = MAP_DISTANCE_UNTIL_FLOOR;
+        AssetRegistry assets = Game.this.assets; // the whole step is drawn with the same version of the assets
+        int level = renderer.getLevel();
+        Raster background = assets.getMap(mapName).getRaster(level);
+        if (remove) {
+          renderer.erase(assets, obstacle.getRaster(level), background, x, posY, x, posY);
         }
+        if (draw) {
+          renderer.drawForeground(assets, obstacle.getRaster(level), background, x - 1, posY, x - 1, posY);
+        }
+        renderer.flush(out);
       }
-    };
-    movementThread.start();
+    }
+
+    /**
+     * Is the obstacle colliding with the player, in the given state?
+     * @param current The state of the game.
+     * @return `true` if the player must lose.
+     */
+    private boolean collidesWithPlayer(GameState current) {
+      int playerY = current.getPlayerY();
+      boolean collides = collides(posY, obstacleHeight, playerY, playerHeight);
+      if (GameEvents.ENABLED) {
+        GameEvents.collisionChecked(mapName, spawnIndex, posY, playerY, collides);
+      }
+      return collides;
+    }
+
+    /**
+     * Ends the movement of this obstacle and spawns the next one, if there is one.
+     * If the player is still jumping, the jump continues and ends by itself.
+     * @param roundOver Is the round over (the player lost or left the map)?
+     */
+    private void end(boolean roundOver) {
+      stop();
+      if (GameEvents.ENABLED) {
+        GameEvents.obstacleDespawned(mapName, spawn.getName(), spawnIndex, roundOver);
+      }
+      if (!roundOver) {
+        if ((spawnIndex + 1) < assets.getConfig(mapName).getSpawns().size()) {
+          new ObstacleMovement(spawnIndex + 1, mapName, round).start();
+        } else {
+          // the player won
+          endRound(round, current -> true, mapName, spawnIndex + 1, VictoryMenu::new);
+        }
+      }
+    }
   }
 
   /**
@@ -224,36 +633,58 @@ public class Game extends Controls {
   }
 
   /**
-   * Makes the selector go up in the menu.
+   * Handles what the user did in a menu.
+   * The menu may have changed since the key was pressed, so the event is checked against the current state.
+   * @param event The event sent by the keyboard thread.
    */
-  private void selectMenuUp() {
-    if (GameMenu.canGoUp()){
-      saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(" ");
-      restoreCursorPosition();
-      GameMenu.current_selector_y--;
-      saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(">");    
-      restoreCursorPosition();
+  private void handleMenuEvent(MenuEvent event) {
+    GameMenu currentMenu = state.get().getMenu();
+    switch (event) {
+      case UP:
+        moveSelector(-1);
+        return;
+      case DOWN:
+        moveSelector(1);
+        return;
+      case SELECT:
+        if (currentMenu != null && currentMenu.hasChoices()) {
+          select();
+        }
+        return;
+      case QUIT:
+        if (currentMenu instanceof MainMenu) {
+          state.updateAndGet(GameState::finish); // we stop the main loop
+        } else {
+          openMenu(new MainMenu());
+        }
+        return;
+      case REFRESH:
+        synchronized (out) {
+          GameState current = state.get(); // the menu may have been closed since it asked to be refreshed
+          if (current.getMenu() != null) {
+            current.getMenu().refresh(out, current.getSelection());
+          }
+        }
+        return;
     }
   }
 
   /**
-   * Makes the selector go down in the menu.
+   * Makes the selector go up or down in the current menu.
+   * @param shift `-1` to go up, `1` to go down.
    */
-  private void selectMenuDown() {
-    if (GameMenu.canGoDown()) {
-      saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(" ");
-      restoreCursorPosition();
-      GameMenu.current_selector_y++;
-      saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(">");
-      restoreCursorPosition();
+  private void moveSelector(int shift) {
+    while (true) {
+      GameState current = state.get();
+      GameMenu currentMenu = current.getMenu();
+      int from = current.getSelection();
+      int to = from + shift;
+      if (currentMenu == null || !currentMenu.canSelect(to)) {
+        return;
+      }
+      if (publish(current, current.withSelection(to), () -> currentMenu.drawSelectorMove(out, from, to))) {
+        return;
+      }
     }
   }
 
@@ -265,51 +696,72 @@ public class Game extends Controls {
    * the Y position of the selector.
    */
   private void select() {
-    Page selectedPage = currentMenu.getSelectedPage();
-
-    clearMyScreen();
+    GameState menuState = state.get();
+    Page selectedPage = menuState.getMenu().getSelectedPage(menuState.getSelection());
 
     if (selectedPage.isMap()) {
-      currentMenu = null;
-      currentMapName = selectedPage.getMapName();
-      setPlayerSkin(PLAYER_DEFAULT_SKIN);
-      displayMap(currentMapName);
-      saveCursorPosition();
-      displayPlayer();
-      restoreCursorPosition();
+      synchronized (out) {
+        refreshAssets();
+        playerSkin = assets.getSkin(PLAYER_DEFAULT_SKIN);
+        playerCurrentMatrix = playerSkin.getRaster();
+        int[][] rowIds = new int[GameObject.LEVELS][];
+        for (int level = 0; level < GameObject.LEVELS; level++) {
+          rowIds[level] = RasterRenderer.identifyRows(playerSkin.getRaster(level));
+        }
+        playerRowIds = rowIds;
+        Terrain terrain = assets.getTerrain(selectedPage.getMapName());
+        floorY = getFloorY(terrain, playerCurrentMatrix, PLAYER_X / PIXEL_SIZE);
+        ceilingY = getCeilingY(terrain, playerCurrentMatrix, PLAYER_X / PIXEL_SIZE, floorY);
+        state.updateAndGet(current -> current.startMap(selectedPage.getMapName(), floorY));
+        runStartMillis = System.currentTimeMillis();
+        renderer.setLevel(chooseLevel(selectedPage.getMapName()));
+        GameEvents.MenuTransition transition = GameEvents.ENABLED ? screenChanged(selectedPage.getMapName()) : null;
+        clearMyScreen();
+        displayMap(selectedPage.getMapName());
+        saveCursorPosition();
+        displayPlayer(floorY);
+        renderer.flush(out);
+        restoreCursorPosition();
+        if (transition != null) {
+          transition.commit();
+        }
+      }
       startSpawningObjects();
     } else {
       switch (selectedPage) {
         case NORMAL_MODE:
-          (currentMenu = new UnknownMenu("Mais tu crois j'ai le temps de coder ça!?\r\nJ'ai besoin de dormir aussi ;(\r\nPar contre on a codé le mode Arcade! Allez zou.")).display();
+          openMenu(new UnknownMenu("Mais tu crois j'ai le temps de coder ça!?\r\nJ'ai besoin de dormir aussi ;(\r\nPar contre on a codé le mode Arcade! Allez zou."));
           return;
         case ARCADE_MODE:
-          (currentMenu = new MapSelectionMenu()).display();
+          openMenu(new MapSelectionMenu(assetSource, () -> menuEvents.offer(MenuEvent.REFRESH)));
           return;
         case CHECK_SCREEN:
-          (currentMenu = new ScreenCheckMenu(MINIMAL_GUI_HEIGHT, MINIMAL_GUI_WIDTH, PIXEL_SIZE)).display();
+          // with half blocks, the map takes fewer lines and columns
+          int rows = renderer.getRowsPerLine();
+          openMenu(new ScreenCheckMenu(MINIMAL_GUI_HEIGHT, (MINIMAL_GUI_WIDTH + rows - 1) / rows, renderer.getPixelWidth()));
           return;
         case CREDITS:
-          (currentMenu = new CreditsMenu()).display();
+          openMenu(new CreditsMenu());
           return;
         default:
-          (currentMenu = new UnknownMenu()).display();
+          openMenu(new UnknownMenu());
       }
     }
   }
 
   @Override
   protected void keyTypedInConsole(int keyCode) {
+    GameMenu currentMenu = state.get().getMenu();
     if (currentMenu != null && currentMenu.hasChoices()) {
       switch (keyCode) {
         case TOP_ARROW_KEY:
-          selectMenuUp();
+          menuEvents.offer(MenuEvent.UP);
           return;
         case BOTTOM_ARROW_KEY:
-          selectMenuDown();
+          menuEvents.offer(MenuEvent.DOWN);
           return;
         case ENTER_KEY:
-          select();
+          menuEvents.offer(MenuEvent.SELECT);
           return;
       }
     } else if (currentMenu == null) { // meaing the player is on a map
@@ -319,211 +771,111 @@ public class Game extends Controls {
       }
     }
     if (keyCode == (int)'q') {
-      if (currentMenu instanceof MainMenu) {
-        gameFinished = true; // we stop the main loop by setting this to `true`
-      } else {
-        clearMyScreen();
-        currentMenu = new MainMenu();
-        currentMenu.display();
-      }
+      menuEvents.offer(MenuEvent.QUIT);
     }
   }
 
-  /**
-   * Reads a file containing all the colors and metadata associated with them.
-   * Each color has one metadata called "x".
-   * If "x" is set `true` then it means the user can walk on it.
-   * For obstacles, this variable will be `false`.
-   * 
-   * This function will only get called once at game initialization.
-   */
-  private void initializeColors() {
-    try (BufferedReader reader = new BufferedReader(new FileReader(COLORS_PATH))) {
-      reader.readLine(); // voluntarily ignoring the header
-      String line = "";
-      while ((line = reader.readLine()) != null) {
-        Scanner scanner = new Scanner(line).useDelimiter(",");
-        int x = scanner.nextInt();
-        int r = scanner.nextInt();
-        int g = scanner.nextInt();
-        int b = scanner.nextInt();
-        allColors.add(new Color(Utils.RGBToANSI(new int[]{r,g,b}, true), x == 1));
-        scanner.close();
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+  @Override
+  protected void inputClosed() {
+    state.updateAndGet(GameState::finish); // nobody is playing anymore
   }
 
   /**
-   * Reads all maps contained in `MAPS_DIRECTORY`.
-   * Each CSV file is a unique map, which is a matrix of integers.
+   * Displays a map onto the console, from the current position of the cursor.
+   * @param mapName The name of the map.
    */
-  private void initializeAllMaps() {
-    String[] maps = Utils.getAllFilesFromDirectory(MAPS_DIRECTORY);
-
-    for (String map : maps) {
-      try (BufferedReader reader = new BufferedReader(new FileReader(MAPS_DIRECTORY + "/" + map))) {
-        String mapName = map.substring(0, map.length()-4);
-        allMaps.put(mapName, new Map(mapName, readMatrix(reader)));
-      } catch (Exception ignore) {}
-    }
+  private void displayMap(String mapName) {
+    renderer.drawBackground(assets, assets.getMap(mapName).getRaster(renderer.getLevel())).flush(out);
   }
 
   /**
-   * Reads all obstacles contained in `OBSTACLES_DIRECTORY`.
+   * Finds the level at which a map fits in the terminal (see `RasterRenderer.chooseLevel`).
+   * @param mapName The name of the map.
+   * @return The level, 0 if the size of the terminal is unknown.
    */
-  private void initializeAllObstacles() {
-    String[] obstacles = Utils.getAllFilesFromDirectory(OBSTACLES_DIRECTORY);
-
-    for (String obstacle : obstacles) {
-      try (BufferedReader reader = new BufferedReader(new FileReader(OBSTACLES_DIRECTORY + "/" + obstacle))) {
-        String obstacleName = obstacle.substring(0, obstacle.length()-4);
-        allObstacles.put(obstacleName, new Obstacle(obstacleName, readMatrix(reader)));
-      } catch (Exception ignore) {}
-    }
-  }
-  
-  /**
-   * Reads all the maps' unique config.
-   * A map config contains where, when and how fast its obstacles spawn.
-   */
-  private void initializeAllConfigs() {
-    String[] configs = Utils.getAllFilesFromDirectory(CONFIGS_DIRECTORY);
-
-    for (String config : configs) {
-      String mapName = config.substring(0, config.indexOf("-"));
-      allConfigs.put(mapName, MapSpawnConfig.fromCSV(CONFIGS_DIRECTORY + "/" + config));
-    }
+  private int chooseLevel(String mapName) {
+    int[] size = terminalSize;
+    return size == null ? 0 : renderer.chooseLevel(assets.getMap(mapName).getRaster(), size[0], size[1]);
   }
 
   /**
-   * Reads a matrix of integers (the grid of a colored element on the map).
-   * Useful to get the style of an obstacle, a map and a player skin.
-   * Each integer is the index of a color in the pallet.
-   * 
-   * Note that the header is ignored.
-   * @param reader The reader for the CSV file containing the matrix.
-   * @return 
+   * Draws the map again when the terminal changes size, at the level that fits the new size.
+   * The screen is redrawn even if the level doesn't change, because the terminal may have moved or cut the lines.
+   * The obstacle comes back on its next step. A menu stays as it is: the next map will fit.
    */
-  private ArrayList<ArrayList<Integer>> readMatrix(BufferedReader reader) {
-    ArrayList<ArrayList<Integer>> grid = new ArrayList<>();
-    try {
-      reader.readLine(); // voluntarily ignoring the header
-      String line = "";
-      while ((line = reader.readLine()) != null) {
-        ArrayList<Integer> pixels = new ArrayList<>();
-        Scanner scanner = new Scanner(line).useDelimiter(",");
-        while (scanner.hasNext()) {
-          pixels.add(scanner.nextInt());
-        }
-        grid.add(pixels);
-        scanner.close();
+  @Override
+  protected void terminalResized() {
+    terminalSize = getTerminalSize();
+    synchronized (out) {
+      GameState current = state.get();
+      if (current.getMenu() != null || current.isFinished()) {
+        return;
       }
-    } catch (IOException ignore) {}
-    return grid;
-  }
-
-  /**
-   * Initializes the skin of the player.
-   */
-  private void setPlayerSkin(String skin) {
-    playerCurrentMatrix.clear();
-
-    try (BufferedReader reader = new BufferedReader(new FileReader(skin))) {
-      playerCurrentMatrix = readMatrix(reader);
-    } catch (Exception ignore) { }
+      renderer.setLevel(chooseLevel(current.getMapName()));
+      clearMyScreen();
+      displayMap(current.getMapName());
+      saveCursorPosition();
+      displayPlayer(current.getPlayerY());
+      renderer.flush(out);
+      restoreCursorPosition();
+    }
   }
 
   /**
-   * Displays a map onto the console.
-   * @param map The map and its matrix.
+   * Places the player on the map at the exact player's coordinates.
+   * @param playerY The position of the player on the Y-axis in the map.
    */
-  private void displayMap(String mapName) {
-    ArrayList<ArrayList<Integer>> grid = getMapMatrix(mapName);
-    displayMatrix(grid, false, -1, -1, -1, -1);
+  private void displayPlayer(int playerY) {
+    AssetRegistry assets = this.assets; // the player is drawn with a single version of the assets
+    int level = renderer.getLevel();
+    Raster background = assets.getMap(state.get().getMapName()).getRaster(level);
+    renderer.drawForeground(assets, playerSkin.getRaster(level), background, getPlayerAbsoluteX(), getPlayerAbsoluteY(playerY), PLAYER_X, playerY);
   }
 
   /**
-   * Gets the matrix of a map.
-   * @param index The unique index of this map.
-   * @return The grid (a list of lists of integers where each integer is a color).
+   * Gets the delay between two steps of an obstacle, during which it stays on the same pixel.
+   * @param spawn The obstacle in the config of the map.
+   * @return The delay in milliseconds.
    */
-  private ArrayList<ArrayList<Integer>> getMapMatrix(String mapName) {
-    return allMaps.get(mapName).getMatrix();
+  static long getStepDelay(ObstacleSpawn spawn) {
+    return Math.max(1, (long)(spawn.getSpeed() * 0.15));
   }
 
   /**
-   * Displays a matrix of colors (an image) at either the background or the foreground.
-   * If the image must be drawn on the foreground,
-   * then instead of drawing transparent pixels
-   * that would take the same color as the console,
-   * we paint the corresponding pixel of the background.
-   * 
-   * Choose at what coordinates to start drawing the image.
-   * Use -1 so as not to change the cursor from its current position.
-   * 
-   * <b>Note that a foreground element must be given precise coordinates.</b>
-   * @param matrix The matrix of an obstacle, a map or the player.
-   * @param foreground Is the element on the foreground or the background?
-   * @param cursorX The X-coordinate at which to start drawing the image.
-   * @param cursorY The Y-coordinate at which to start drawing the image.
-   * @param objectX The X-coordinate of the object within the map itself.
-   * @param objectY The Y-coordinate of the object within the map itself.
-   */
-  private void displayMatrix(ArrayList<ArrayList<Integer>> matrix, boolean foreground, int cursorX, int cursorY, int objectX, int objectY) {
-    boolean useCoordinates = cursorX != 1 && cursorY != 1 && objectX != -1 && objectY != -1;
-    if (useCoordinates) {
-      moveCursorTo(cursorX, cursorY);
-    }
-    int mapHeight = matrix.size();
-    int mapWidth = matrix.get(0).size();
-    for (int lig = 0; lig < mapHeight; lig++) {
-      for (int col = 0; col < mapWidth; col++) {
-        int n = matrix.get(lig).get(col);
-        if (n == -1) {
-          if (foreground) {
-            int colorIndexOfBehind = getMapMatrix(currentMapName).get(objectY + lig - PIXEL_SIZE).get(objectX / PIXEL_SIZE + col);
-            if (colorIndexOfBehind == -1) {
-              printTransparentPixel();
-            } else {
-              printPixel(allColors.get(colorIndexOfBehind));
-            }
-          } else {
-            printTransparentPixel();
-          }
-        } else {
-          printPixel(allColors.get(n));
-        }
-      }
-      println(""); // jump a line
-      if (useCoordinates) {
-        moveCursorTo(cursorX, ++cursorY); // replaces the cursor on the same X shift, and one line below the previous one
-      }
-    }
-  }
-
-  /**
-   * Creates a colored pixel.
-   * @param color The color to use for this pixel.
+   * Does an obstacle touch the player, once it reaches the player's column?
+   * @param obstacleY The row of the top of the obstacle.
+   * @param obstacleHeight The height of the obstacle.
+   * @param playerY The row of the player (see `GameState.getPlayerY`).
+   * @param playerHeight The height of the skin of the player.
+   * @return `true` if the player must lose.
    */
-  private void printPixel(Color color) {
-    System.out.print(color.ANSI + PIXEL + ANSI_RESET);
+  static boolean collides(int obstacleY, int obstacleHeight, int playerY, int playerHeight) {
+    boolean isObstacleAbovePlayer = obstacleY + obstacleHeight < playerY;
+    boolean isObstacleBelowPlayer = obstacleY > playerY + playerHeight;
+    return !isObstacleAbovePlayer && !isObstacleBelowPlayer;
   }
 
   /**
-   * Adds an empty space whose background color is the same as the terminal.
-   * The exact color of the console is unknown, but ANSI allows us to use a special character for this.
+   * Gets the position on the Y-axis of the player standing on the terrain of a map.
+   * The floor of the game stays the lowest the player can go: the terrain only adds platforms above it.
+   * @param terrain The terrain of the map.
+   * @param skin The raster of the player.
+   * @param playerColumn The first column of the map covered by the player.
+   * @return The position of the player on the Y-axis in the map.
    */
-  private void printTransparentPixel() {
-    System.out.print(ANSI_BG_DEFAULT_COLOR + PIXEL + ANSI_RESET);
+  static int getFloorY(Terrain terrain, Raster skin, int playerColumn) {
+    int floor = terrain.getFloor(playerColumn, playerColumn + skin.getWidth());
+    return Math.min(MAP_DISTANCE_UNTIL_FLOOR, floor - skin.getHeight() + PIXEL_SIZE);
   }
 
   /**
-   * Places the player on the map at the exact player's coordinates.
+   * Gets the highest position on the Y-axis the player can jump to, before hitting the terrain above it or the top of the map.
+   * @param floorY The position of the player standing on the floor (see `getFloorY`).
+   * @return The position of the player on the Y-axis in the map.
    */
-  private void displayPlayer() {
-    displayMatrix(playerCurrentMatrix, true, getPlayerAbsoluteX(), getPlayerAbsoluteY(), playerX, playerY);
+  static int getCeilingY(Terrain terrain, Raster skin, int playerColumn, int floorY) {
+    int ceiling = terrain.getCeiling(playerColumn, playerColumn + skin.getWidth(), floorY - PIXEL_SIZE);
+    return ceiling + 1 + PIXEL_SIZE;
   }
 
   /**
@@ -531,99 +883,181 @@ public class Game extends Controls {
    * @return The current X coordinate.
    */
   private int getPlayerAbsoluteX() {
-    return playerX + 1;
+    return PLAYER_X + 1;
   }
 
   /**
    * Gets the actual Y coordinate of the player in the screen.
-   * @return The current Y coordinate of the player.
+   * @param playerY The position of the player on the Y-axis in the map.
+   * @return The Y coordinate of the player on the screen.
    */
-  private int getPlayerAbsoluteY() {
+  private int getPlayerAbsoluteY(int playerY) {
     return playerY;
   }
 
   /**
-   * Removes the player from the foreground.
-   * It replaces the pixels by those that should be "behind" the player.
+   * Moves the player up or down on the screen, by only redrawing the rows that change.
+   * @param playerY The current position of the player on the Y-axis in the map.
+   * @param shift The number of rows to move the player by (negative to move it up).
    */
-  private void removePlayerFromScreen() {
-    int absX = getPlayerAbsoluteX();
-    int absY = getPlayerAbsoluteY(); // it will get incremented as we remove the player's pixels line by line
-    removeElementFromForeground(playerCurrentMatrix, absX, absY, playerX, playerY);
-  }
-
-  /**
-   * Removes an element from the foreground.
-   * This way, the element shall not be replaced with transparent pixels,
-   * but rather the pixels that should be "behind" the element itself,
-   * from the current background's matrix.
-   * @param matrix The element's matrix to be removed
-   * @param absX The X position where to place the cursor.
-   * @param absY The Y position where to place the cursor.
-   * @param x The X position of the element in the map.
-   * @param y The Y position of the element in the map.
-   */
-  private void removeElementFromForeground(ArrayList<ArrayList<Integer>> matrix, int absX, int absY, int x, int y) {
-    moveCursorTo(absX, absY);
-    ArrayList<ArrayList<Integer>> background = getMapMatrix(currentMapName);
-    int elementHeight = matrix.size();
-    int elementWidth = matrix.get(0).size();
-    for (int line = 0; line < elementHeight; line++) {
-      for (int col = 0; col < elementWidth; col++) {
-        int colorIndex = background.get(y + line - PIXEL_SIZE).get(x / PIXEL_SIZE + col);
-        if (colorIndex == -1) {
-          printTransparentPixel();
-        } else {
-          printPixel(allColors.get(colorIndex));
-        }
-      }
-      println("");
-      moveCursorTo(absX, ++absY);
-    }
+  private void movePlayerOnScreen(int playerY, int shift) {
+    AssetRegistry assets = this.assets; // the player is moved with a single version of the assets
+    int level = renderer.getLevel();
+    Raster background = assets.getMap(state.get().getMapName()).getRaster(level);
+    renderer.moveForeground(assets, playerSkin.getRaster(level), playerRowIds[level], background, getPlayerAbsoluteX(), getPlayerAbsoluteY(playerY), PLAYER_X, playerY, shift);
   }
 
   /**
    * Makes the player jump.
-   * @param step
+   * It's only called by the keyboard thread.
    */
   private void jump() {
-    if (!canJump) {
-      return;
-    }
-    canJump = false;
+    int jumpId = ++lastJumpId;
+    GameState current;
+    do {
+      current = state.get();
+      if (current.getMenu() != null || !current.canJump()) {
+        return;
+      }
+    } while (!state.compareAndSet(current, current.startJump(jumpId)));
     /**
      * So as not to interrupt the normal game execution when jumping,
-     * we execute the code responsible of making the player jump in another thread.
+     * the jump is executed step by step by the scheduler.
      * This way, we can do other actions while jumping (like quitting the game or moving the obstacles).
      */
-    jumpThread = new Thread() {
-      public void run() {
-        saveCursorPosition();
-        try {
-          // going up
-          for (int i = 0; i < JUMP_HEIGHT; i++) {
-            removePlayerFromScreen();
-            playerY -= 1;
-            displayPlayer();
-            Thread.sleep(JUMP_DELAY_BETWEEN_EACH_FRAME);
-          }
-          // going down
-          for (int i = 0; i < JUMP_HEIGHT; i++) {
-            removePlayerFromScreen();
-            playerY += 1;
-            displayPlayer();
-            Thread.sleep(JUMP_DELAY_BETWEEN_EACH_FRAME);
+    new JumpMovement(jumpId, current.getRound()).start();
+  }
+
+  /**
+   * The jump of the player, up to `JUMP_HEIGHT` rows (or the terrain above it) and back to the floor, following the arc of `JumpPhysics`.
+   * Each execution is one frame of the jump: the player is moved to where the simulation is at this time,
+   * so a late frame catches up instead of slowing the jump down.
+   * The jump stops by itself if the round is over.
+   */
+  private class JumpMovement extends Movement {
+    private final int jumpId;
+    private final int round;
+    private final JumpPhysics physics = new JumpPhysics(JUMP_HEIGHT, JUMP_APEX_MILLIS);
+    private long startNanos;
+
+    JumpMovement(int jumpId, int round) {
+      super("jump", JUMP_DELAY_BETWEEN_EACH_FRAME);
+      this.jumpId = jumpId;
+      this.round = round;
+    }
+
+    @Override
+    void start() {
+      physics.start();
+      startNanos = System.nanoTime();
+      super.start();
+    }
+
+    @Override
+    void step() {
+      boolean jumping = physics.advanceTo(System.nanoTime() - startNanos);
+      int playerY = Math.max(ceilingY, floorY - physics.getHeight()); // the head of the player stops under the terrain
+      while (true) {
+        GameState current = state.get();
+        if (current.getJumpId() != jumpId || !current.isPlaying(round)) {
+          stop();
+          return;
+        }
+        int shift = playerY - current.getPlayerY();
+        if (jumping && shift == 0) {
+          return; // still on the same row
+        }
+        // The new state is the only allocation of a frame. It's published like `publish()` does, without a lambda.
+        GameState next = jumping ? current.movePlayer(shift) : current.endJump(floorY);
+        synchronized (out) {
+          if (state.compareAndSet(current, next)) {
+            if (shift != 0) {
+              movePlayerOnScreen(current.getPlayerY(), shift);
+              renderer.flush(out);
+            }
+            break;
           }
-          canJump = true;
-          restoreCursorPosition();
-        } catch (InterruptedException ignore) { }
+        }
+      }
+      if (!jumping) {
+        stop();
       }
-    };
-    jumpThread.start();
+    }
   }
 
-  public static void main(String[] args) {
-    Game game = new Game();
-    game.start(); 
+  /**
+   * Usage: `java main.java.Game [--hot-reload] [--off-heap-maps] [--scores] [--snapshot] [--half-blocks] [--spectators] [--spectator-tty=<path>] [--record[=<path>]] [--jfr]`
+   * With `--hot-reload`, the assets are reloaded as soon as their files change.
+   * With `--off-heap-maps`, the pixels of the maps are stored outside of the Java heap.
+   * With `--scores`, the results of the runs are saved in `scores.log` and the best ones are displayed.
+   * With `--snapshot`, the assets are restored from `assets.snapshot` when they haven't changed since the last launch.
+   * With `--half-blocks`, each character of the map shows two pixels on top of each other.
+   * With `--spectators`, other terminals can watch the game by connecting to the port 4243 (see `SpectatorBroadcast`).
+   * With `--spectator-tty=<path>`, the game is also shown on another terminal (`/dev/pts/3` for example). It can be repeated.
+   * With `--record`, the game is recorded in `session.cast` (or in the given file), to replay with `asciinema play`.
+   * With `--jfr`, the events of the game are recorded in `game.jfr` for Java Flight Recorder (see `GameEvents`).
+   */
+  public static void main(String[] args) throws IOException {
+    boolean hotReload = false;
+    boolean saveScores = false;
+    boolean spectators = false;
+    List<Path> spectatorTerminals = new ArrayList<>();
+    Path recording = null;
+    for (String arg : args) {
+      if (arg.equals("--hot-reload")) {
+        hotReload = true;
+      } else if (arg.equals("--off-heap-maps")) {
+        System.setProperty(AssetRegistry.OFF_HEAP_MAPS_PROPERTY, "true");
+      } else if (arg.equals("--scores")) {
+        saveScores = true;
+      } else if (arg.equals("--snapshot")) {
+        System.setProperty(AssetSnapshot.SNAPSHOT_PROPERTY, AssetSnapshot.DEFAULT_PATH);
+      } else if (arg.equals("--half-blocks")) {
+        System.setProperty(RasterRenderer.HALF_BLOCKS_PROPERTY, "true");
+      } else if (arg.equals("--spectators")) {
+        spectators = true;
+      } else if (arg.startsWith("--spectator-tty=")) {
+        spectatorTerminals.add(Path.of(arg.substring("--spectator-tty=".length())));
+      } else if (arg.equals("--jfr")) {
+        System.setProperty(GameEvents.JFR_PROPERTY, "true");
+      } else if (arg.equals("--record")) {
+        recording = Path.of(SessionRecorder.DEFAULT_PATH);
+      } else if (arg.startsWith("--record=")) {
+        recording = Path.of(arg.substring("--record=".length()));
+      }
+    }
+    if (GameEvents.ENABLED) {
+      GameEvents.startRecording(Path.of(GameEvents.DEFAULT_RECORDING_PATH));
+    }
+    // the assets of an up-to-date snapshot were already checked when it was made
+    if (!AssetSnapshot.isDefaultUpToDate() && !AssetValidator.check(System.out)) {
+      System.exit(1);
+    }
+    Supplier<AssetRegistry> assetSource = hotReload ? new AssetWatcher(AssetRegistry.getDefault(), null) : AssetRegistry::getDefault;
+    ScoreStore scores = saveScores ? new ScoreStore(Path.of(ScoreStore.DEFAULT_PATH)) : null;
+    OutputStream screen = System.out;
+    if (spectators || !spectatorTerminals.isEmpty()) {
+      SpectatorBroadcast broadcast = new SpectatorBroadcast(screen, FrameTap.SCREEN_COLUMNS, FrameTap.SCREEN_ROWS);
+      if (spectators) {
+        broadcast.listen(SpectatorBroadcast.DEFAULT_PORT);
+      }
+      for (Path terminal : spectatorTerminals) {
+        broadcast.addViewer(FileChannel.open(terminal, StandardOpenOption.WRITE));
+      }
+      screen = broadcast;
+    }
+    SessionRecorder recorder = recording == null ? null : new SessionRecorder(screen, recording, FrameTap.SCREEN_COLUMNS, FrameTap.SCREEN_ROWS);
+    PrintStream out = screen == System.out && recorder == null ? System.out
+      : new PrintStream(recorder == null ? screen : recorder, true, StandardCharsets.UTF_8);
+    try {
+      new Game(out, assetSource, scores).start();
+    } finally {
+      if (recorder != null) {
+        recorder.close();
+      }
+      if (scores != null) {
+        scores.close();
+      }
+    }
   }
 }
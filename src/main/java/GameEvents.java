@@ -0,0 +1,236 @@
+package main.java;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+/**
+ * The events the game gives to Java Flight Recorder (JFR), to see which thread is slow and why:
+ * the steps of the movements, the frames written to the terminal, the obstacles, the collisions, the assets and the menus.
+ * Each event also gives the thread on which it happened.
+ *
+ * They're only created with the option `--jfr` (or `-Dgame.jfr=true`). Otherwise `ENABLED` is false,
+ * and since it's a constant, the JIT removes the code creating them: the game runs as if they didn't exist.
+ * The option `--jfr` also starts a recording saved in `game.jfr` when the game stops, to open with `jfr print` or JDK Mission Control.
+ * With `-Dgame.jfr=true` alone, the events go to the recordings started by `-XX:StartFlightRecording` or `jcmd`.
+ */
+public final class GameEvents {
+  public static final String JFR_PROPERTY = "game.jfr";
+  public static final String DEFAULT_RECORDING_PATH = "game.jfr";
+
+  /**
+   * Are the events created? It's read once, when the class is loaded.
+   */
+  public static final boolean ENABLED = Boolean.getBoolean(JFR_PROPERTY);
+
+  private static final String CATEGORY = "Game";
+
+  private GameEvents() {}
+
+  @Name("game.Tick")
+  @Label("Tick")
+  @Category(CATEGORY)
+  @Description("One step of a movement: an obstacle moving one pixel, or a frame of the jump")
+  public static final class Tick extends Event {
+    @Label("Movement")
+    String movement;
+  }
+
+  @Name("game.FrameFlush")
+  @Label("Frame Flush")
+  @Category(CATEGORY)
+  @Description("A frame written to the terminal, with the time the terminal took to take it")
+  public static final class FrameFlush extends Event {
+    @Label("Size")
+    @DataAmount
+    int bytes;
+  }
+
+  @Name("game.ObstacleSpawn")
+  @Label("Obstacle Spawn")
+  @Category(CATEGORY)
+  @Description("An obstacle of the config of the map starts moving")
+  public static final class ObstacleSpawn extends Event {
+    @Label("Map")
+    String map;
+    @Label("Obstacle")
+    String obstacle;
+    @Label("Index in the config")
+    int spawnIndex;
+    @Label("Speed")
+    int speed;
+    @Label("Y")
+    int y;
+  }
+
+  @Name("game.ObstacleDespawn")
+  @Label("Obstacle Despawn")
+  @Category(CATEGORY)
+  @Description("An obstacle stops moving: it reached the left of the map, or the round is over")
+  public static final class ObstacleDespawn extends Event {
+    @Label("Map")
+    String map;
+    @Label("Obstacle")
+    String obstacle;
+    @Label("Index in the config")
+    int spawnIndex;
+    @Label("Round Over")
+    boolean roundOver;
+  }
+
+  @Name("game.CollisionCheck")
+  @Label("Collision Check")
+  @Category(CATEGORY)
+  @Description("An obstacle reached the player, who loses if they collide")
+  public static final class CollisionCheck extends Event {
+    @Label("Map")
+    String map;
+    @Label("Index in the config")
+    int spawnIndex;
+    @Label("Obstacle Y")
+    int obstacleY;
+    @Label("Player Y")
+    int playerY;
+    @Label("Collided")
+    boolean collided;
+  }
+
+  @Name("game.AssetLoad")
+  @Label("Asset Load")
+  @Category(CATEGORY)
+  @Description("An asset file read and parsed")
+  public static final class AssetLoad extends Event {
+    @Label("Kind")
+    String kind;
+    @Label("Path")
+    String path;
+  }
+
+  @Name("game.MenuTransition")
+  @Label("Menu Transition")
+  @Category(CATEGORY)
+  @Description("The screen changes from a menu or a map to another one, with the time it took to draw it")
+  public static final class MenuTransition extends Event {
+    @Label("From")
+    String from;
+    @Label("To")
+    String to;
+  }
+
+  /**
+   * Starts timing a step. Call `commit()` on the event once the step is done.
+   * @param movement What is moving ("obstacle" or "jump").
+   */
+  public static Tick beginTick(String movement) {
+    Tick event = new Tick();
+    event.movement = movement;
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Starts timing the write of a frame. Call `commit()` on the event once it's written.
+   * @param bytes The size of the frame.
+   */
+  public static FrameFlush beginFrameFlush(int bytes) {
+    FrameFlush event = new FrameFlush();
+    event.bytes = bytes;
+    event.begin();
+    return event;
+  }
+
+  public static void obstacleSpawned(String map, String obstacle, int spawnIndex, int speed, int y) {
+    ObstacleSpawn event = new ObstacleSpawn();
+    if (event.shouldCommit()) {
+      event.map = map;
+      event.obstacle = obstacle;
+      event.spawnIndex = spawnIndex;
+      event.speed = speed;
+      event.y = y;
+      event.commit();
+    }
+  }
+
+  public static void obstacleDespawned(String map, String obstacle, int spawnIndex, boolean roundOver) {
+    ObstacleDespawn event = new ObstacleDespawn();
+    if (event.shouldCommit()) {
+      event.map = map;
+      event.obstacle = obstacle;
+      event.spawnIndex = spawnIndex;
+      event.roundOver = roundOver;
+      event.commit();
+    }
+  }
+
+  public static void collisionChecked(String map, int spawnIndex, int obstacleY, int playerY, boolean collided) {
+    CollisionCheck event = new CollisionCheck();
+    if (event.shouldCommit()) {
+      event.map = map;
+      event.spawnIndex = spawnIndex;
+      event.obstacleY = obstacleY;
+      event.playerY = playerY;
+      event.collided = collided;
+      event.commit();
+    }
+  }
+
+  /**
+   * Starts timing the load of an asset. Call `commit()` on the event once it's loaded.
+   * @param kind The kind of asset ("colors", "map", "obstacle", "skin" or "config").
+   * @param path The file of the asset.
+   */
+  public static AssetLoad beginAssetLoad(String kind, String path) {
+    AssetLoad event = new AssetLoad();
+    event.kind = kind;
+    event.path = path;
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Starts timing a change of screen. Call `commit()` on the event once the new screen is drawn.
+   * @param from The menu (its class) or the map shown before.
+   * @param to The menu or the map shown now.
+   */
+  public static MenuTransition beginMenuTransition(String from, String to) {
+    MenuTransition event = new MenuTransition();
+    event.from = from;
+    event.to = to;
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Starts recording the events of the game, along with the usual events of the JVM (the default settings of JFR).
+   * The stack traces of the events of each frame aren't recorded.
+   * The recording is saved when the JVM stops.
+   * @param destination Where to save the recording.
+   * @return The recording.
+   * @throws IOException If the settings can't be read or the destination can't be written.
+   */
+  public static Recording startRecording(Path destination) throws IOException {
+    try {
+      Recording recording = new Recording(Configuration.getConfiguration("default"));
+      recording.setName("game");
+      // the events of each frame are too frequent for their stack traces to be worth it
+      recording.enable(Tick.class).withoutStackTrace();
+      recording.enable(FrameFlush.class).withoutStackTrace();
+      recording.enable(CollisionCheck.class).withoutStackTrace();
+      recording.setDestination(destination);
+      recording.setDumpOnExit(true);
+      recording.start();
+      return recording;
+    } catch (ParseException e) {
+      throw new IOException("The default settings of JFR can't be read", e);
+    }
+  }
+}
@@ -1,6 +1,11 @@
 package main.java;
 
-import java.util.ArrayList;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Creates an abstract menu where options are displayed like this:
@@ -17,15 +22,24 @@ public abstract class GameMenu {
 	public static final int LEFT_MARGIN = 76;
 	public static final int LEFT_X = LEFT_MARGIN - 1;
 
-	public static int min_selector_y = -1;
-	public static int max_selector_y = 100;
-	public static int current_selector_y = 0;
+	/**
+	 * The menus never change, so each of them is drawn only once, into a buffer.
+	 * The next time it's displayed (by any game session), the buffer is written as is.
+	 * The key is given by `getCacheKey()`.
+	 */
+	private static final ConcurrentHashMap<String, byte[]> FRAMES = new ConcurrentHashMap<>();
 
 	/**
 	 * The possible choices that the user can select in this menu.
 	 */
 	protected Page[] choices;
 
+	/**
+	 * Where the menu is drawn.
+	 * By default it's the standard output, but each game session gives its own.
+	 */
+	protected PrintStream out = System.out;
+
 	public GameMenu(Page[] choices) {
 		this.choices = choices;
 	}
@@ -36,21 +50,74 @@ public abstract class GameMenu {
 
 	/**
 	 * Creates what the user is going to see.
+	 * It's only called the first time the menu is displayed, see `show()`.
 	 */
 	protected abstract void display();
 
+	/**
+	 * Creates the part of the menu that changes each time it's shown (the scores of the last run, for example).
+	 * It's drawn after the cached part, in the same write. It draws nothing by default.
+	 */
+	protected void displayChangingPart() {}
+
+	/**
+	 * Gets the key of this menu in the cache of the drawn menus.
+	 * Two menus with the same key must look exactly the same.
+	 * @return The key, or `null` if this menu must be drawn each time.
+	 */
+	protected String getCacheKey() {
+		return getClass().getName();
+	}
+
+	/**
+	 * Clears the screen and displays the menu, in a single write.
+	 * The menu is drawn the first time only, then the same buffer is reused.
+	 * @param out The output of the game session displaying this menu.
+	 */
+	protected void show(PrintStream out) {
+		this.out = out;
+		String key = getCacheKey();
+		byte[] frame = key == null ? render(true) : FRAMES.computeIfAbsent(key, k -> render(true));
+		byte[] changingPart = render(false);
+		if (changingPart.length > 0) {
+			int cachedLength = frame.length;
+			frame = Arrays.copyOf(frame, cachedLength + changingPart.length);
+			System.arraycopy(changingPart, 0, frame, cachedLength, changingPart.length);
+		}
+		out.write(frame, 0, frame.length);
+		out.flush();
+	}
+
+	/**
+	 * Draws a part of the menu into a buffer.
+	 * @param cachedPart `true` for the whole menu but its changing part, preceded by the sequence clearing the screen,
+	 * `false` for its changing part only (see `displayChangingPart`).
+	 * @return The bytes to send to the terminal.
+	 */
+	private byte[] render(boolean cachedPart) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream target = out;
+		out = new PrintStream(buffer, false, StandardCharsets.UTF_8);
+		if (cachedPart) {
+			out.print(Controls.CLEAR_SCREEN);
+			display();
+		} else {
+			displayChangingPart();
+		}
+		out.flush();
+		out = target;
+		return buffer.toByteArray();
+	}
+
 	/**
 	 * Since some pages look the same, we'll consider this as a template.
 	 */
 	protected void useDefaultTemplate() {
-		int logo_height = drawMainLogo();
+		drawMainLogo();
 		drawSpace(8);
 		createChoices();
 		drawSpace(8);
 		displayQuitMessage();
-		min_selector_y = logo_height + 8 + 2; // it's because we clear the screen sometimes, the console starts with two lines.
-		max_selector_y = logo_height + 8 + 1 + choices.length;
-		current_selector_y = min_selector_y;
 	}
 
 	/**
@@ -63,28 +130,65 @@ public abstract class GameMenu {
 	}
 
 	/**
-	 * Can the user select something above the current position?
-	 * @return True if there is an option above the current one.
+	 * Is there a choice at this index?
+	 * The menu doesn't know which choice is selected: each game session keeps its own selection (see `GameState`).
+	 * @param index The index of a choice.
+	 * @return `true` if the selector can be placed on this choice.
 	 */
-	protected static boolean canGoUp() {
-		return current_selector_y != min_selector_y;
+	protected boolean canSelect(int index) {
+		return index >= 0 && index < choices.length;
 	}
 
 	/**
-	 * Can the user select something below the current position?
-	 * @return True if there is an option below the current one.
+	 * Gets the position of a choice on the Y-axis of the screen.
+	 * @param index The index of the choice.
+	 * @return The Y-coordinate of the selector when this choice is selected.
 	 */
-	protected static boolean canGoDown() {
-		return current_selector_y != max_selector_y;
+	protected int getSelectorY(int index) {
+		int logo_height = getLogo().size() + 2; // with the lines of equals
+		return logo_height + 8 + 2 + index; // it's because we clear the screen sometimes, the console starts with two lines.
 	}
 
 	/**
-	 * Gets the selected choice (so the one at the current selector Y-position).
-	 * The difference between the current Y position and the minimal value gives the index in `choices`.
+	 * Moves the selector from a choice to another.
+	 * Only the two cells of the selector are repainted, in a single write.
+	 * @param out The output of the game session displaying this menu.
+	 * @param from The index of the previously selected choice.
+	 * @param to The index of the newly selected choice.
+	 */
+	protected void drawSelectorMove(PrintStream out, int from, int to) {
+		out.print(getSelectorMove(from, to));
+		out.flush();
+	}
+
+	/**
+	 * Gets the sequence repainting the two cells of the selector, without moving the cursor.
+	 * @param from The index of the previously selected choice.
+	 * @param to The index of the newly selected choice.
+	 * @return The text to send to the terminal.
+	 */
+	protected String getSelectorMove(int from, int to) {
+		return "\033[s"
+			+ "\033[" + getSelectorY(from) + ";" + LEFT_X + "H "
+			+ "\033[" + getSelectorY(to) + ";" + LEFT_X + "H>"
+			+ "\033[u";
+	}
+
+	/**
+	 * Redraws what changed in the menu since it was shown, for example something prepared in the background.
+	 * It does nothing by default.
+	 * @param out The output of the game session displaying this menu.
+	 * @param selection The index of the selected choice.
+	 */
+	protected void refresh(PrintStream out, int selection) {}
+
+	/**
+	 * Gets the choice at the given index.
+	 * @param index The index of the selected choice.
 	 * @return The selected page.
 	 */
-	protected Page getSelectedPage() {
-		return choices[current_selector_y - min_selector_y];
+	protected Page getSelectedPage(int index) {
+		return choices[index];
 	}
 
 	/**
@@ -92,8 +196,8 @@ public abstract class GameMenu {
 	 * 
 	 * @return An array containing all lines of the logo.
 	 */
-	protected ArrayList<String> getLogo() {
-		return TextReader.getContent(LOGO_PATH);
+	protected List<String> getLogo() {
+		return TextReader.getCachedContent(LOGO_PATH);
 	}
 
 	/**
@@ -103,9 +207,9 @@ public abstract class GameMenu {
 	 */
 	protected int drawMainLogo() {
 		drawEqualsRow(155);
-		ArrayList<String> logo = getLogo();
+		List<String> logo = getLogo();
 		for (String line : logo) {
-			Controls.println(line);
+			println(line);
 		}
 		drawEqualsRow(155);
 		return logo.size() + 2;
@@ -115,9 +219,9 @@ public abstract class GameMenu {
 	 * Creates the selectable choices of the menu.
 	 */
 	protected void createChoices() {
-		Controls.println(" ".repeat(LEFT_MARGIN - ARROW.length()) + ARROW + choices[0].getText());
+		println(" ".repeat(LEFT_MARGIN - ARROW.length()) + ARROW + choices[0].getText());
 		for (int i = 1; i < choices.length; i++) {
-			Controls.println(" ".repeat(LEFT_MARGIN) + choices[i].getText());
+			println(" ".repeat(LEFT_MARGIN) + choices[i].getText());
 		}
 	}
 
@@ -126,7 +230,7 @@ public abstract class GameMenu {
 	 * @param length The number of equals to be printed.
 	 */
 	protected void drawEqualsRow(int length) {
-		Controls.println("=".repeat(length));
+		println("=".repeat(length));
 	}
 
 	/**
@@ -135,7 +239,7 @@ public abstract class GameMenu {
 	 */
 	protected void drawSpace(int height) {
 		for (int i = 0; i < height; i++) {
-			Controls.println("");
+			println("");
 		}
 	}
 
@@ -153,13 +257,38 @@ public abstract class GameMenu {
 	 * @param width The half-width of the UI.
 	 */
 	protected void printCenteredText(String text, int width) {
-		Controls.println(" ".repeat(width - text.length() / 2) + text);
+		println(" ".repeat(width - text.length() / 2) + text);
+	}
+
+	/**
+	 * Displays the result of the run that just ended, followed by the best runs of its map.
+	 * @param result The result of the run.
+	 * @param best The best runs of the map, the best first.
+	 * @param width The half-width of the UI.
+	 */
+	protected void displayScores(RunResult result, List<RunResult> best, int width) {
+		printCenteredText("Ton score : " + result, width);
+		drawSpace(1);
+		printCenteredText("Meilleurs scores", width);
+		for (int i = 0; i < best.size(); i++) {
+			RunResult score = best.get(i);
+			printCenteredText((i + 1) + ". " + score + (score.equals(result) ? " <" : ""), width);
+		}
 	}
 
 	/**
 	 * Displays a line to explain how to quit.
 	 */
 	protected void displayQuitMessage() {
-		Controls.println("Appuie sur 'q' pour quitter.");
+		println("Appuie sur 'q' pour quitter.");
+	}
+
+	/**
+	 * Prints a line onto the output of the menu.
+	 * Like `Controls.println`, it needs the carriage return because of the raw mode.
+	 * @param content The content to be printed.
+	 */
+	protected void println(String content) {
+		out.print("\r" + content + "\r\n");
 	}
 }
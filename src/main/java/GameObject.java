@@ -2,32 +2,84 @@ package main.java;
 
 import java.util.ArrayList;
 
+/**
+ * An element of the game made of colored pixels (a map, an obstacle or a skin).
+ * Once created, it's never modified, so it can be shared by several games.
+ */
 public abstract class GameObject {
+  /**
+   * The number of sizes of each object: the raster itself, then its halves.
+   */
+  public static final int LEVELS = 3;
+
   /**
    * The unique name of the map.
    */
-  protected String name;
+  protected final String name;
 
   /**
-   * The matrix of the map (each cell is the index of a color in the pallet)
+   * The pixels of the object (each cell is the index of a color in the pallet), stored as runs of the same color.
    */
-  protected ArrayList<ArrayList<Integer>> matrix;
+  protected final Raster raster;
+
+  /**
+   * The raster, then smaller and smaller versions of it, each one half the size of the previous one (see `getRaster(int)`).
+   * They're made once, with the object, so that the game can switch to another size without waiting,
+   * and they're stored like the raster itself (off-heap for an `OffHeapRaster`).
+   */
+  private final Raster[] levels;
 
   public GameObject(String name, ArrayList<ArrayList<Integer>> matrix) {
+    this(name, RunLengthRaster.fromMatrix(matrix));
+  }
+
+  protected GameObject(String name, Raster raster) {
+    this(name, halve(raster));
+  }
+
+  /**
+   * Creates an object whose smaller versions were already made (restored from a snapshot, see `AssetSnapshot`).
+   * @param name The unique name of the object.
+   * @param levels The raster, then its halves, as `getRaster(int)` gives them.
+   */
+  protected GameObject(String name, Raster[] levels) {
+    if (levels.length != LEVELS) {
+      throw new IllegalArgumentException(levels.length + " levels instead of " + LEVELS);
+    }
     this.name = name;
-    this.matrix = matrix;
+    this.raster = levels[0];
+    this.levels = levels.clone();
   }
 
   /**
-   * Gets the current matrix's dimensions in an array: `[width, height]`.
-   * @return The dimensions of the matrix.
+   * Makes the smaller versions of a raster, stored like the raster itself.
+   * @return The raster, then its halves.
    */
-  public int[] getMatrixDimensions() {
-    int mapHeight = matrix.size();
-    int mapWidth = matrix.get(0).size();
-    return new int[]{ mapWidth, mapHeight };
+  private static Raster[] halve(Raster raster) {
+    Raster[] levels = new Raster[LEVELS];
+    levels[0] = raster;
+    for (int level = 1; level < LEVELS; level++) {
+      levels[level] = raster instanceof OffHeapRaster
+        ? OffHeapRaster.halve(levels[level - 1])
+        : RunLengthRaster.halve(levels[level - 1]);
+    }
+    return levels;
   }
 
   public String getName() { return this.name; }
-  public ArrayList<ArrayList<Integer>> getMatrix() { return this.matrix; }
+  public Raster getRaster() { return this.raster; }
+
+  /**
+   * Gets a smaller version of the raster, for a terminal too small for the whole game.
+   * @param level 0 for the raster itself, 1 for half its size, 2 for a quarter... up to `LEVELS - 1`.
+   * @return The raster at this level.
+   */
+  public Raster getRaster(int level) { return levels[level]; }
+
+  /**
+   * Gets the matrix of the object.
+   * It's decompressed from the raster on each call, so prefer `getRaster()` when drawing.
+   * @return A copy of the matrix.
+   */
+  public ArrayList<ArrayList<Integer>> getMatrix() { return raster.toMatrix(); }
 }
@@ -1,22 +1,59 @@
 package main.java;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class GameOverMenu extends GameMenu {
   private static final String GAME_OVER_PATH = "assets/menu/game_over.txt";
 
+  private final RunResult result;
+  private final List<RunResult> best;
+
+  public GameOverMenu() {
+    this(null, Collections.emptyList());
+  }
+
+  /**
+   * @param result The result of the run that just ended, or `null` if the scores aren't saved.
+   * @param best The best runs of the map, the best first.
+   */
+  public GameOverMenu(RunResult result, List<RunResult> best) {
+    this.result = result;
+    this.best = best;
+  }
+
+  /**
+   * Draws the logo and the message, the same for all the runs: they're cached (see `GameMenu.show`).
+   */
   @Override
   protected void display() {
     drawSpace(5);
-    ArrayList<String> victoryLogoLines = TextReader.getContent(GAME_OVER_PATH);
-    int width = victoryLogoLines.get(0).length() / 2;
-    for (String line : victoryLogoLines) {
-      Controls.println(line);
+    for (String line : getLogoLines()) {
+      println(line);
     }
     drawSpace(5);
-    printCenteredText("C'est dommage...", width);
-    printCenteredText("Tu dois tout recommencer !", width);
+    printCenteredText("C'est dommage...", getWidth());
+    printCenteredText("Tu dois tout recommencer !", getWidth());
     drawSpace(5);
+  }
+
+  /**
+   * Draws the scores of this run, below the cached part.
+   */
+  @Override
+  protected void displayChangingPart() {
+    if (result != null) {
+      displayScores(result, best, getWidth());
+      drawSpace(2);
+    }
     displayQuitMessage();
   }
+
+  private List<String> getLogoLines() {
+    return TextReader.getCachedContent(GAME_OVER_PATH);
+  }
+
+  private int getWidth() {
+    return getLogoLines().get(0).length() / 2;
+  }
 }
@@ -0,0 +1,162 @@
+package main.java;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hosts many independent game sessions in a single JVM.
+ * Each client connecting to the local socket gets its own game.
+ * 
+ * The movements of all the sessions are executed by a small scheduler shared by everyone,
+ * so a session only needs one thread waiting for the end of its game and one thread reading its keys.
+ * 
+ * The client is responsible for sending the keys as they are pressed, for example:
+ * 
+ * ```
+ * socat -,raw,echo=0 TCP:localhost:4242
+ * ```
+ */
+public class GameServer {
+  private static final int DEFAULT_PORT = 4242;
+
+  /**
+   * The maximum number of pending connections that haven't been accepted yet.
+   */
+  private static final int BACKLOG = 256;
+
+  private final int port;
+
+  /**
+   * Runs the movements (obstacles and jumps) of all the sessions.
+   */
+  private final ScheduledExecutorService ticks;
+
+  /**
+   * Runs each session until its player leaves.
+   */
+  private final ExecutorService sessions = Executors.newCachedThreadPool();
+
+  private final AtomicInteger activeSessions = new AtomicInteger();
+
+  /**
+   * The assets, loaded once and shared by all the sessions.
+   * It gives the latest version of the assets if they are reloaded while the server is running.
+   */
+  private final Supplier<AssetRegistry> assets;
+
+  /**
+   * Where the results of the runs of all the sessions are saved, or `null` if they aren't.
+   */
+  private final ScoreStore scores;
+
+  /**
+   * @param port The local port on which the players connect.
+   * @param tickThreads The number of threads shared by all the sessions to execute the movements.
+   * @param assets Where to get the assets shared by all the sessions.
+   */
+  public GameServer(int port, int tickThreads, Supplier<AssetRegistry> assets) {
+    this(port, tickThreads, assets, null);
+  }
+
+  /**
+   * @param port The local port on which the players connect.
+   * @param tickThreads The number of threads shared by all the sessions to execute the movements.
+   * @param assets Where to get the assets shared by all the sessions.
+   * @param scores Where to save the results of the runs, or `null` to not save them.
+   */
+  public GameServer(int port, int tickThreads, Supplier<AssetRegistry> assets, ScoreStore scores) {
+    this.port = port;
+    this.assets = assets;
+    this.scores = scores;
+    this.ticks = Executors.newScheduledThreadPool(tickThreads);
+  }
+
+  /**
+   * Accepts the players forever.
+   * Only local connections are possible.
+   * @throws IOException If the port can't be opened.
+   */
+  public void serve() throws IOException {
+    try (ServerSocket server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress())) {
+      System.out.println("Serveur lancé sur le port " + port);
+      while (true) {
+        Socket socket = server.accept();
+        sessions.execute(() -> runSession(socket));
+      }
+    }
+  }
+
+  /**
+   * Plays a game with the client of the given socket.
+   * It blocks until the player leaves the game or disconnects.
+   * @param socket The connection of the player.
+   */
+  private void runSession(Socket socket) {
+    int active = activeSessions.incrementAndGet();
+    System.out.println("Nouvelle session (" + active + " en cours)");
+    try (socket) {
+      socket.setTcpNoDelay(true);
+      PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), true, StandardCharsets.UTF_8);
+      new Game(socket.getInputStream(), out, ticks, assets, scores).start();
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      active = activeSessions.decrementAndGet();
+      System.out.println("Fin d'une session (" + active + " en cours)");
+    }
+  }
+
+  /**
+   * Usage: `java main.java.GameServer [port] [--hot-reload] [--off-heap-maps] [--scores] [--snapshot] [--half-blocks] [--jfr]`
+   * With `--hot-reload`, the assets are reloaded as soon as their files change.
+   * With `--off-heap-maps`, the pixels of the maps are stored outside of the Java heap.
+   * With `--scores`, the results of the runs are saved in `scores.log` and the best ones are displayed.
+   * With `--snapshot`, the assets are restored from `assets.snapshot` when they haven't changed since the last launch.
+   * With `--half-blocks`, each character of the map shows two pixels on top of each other, for every player.
+   * With `--jfr`, the events of all the sessions are recorded in `game.jfr` for Java Flight Recorder (see `GameEvents`).
+   */
+  public static void main(String[] args) throws IOException {
+    int port = DEFAULT_PORT;
+    boolean hotReload = false;
+    boolean saveScores = false;
+    for (String arg : args) {
+      if (arg.equals("--hot-reload")) {
+        hotReload = true;
+      } else if (arg.equals("--off-heap-maps")) {
+        System.setProperty(AssetRegistry.OFF_HEAP_MAPS_PROPERTY, "true");
+      } else if (arg.equals("--scores")) {
+        saveScores = true;
+      } else if (arg.equals("--snapshot")) {
+        System.setProperty(AssetSnapshot.SNAPSHOT_PROPERTY, AssetSnapshot.DEFAULT_PATH);
+      } else if (arg.equals("--half-blocks")) {
+        System.setProperty(RasterRenderer.HALF_BLOCKS_PROPERTY, "true");
+      } else if (arg.equals("--jfr")) {
+        System.setProperty(GameEvents.JFR_PROPERTY, "true");
+      } else {
+        port = Integer.parseInt(arg);
+      }
+    }
+    if (GameEvents.ENABLED) {
+      GameEvents.startRecording(Path.of(GameEvents.DEFAULT_RECORDING_PATH));
+    }
+    // the assets of an up-to-date snapshot were already checked when it was made
+    if (!AssetSnapshot.isDefaultUpToDate() && !AssetValidator.check(System.out)) {
+      System.exit(1);
+    }
+    AssetRegistry registry = AssetRegistry.getDefault();
+    Supplier<AssetRegistry> assets = hotReload ? new AssetWatcher(registry, System.out) : () -> registry;
+    ScoreStore scores = saveScores ? new ScoreStore(Path.of(ScoreStore.DEFAULT_PATH)) : null;
+    new GameServer(port, Runtime.getRuntime().availableProcessors(), assets, scores).serve();
+  }
+}
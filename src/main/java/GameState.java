@@ -0,0 +1,168 @@
+package main.java;
+
+/**
+ * Everything that the keyboard, the jump and the obstacles of a game share, at a given moment.
+ * 
+ * A state is never modified: each change creates a new state,
+ * which the game publishes through an `AtomicReference`.
+ * This way, a thread always reads a consistent state (for example the position of the player
+ * and whether it's jumping come from the same moment), and two threads can't both think
+ * they made the same change (only one of them wins the `compareAndSet`).
+ */
+public final class GameState {
+  /**
+   * The value of `jumpId` when the player isn't jumping.
+   */
+  public static final int NOT_JUMPING = 0;
+
+  /**
+   * The current menu being displayed to the user.
+   * Since the only page that doesn't have menus is the game itself,
+   * then if this is `null` it means the user's playing the game.
+   */
+  private final GameMenu menu;
+
+  /**
+   * The index of the selected choice in `menu`.
+   * It's part of the state of the session, not of the menu, so menus don't have any state.
+   */
+  private final int selection;
+
+  /**
+   * The name of the current map.
+   */
+  private final String mapName;
+
+  /**
+   * Incremented each time a map starts.
+   * The movements of a previous game know they must stop if it's not their round anymore.
+   */
+  private final int round;
+
+  /**
+   * The player's position on the Y-axis in the map.
+   * This position is within the map itself, so y=0 means the top of the map, not the top of the GUI.
+   */
+  private final int playerY;
+
+  /**
+   * The unique identifier of the jump being executed, or `NOT_JUMPING`.
+   * It's necessary to make sure that the player doesn't double-jump,
+   * and to let a jump know it was cancelled.
+   */
+  private final int jumpId;
+
+  /**
+   * Is the game over? If so, the main thread stops waiting.
+   */
+  private final boolean finished;
+
+  private GameState(GameMenu menu, int selection, String mapName, int round, int playerY, int jumpId, boolean finished) {
+    this.menu = menu;
+    this.selection = selection;
+    this.mapName = mapName;
+    this.round = round;
+    this.playerY = playerY;
+    this.jumpId = jumpId;
+    this.finished = finished;
+  }
+
+  /**
+   * Creates the state of a game that just started.
+   * @param menu The first menu displayed to the user.
+   * @param floorY The position of the player when it's on the floor.
+   * @return The initial state.
+   */
+  public static GameState initial(GameMenu menu, int floorY) {
+    return new GameState(menu, 0, null, 0, floorY, NOT_JUMPING, false);
+  }
+
+  public GameMenu getMenu() { return menu; }
+  public int getSelection() { return selection; }
+  public String getMapName() { return mapName; }
+  public int getRound() { return round; }
+  public int getPlayerY() { return playerY; }
+  public int getJumpId() { return jumpId; }
+  public boolean isFinished() { return finished; }
+
+  /**
+   * Is the user currently playing the given round?
+   * @param round The round of a movement.
+   * @return `true` if the movements of this round must continue.
+   */
+  public boolean isPlaying(int round) {
+    return !finished && menu == null && this.round == round;
+  }
+
+  /**
+   * Can the player jump? It's `true` if the player is on the floor.
+   * @return `true` if the player isn't already jumping.
+   */
+  public boolean canJump() {
+    return jumpId == NOT_JUMPING;
+  }
+
+  /**
+   * Displays a menu, which stops the current round.
+   * Its first choice is selected.
+   * @param menu The new menu.
+   * @return The new state.
+   */
+  public GameState withMenu(GameMenu menu) {
+    return new GameState(menu, 0, mapName, round, playerY, jumpId, finished);
+  }
+
+  /**
+   * Selects another choice in the current menu.
+   * @param selection The index of the choice.
+   * @return The new state.
+   */
+  public GameState withSelection(int selection) {
+    return new GameState(menu, selection, mapName, round, playerY, jumpId, finished);
+  }
+
+  /**
+   * Starts a new round on a map, with the player on the floor.
+   * @param mapName The name of the map.
+   * @param floorY The position of the player when it's on the floor.
+   * @return The new state.
+   */
+  public GameState startMap(String mapName, int floorY) {
+    return new GameState(null, 0, mapName, round + 1, floorY, NOT_JUMPING, finished);
+  }
+
+  /**
+   * Starts a jump.
+   * @param jumpId The unique identifier of the jump (must not be `NOT_JUMPING`).
+   * @return The new state.
+   */
+  public GameState startJump(int jumpId) {
+    return new GameState(menu, selection, mapName, round, playerY, jumpId, finished);
+  }
+
+  /**
+   * Moves the player vertically.
+   * @param shift The number of pixels to move (negative to go up).
+   * @return The new state.
+   */
+  public GameState movePlayer(int shift) {
+    return new GameState(menu, selection, mapName, round, playerY + shift, jumpId, finished);
+  }
+
+  /**
+   * Stops the jump and puts the player back on the floor.
+   * @param floorY The position of the player when it's on the floor.
+   * @return The new state.
+   */
+  public GameState endJump(int floorY) {
+    return new GameState(menu, selection, mapName, round, floorY, NOT_JUMPING, finished);
+  }
+
+  /**
+   * Stops the game.
+   * @return The new state.
+   */
+  public GameState finish() {
+    return new GameState(menu, selection, mapName, round, playerY, jumpId, true);
+  }
+}
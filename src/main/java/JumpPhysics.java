@@ -0,0 +1,81 @@
+package main.java;
+
+/**
+ * The height of the player during a jump: a launch velocity, slowed down by gravity until the player lands.
+ *
+ * The simulation advances by fixed ticks, whatever the rate at which the jump is drawn:
+ * a frame only asks for the height at the current time (see `advanceTo`), so the arc looks the same at any frame rate.
+ * Each tick integrates the velocity and the gravity exactly, so the size of a tick doesn't change the arc either.
+ *
+ * It doesn't allocate anything, so a jump can be reused from a jump to the next one.
+ * It's not thread-safe: it's only used by the thread moving the player.
+ */
+public final class JumpPhysics {
+  /**
+   * The duration of a tick of the simulation.
+   */
+  static final long TICK_NANOS = 4_000_000;
+
+  private final double gravity; // rows per nanosecond², towards the floor
+  private final double launchVelocity; // rows per nanosecond, upwards
+  private final long flightNanos;
+
+  private double height;
+  private double velocity;
+  private long simulatedNanos;
+  private boolean jumping = false;
+
+  /**
+   * @param apexHeight The number of rows between the floor and the top of the jump.
+   * @param apexMillis How long the player takes to reach the top of the jump. It takes as long to land.
+   */
+  public JumpPhysics(int apexHeight, long apexMillis) {
+    double apexNanos = apexMillis * 1_000_000.0;
+    this.gravity = 2 * apexHeight / (apexNanos * apexNanos);
+    this.launchVelocity = gravity * apexNanos;
+    this.flightNanos = apexMillis * 2_000_000;
+  }
+
+  /**
+   * Launches a new jump from the floor.
+   */
+  public void start() {
+    height = 0;
+    velocity = launchVelocity;
+    simulatedNanos = 0;
+    jumping = true;
+  }
+
+  /**
+   * Runs the ticks of the simulation until a given time.
+   * @param elapsedNanos The time since the beginning of the jump.
+   * @return `true` if the player is still in the air.
+   */
+  public boolean advanceTo(long elapsedNanos) {
+    while (jumping && simulatedNanos + TICK_NANOS <= elapsedNanos) {
+      tick();
+    }
+    return jumping;
+  }
+
+  private void tick() {
+    double dt = Math.min(TICK_NANOS, flightNanos - simulatedNanos);
+    height += velocity * dt - gravity * dt * dt / 2;
+    velocity -= gravity * dt;
+    simulatedNanos += (long)dt;
+    if (simulatedNanos >= flightNanos || height <= 0) {
+      height = 0;
+      jumping = false;
+    }
+  }
+
+  /**
+   * Gets the current height of the player, rounded to a row of the map.
+   * @return The number of rows between the player and the floor.
+   */
+  public int getHeight() {
+    return (int)Math.round(height);
+  }
+
+  public boolean isJumping() { return jumping; }
+}
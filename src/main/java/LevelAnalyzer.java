@@ -0,0 +1,396 @@
+package main.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+
+/**
+ * Tells whether the config of a map can be beaten, and how precise the player must be, without playing it.
+ *
+ * It replays the rules of `Game` millisecond by millisecond, without drawing anything:
+ * - the obstacles come one after the other, each one moving a pixel every `Game.getStepDelay` milliseconds,
+ * - an obstacle only hits the player when it reaches the column of the player (see `Game.collides`),
+ * - a jump follows `JumpPhysics`, with a frame every `Game.JUMP_DELAY_BETWEEN_EACH_FRAME` milliseconds,
+ *   and the player can only jump again once they landed.
+ *
+ * Each millisecond is a moment at which the player could press the jump key. Whether a jump started then
+ * survives the obstacles it flies over doesn't depend on the other jumps, so all of them are tried in parallel (fork/join).
+ * Then two passes over the timeline find the jumps that lead to the end of the level:
+ * the ones the player can reach, and the ones after which the rest of the level can still be beaten.
+ * The difficulty of an obstacle is the number of milliseconds during which the player can press the key to pass it.
+ *
+ * Usage: `java main.java.LevelAnalyzer [map...]`
+ */
+public class LevelAnalyzer {
+  /**
+   * The number of moments tried by each task.
+   */
+  private static final int MILLIS_PER_TASK = 4096;
+
+  /**
+   * What the analyzer found about a map.
+   */
+  public static class Report {
+    private final String mapName;
+    private final boolean beatable;
+    private final int checks;
+    private final int mandatoryJumps;
+    private final int tightestSpawnIndex; // -1 if no jump is needed
+    private final int tightestWindowMillis;
+    private final double averageWindowMillis;
+    private final long durationMillis;
+    private final long jumpMillis;
+
+    Report(String mapName, boolean beatable, int checks, int mandatoryJumps, int tightestSpawnIndex, int tightestWindowMillis, double averageWindowMillis, long durationMillis, long jumpMillis) {
+      this.mapName = mapName;
+      this.beatable = beatable;
+      this.checks = checks;
+      this.mandatoryJumps = mandatoryJumps;
+      this.tightestSpawnIndex = tightestSpawnIndex;
+      this.tightestWindowMillis = tightestWindowMillis;
+      this.averageWindowMillis = averageWindowMillis;
+      this.durationMillis = durationMillis;
+      this.jumpMillis = jumpMillis;
+    }
+
+    public String getMapName() { return mapName; }
+    public boolean isBeatable() { return beatable; }
+
+    /**
+     * @return The number of obstacles that reach the column of the player.
+     */
+    public int getChecks() { return checks; }
+
+    /**
+     * @return The number of obstacles that hit a player standing on the floor.
+     */
+    public int getMandatoryJumps() { return mandatoryJumps; }
+
+    /**
+     * @return The index in the config of the obstacle with the shortest window, -1 if the player never has to jump.
+     */
+    public int getTightestSpawnIndex() { return tightestSpawnIndex; }
+
+    /**
+     * @return The number of milliseconds during which the player can jump to pass the hardest obstacle (0 if the map can't be beaten).
+     */
+    public int getTightestWindowMillis() { return tightestWindowMillis; }
+
+    public double getAverageWindowMillis() { return averageWindowMillis; }
+
+    /**
+     * @return The time from the first obstacle to the last check, in milliseconds.
+     */
+    public long getDurationMillis() { return durationMillis; }
+
+    /**
+     * How tight the hardest obstacle is, from 0 (no jump needed, or any moment of a jump works) to 1 (impossible).
+     */
+    public double getTightness() {
+      if (!beatable) {
+        return 1;
+      }
+      if (tightestSpawnIndex < 0) {
+        return 0;
+      }
+      return Math.max(0, 1 - (double)tightestWindowMillis / jumpMillis);
+    }
+
+    @Override
+    public String toString() {
+      if (!beatable) {
+        return String.format("%s : IMPOSSIBLE (%d obstacle(s), %d saut(s) obligatoire(s), bloque à l'obstacle n°%d)",
+          mapName, checks, mandatoryJumps, tightestSpawnIndex + 1);
+      }
+      if (tightestSpawnIndex < 0) {
+        return String.format("%s : faisable sans sauter (%d obstacle(s))", mapName, checks);
+      }
+      return String.format("%s : faisable, difficulté %d%% (%d obstacle(s), %d saut(s) obligatoire(s), fenêtre la plus courte %d ms à l'obstacle n°%d, moyenne %.0f ms)",
+        mapName, Math.round(getTightness() * 100), checks, mandatoryJumps, tightestWindowMillis, tightestSpawnIndex + 1, averageWindowMillis);
+    }
+  }
+
+  /**
+   * The moment an obstacle reaches the column of the player.
+   */
+  private static class Check {
+    final int spawnIndex;
+    final int millis; // since the first obstacle appeared
+    final boolean safeOnFloor;
+    final boolean[] safeInAir; // for each millisecond since the beginning of a jump
+
+    Check(int spawnIndex, int millis, boolean safeOnFloor, boolean[] safeInAir) {
+      this.spawnIndex = spawnIndex;
+      this.millis = millis;
+      this.safeOnFloor = safeOnFloor;
+      this.safeInAir = safeInAir;
+    }
+  }
+
+  private final AssetRegistry assets;
+  private final Raster skin;
+
+  /**
+   * The row of the player for each millisecond of a jump from the floor, without the terrain (see `getPlayerY`).
+   */
+  private final int[] jumpHeights;
+
+  /**
+   * @param assets The assets of the game, with the default skin of the player.
+   */
+  public LevelAnalyzer(AssetRegistry assets) {
+    this.assets = assets;
+    this.skin = assets.getSkin(Game.PLAYER_DEFAULT_SKIN).getRaster();
+    this.jumpHeights = simulateJump();
+  }
+
+  /**
+   * Plays a jump like `Game.JumpMovement` does: the player moves at each frame, and stays on its row in between.
+   * @return The height of the player for each millisecond of the jump. Its length is the duration of the jump.
+   */
+  private static int[] simulateJump() {
+    JumpPhysics physics = new JumpPhysics(Game.JUMP_HEIGHT, Game.JUMP_APEX_MILLIS);
+    physics.start();
+    ArrayList<Integer> frames = new ArrayList<>();
+    for (int frame = 0; physics.advanceTo(frame * Game.JUMP_DELAY_BETWEEN_EACH_FRAME * 1_000_000L); frame++) {
+      frames.add(physics.getHeight());
+    }
+    int[] heights = new int[frames.size() * Game.JUMP_DELAY_BETWEEN_EACH_FRAME]; // the frame that lands ends the jump
+    for (int millis = 0; millis < heights.length; millis++) {
+      heights[millis] = frames.get(millis / Game.JUMP_DELAY_BETWEEN_EACH_FRAME);
+    }
+    return heights;
+  }
+
+  /**
+   * @return How long a jump lasts, from the key to the landing, in milliseconds.
+   */
+  public int getJumpMillis() {
+    return jumpHeights.length;
+  }
+
+  /**
+   * Analyzes the config of a map of the assets.
+   * @param mapName The name of the map.
+   * @return What was found.
+   */
+  public Report analyze(String mapName) {
+    return analyze(mapName, assets.getConfig(mapName));
+  }
+
+  /**
+   * Analyzes a config on a map of the assets, for example a config being tuned.
+   * @param mapName The name of the map.
+   * @param config The obstacles of the level.
+   * @return What was found.
+   * @throws IllegalArgumentException If the map or an obstacle of the config doesn't exist.
+   */
+  public Report analyze(String mapName, MapSpawnConfig config) {
+    Map map = assets.getMap(mapName);
+    Terrain terrain = assets.getTerrain(mapName);
+    if (map == null || terrain == null) {
+      throw new IllegalArgumentException("The map '" + mapName + "' doesn't exist");
+    }
+    List<Check> checks = findChecks(map.getRaster().getWidth(), terrain, config.getSpawns());
+    int jumpMillis = getJumpMillis();
+    int end = checks.isEmpty() ? 0 : checks.get(checks.size() - 1).millis + jumpMillis + 1; // every jump has landed
+
+    boolean[] safeOnFloor = new boolean[end + 1];
+    Arrays.fill(safeOnFloor, true);
+    for (Check check : checks) {
+      safeOnFloor[check.millis] &= check.safeOnFloor;
+    }
+    boolean[] safeJumps = new boolean[end + 1];
+    new SafeJumps(checks, jumpMillis, safeJumps, 0, end + 1).invoke();
+
+    // reachable[t]: the player can stand on the floor at `t`, having passed the obstacles before `t`
+    boolean[] reachable = new boolean[end + 1];
+    reachable[0] = true;
+    for (int t = 1; t <= end; t++) {
+      int jumpStart = t - jumpMillis;
+      reachable[t] = (reachable[t - 1] && safeOnFloor[t - 1])
+        || (jumpStart >= 0 && reachable[jumpStart] && safeJumps[jumpStart]);
+    }
+    // winning[t]: from the floor at `t`, the player can pass the obstacles from `t` to the end
+    boolean[] winning = new boolean[end + 1];
+    winning[end] = true;
+    for (int t = end - 1; t >= 0; t--) {
+      winning[t] = (safeOnFloor[t] && winning[t + 1])
+        || (safeJumps[t] && winning[Math.min(end, t + jumpMillis)]);
+    }
+
+    boolean beatable = reachable[end];
+    int mandatoryJumps = 0;
+    int tightestSpawnIndex = -1;
+    int tightestWindow = Integer.MAX_VALUE;
+    long windowSum = 0;
+    for (Check check : checks) {
+      if (check.safeOnFloor) {
+        continue;
+      }
+      mandatoryJumps++;
+      // the jumps that pass this obstacle on the way to the end of the level
+      int window = 0;
+      for (int t = Math.max(0, check.millis - jumpMillis + 1); t <= check.millis; t++) {
+        if (reachable[t] && safeJumps[t] && winning[Math.min(end, t + jumpMillis)]) {
+          window++;
+        }
+      }
+      windowSum += window;
+      if (beatable && window < tightestWindow) {
+        tightestWindow = window;
+        tightestSpawnIndex = check.spawnIndex;
+      }
+    }
+    if (!beatable) {
+      tightestSpawnIndex = firstBlockingSpawn(checks, reachable, safeOnFloor, safeJumps, jumpMillis);
+      tightestWindow = 0;
+    }
+    return new Report(mapName, beatable, checks.size(), mandatoryJumps, tightestSpawnIndex,
+      tightestSpawnIndex < 0 ? 0 : tightestWindow,
+      mandatoryJumps == 0 ? 0 : (double)windowSum / mandatoryJumps,
+      checks.isEmpty() ? 0 : checks.get(checks.size() - 1).millis, jumpMillis);
+  }
+
+  /**
+   * Finds the first obstacle that the player can't pass, whatever they did before.
+   */
+  private static int firstBlockingSpawn(List<Check> checks, boolean[] reachable, boolean[] safeOnFloor, boolean[] safeJumps, int jumpMillis) {
+    for (Check check : checks) {
+      boolean passable = reachable[check.millis] && safeOnFloor[check.millis];
+      for (int t = Math.max(0, check.millis - jumpMillis + 1); !passable && t <= check.millis; t++) {
+        passable = reachable[t] && safeJumps[t];
+      }
+      if (!passable) {
+        return check.spawnIndex;
+      }
+    }
+    return checks.isEmpty() ? -1 : checks.get(checks.size() - 1).spawnIndex;
+  }
+
+  /**
+   * Moves the obstacles like `Game.ObstacleMovement` does, to find when each of them reaches the player.
+   */
+  private List<Check> findChecks(int mapWidth, Terrain terrain, List<ObstacleSpawn> spawns) {
+    int playerColumn = Game.PLAYER_X / Game.PIXEL_SIZE;
+    int floorY = Game.getFloorY(terrain, skin, playerColumn);
+    int ceilingY = Game.getCeilingY(terrain, skin, playerColumn, floorY);
+    int playerHeight = skin.getHeight();
+    int checkX = (Game.PLAYER_X + skin.getWidth()) * Game.PIXEL_SIZE;
+
+    ArrayList<Check> checks = new ArrayList<>();
+    long spawnMillis = 0;
+    for (int i = 0; i < spawns.size(); i++) {
+      ObstacleSpawn spawn = spawns.get(i);
+      Obstacle obstacle = assets.getObstacle(spawn.getName());
+      if (obstacle == null) {
+        throw new IllegalArgumentException("The obstacle '" + spawn.getName() + "' doesn't exist");
+      }
+      int obstacleWidth = obstacle.getRaster().getWidth();
+      int obstacleHeight = obstacle.getRaster().getHeight();
+      long delay = Game.getStepDelay(spawn);
+      int startX = (mapWidth - obstacleWidth) * Game.PIXEL_SIZE;
+      // the obstacle stops as soon as `x <= obstacleWidth`, before it's compared to the column of the player
+      if (startX >= checkX && checkX > obstacleWidth) {
+        boolean[] safeInAir = new boolean[jumpHeights.length];
+        for (int millis = 0; millis < safeInAir.length; millis++) {
+          int playerY = Math.max(ceilingY, floorY - jumpHeights[millis]);
+          safeInAir[millis] = !Game.collides(spawn.getY(), obstacleHeight, playerY, playerHeight);
+        }
+        boolean safeOnFloor = !Game.collides(spawn.getY(), obstacleHeight, floorY, playerHeight);
+        checks.add(new Check(i, Math.toIntExact(spawnMillis + (startX - checkX) * delay), safeOnFloor, safeInAir));
+      }
+      spawnMillis += Math.max(0, startX - obstacleWidth) * delay; // the next obstacle starts when this one ends
+    }
+    return checks;
+  }
+
+  /**
+   * Tries a range of moments to press the jump key: the jump is safe if it doesn't hit any of the obstacles it flies over.
+   */
+  private static class SafeJumps extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Check> checks;
+    private final int jumpMillis;
+    private final boolean[] safeJumps;
+    private final int from;
+    private final int to;
+
+    SafeJumps(List<Check> checks, int jumpMillis, boolean[] safeJumps, int from, int to) {
+      this.checks = checks;
+      this.jumpMillis = jumpMillis;
+      this.safeJumps = safeJumps;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > MILLIS_PER_TASK) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new SafeJumps(checks, jumpMillis, safeJumps, from, middle), new SafeJumps(checks, jumpMillis, safeJumps, middle, to));
+        return;
+      }
+      int first = firstCheckAtOrAfter(from);
+      for (int t = from; t < to; t++) {
+        while (first < checks.size() && checks.get(first).millis < t) {
+          first++;
+        }
+        boolean safe = true;
+        for (int i = first; safe && i < checks.size() && checks.get(i).millis < t + jumpMillis; i++) {
+          Check check = checks.get(i);
+          safe = check.safeInAir[check.millis - t];
+        }
+        safeJumps[t] = safe;
+      }
+    }
+
+    private int firstCheckAtOrAfter(int millis) {
+      int low = 0;
+      int high = checks.size();
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (checks.get(middle).millis < millis) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+
+  /**
+   * Analyzes the configs of all the maps, in parallel.
+   * @return The reports, sorted by map.
+   */
+  public List<Report> analyzeAll() {
+    return assets.getConfigNames().stream()
+      .sorted()
+      .filter(mapName -> assets.getMap(mapName) != null)
+      .parallel()
+      .map(this::analyze)
+      .collect(Collectors.toList());
+  }
+
+  public static void main(String[] args) {
+    long start = System.nanoTime();
+    LevelAnalyzer analyzer = new LevelAnalyzer(AssetRegistry.getDefault());
+    List<Report> reports = args.length == 0 ? analyzer.analyzeAll() : Arrays.stream(args)
+      .parallel()
+      .map(analyzer::analyze)
+      .collect(Collectors.toList());
+    boolean allBeatable = true;
+    for (Report report : reports) {
+      System.out.println(report);
+      allBeatable &= report.isBeatable();
+    }
+    System.out.printf("%d carte(s) analysée(s) en %.1f ms%n", reports.size(), (System.nanoTime() - start) / 1e6);
+    if (!allBeatable) {
+      System.exit(1);
+    }
+  }
+}
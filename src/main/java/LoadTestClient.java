@@ -0,0 +1,209 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how many sessions a `GameServer` can handle.
+ * It opens many connections at once and each of them plays like a real player would:
+ * it goes to the map selection, starts the first map and jumps regularly.
+ * 
+ * Usage: `java main.java.LoadTestClient [sessions] [seconds] [port]`
+ */
+public class LoadTestClient {
+  private static final byte[] BOTTOM_ARROW = { 27, 91, 66 };
+  private static final byte[] ENTER = { 13 };
+  private static final byte[] JUMP = { 32 };
+  private static final byte[] QUIT = { 'q' };
+
+  /**
+   * We consider that the screen is fully drawn when nothing was received during this delay.
+   */
+  private static final long QUIET_DELAY = 200;
+
+  /**
+   * The time between each jump during the game.
+   */
+  private static final long JUMP_INTERVAL = 1200;
+
+  private final String host;
+  private final int port;
+  private final long playDuration;
+
+  private final AtomicLong totalBytes = new AtomicLong();
+  private final List<Long> firstFrameLatencies = Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> keyLatencies = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicLong failures = new AtomicLong();
+
+  public LoadTestClient(String host, int port, long playDuration) {
+    this.host = host;
+    this.port = port;
+    this.playDuration = playDuration;
+  }
+
+  /**
+   * One connection to the server, and the number of bytes it received so far.
+   */
+  private class Session {
+    private final Socket socket;
+    private final OutputStream keys;
+    private final AtomicLong received = new AtomicLong();
+    private volatile long lastReceptionTime = System.nanoTime();
+
+    Session() throws IOException {
+      socket = new Socket(host, port);
+      socket.setTcpNoDelay(true);
+      keys = socket.getOutputStream();
+      Thread reader = new Thread(() -> {
+        byte[] buffer = new byte[16 * 1024];
+        try (InputStream screen = socket.getInputStream()) {
+          int n;
+          while ((n = screen.read(buffer)) != -1) {
+            received.addAndGet(n);
+            totalBytes.addAndGet(n);
+            lastReceptionTime = System.nanoTime();
+          }
+        } catch (IOException ignore) {}
+      });
+      reader.setDaemon(true);
+      reader.start();
+    }
+
+    /**
+     * Waits until the server sends something after `count` bytes were received.
+     * @return The time it took in nanoseconds, or -1 if nothing came in time.
+     */
+    long waitForBytesAfter(long count, long since) throws InterruptedException {
+      long deadline = since + TimeUnit.SECONDS.toNanos(10);
+      while (received.get() == count) {
+        if (System.nanoTime() > deadline) {
+          return -1;
+        }
+        Thread.sleep(1);
+      }
+      return System.nanoTime() - since;
+    }
+
+    /**
+     * Waits until the server stops drawing.
+     */
+    void waitUntilQuiet() throws InterruptedException {
+      while (System.nanoTime() - lastReceptionTime < TimeUnit.MILLISECONDS.toNanos(QUIET_DELAY)) {
+        Thread.sleep(10);
+      }
+    }
+
+    /**
+     * Sends a key and measures how long the server took to react.
+     */
+    void press(byte[] key) throws IOException, InterruptedException {
+      long count = received.get();
+      long time = System.nanoTime();
+      keys.write(key);
+      keys.flush();
+      long latency = waitForBytesAfter(count, time);
+      if (latency < 0) {
+        throw new IOException("the server didn't answer");
+      }
+      keyLatencies.add(latency);
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException ignore) {}
+    }
+  }
+
+  /**
+   * The script of a single player.
+   */
+  private void play() {
+    Session session = null;
+    try {
+      long start = System.nanoTime();
+      session = new Session();
+      long latency = session.waitForBytesAfter(0, start);
+      if (latency < 0) {
+        throw new IOException("the menu never came");
+      }
+      firstFrameLatencies.add(latency);
+      session.waitUntilQuiet();
+      session.press(BOTTOM_ARROW); // "Mode Arcade"
+      session.waitUntilQuiet();
+      session.press(ENTER); // the map selection
+      session.waitUntilQuiet();
+      session.press(ENTER); // the first map, which never stops drawing
+      long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(playDuration);
+      while (System.nanoTime() < end) {
+        session.keys.write(JUMP);
+        session.keys.flush();
+        Thread.sleep(JUMP_INTERVAL);
+      }
+      session.keys.write(QUIT); // back to the main menu
+      session.keys.flush();
+      session.waitUntilQuiet();
+      session.keys.write(QUIT); // leaves the game
+      session.keys.flush();
+    } catch (IOException | InterruptedException e) {
+      failures.incrementAndGet();
+    } finally {
+      if (session != null) {
+        session.close();
+      }
+    }
+  }
+
+  /**
+   * Plays with many sessions at the same time and prints the results.
+   * @param sessions The number of simultaneous players.
+   */
+  public void run(int sessions) throws InterruptedException {
+    ExecutorService players = Executors.newFixedThreadPool(sessions);
+    long start = System.nanoTime();
+    for (int i = 0; i < sessions; i++) {
+      players.execute(this::play);
+    }
+    players.shutdown();
+    players.awaitTermination(1, TimeUnit.HOURS);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println("Sessions : " + sessions + " (" + failures.get() + " en échec)");
+    System.out.println("Premier affichage : " + describe(firstFrameLatencies));
+    System.out.println("Réponse aux touches : " + describe(keyLatencies));
+    System.out.printf("Reçu : %.1f Mo en %.1f s (%.1f Mo/s)%n", totalBytes.get() / 1e6, seconds, totalBytes.get() / 1e6 / seconds);
+  }
+
+  /**
+   * Describes a list of latencies by its median, its 99th percentile and its maximum.
+   * @param latencies The latencies in nanoseconds.
+   * @return A readable summary in milliseconds.
+   */
+  private static String describe(List<Long> latencies) {
+    if (latencies.isEmpty()) {
+      return "aucune mesure";
+    }
+    ArrayList<Long> sorted = new ArrayList<>(latencies);
+    Collections.sort(sorted);
+    return String.format("médiane %.1f ms, p99 %.1f ms, max %.1f ms",
+      sorted.get(sorted.size() / 2) / 1e6,
+      sorted.get((int)Math.min(sorted.size() - 1, Math.ceil(sorted.size() * 0.99) - 1)) / 1e6,
+      sorted.get(sorted.size() - 1) / 1e6);
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+    long seconds = args.length > 1 ? Long.parseLong(args[1]) : 20;
+    int port = args.length > 2 ? Integer.parseInt(args[2]) : 4242;
+    new LoadTestClient("localhost", port, seconds * 1000).run(sessions);
+  }
+}
@@ -8,6 +8,6 @@ public class MainMenu extends GameMenu {
 	@Override
 	public void display() {
 		useDefaultTemplate();
-		Controls.println("Disclaimer : certains terminaux sont incompatibles avec le jeu.");
+		println("Disclaimer : certains terminaux sont incompatibles avec le jeu.");
 	}
 }
@@ -9,4 +9,22 @@ public class Map extends GameObject {
   public Map(String name, ArrayList<ArrayList<Integer>> matrix) {
     super(name, matrix);
   }
+
+  public Map(String name, Raster raster) {
+    super(name, raster);
+  }
+
+  Map(String name, Raster[] levels) {
+    super(name, levels);
+  }
+
+  /**
+   * Creates a map whose pixels can be kept outside of the Java heap (see `OffHeapRaster`).
+   * @param name The unique name of the map.
+   * @param matrix The pixels of the map.
+   * @param offHeap Should the pixels be stored off-heap?
+   */
+  public Map(String name, ArrayList<ArrayList<Integer>> matrix, boolean offHeap) {
+    super(name, offHeap ? OffHeapRaster.fromMatrix(matrix) : RunLengthRaster.fromMatrix(matrix));
+  }
 }
\ No newline at end of file
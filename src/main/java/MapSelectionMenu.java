@@ -1,11 +1,226 @@
 package main.java;
 
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The list of the maps, with a preview of the selected one on its left.
+ *
+ * Each preview is a smaller version of the map (see `GameObject.getRaster(int)`), drawn like the maps of the game
+ * (with half blocks only if they're enabled, see `RasterRenderer.HALF_BLOCKS_PROPERTY`)
+ * once and for all into the bytes to send to the terminal, in the background: the menu is shown right away.
+ * Moving the selector then writes the cached bytes of the selected map over the previous preview, without clearing the screen.
+ * A preview that isn't ready yet is replaced by a loading message, and drawn as soon as it's ready (see `refresh`).
+ */
 public class MapSelectionMenu extends GameMenu {
-	public MapSelectionMenu() {
+	public static final int PREVIEW_COLUMNS = 40;
+	public static final int PREVIEW_LINES = 12;
+	private static final int PREVIEW_X = LEFT_X - 4 - PREVIEW_COLUMNS;
+	private static final boolean HALF_BLOCKS = Boolean.getBoolean(RasterRenderer.HALF_BLOCKS_PROPERTY);
+
+	/**
+	 * The previews of all the game sessions, by map.
+	 */
+	private static final ConcurrentHashMap<String, Preview> PREVIEWS = new ConcurrentHashMap<>();
+
+	/**
+	 * The preview of a version of a map. It's drawn again if the map or the colors are reloaded.
+	 */
+	private static class Preview {
+		private final Map map;
+		private final List<Color> colors;
+		private final CompletableFuture<byte[]> bytes;
+
+		private Preview(Map map, List<Color> colors, CompletableFuture<byte[]> bytes) {
+			this.map = map;
+			this.colors = colors;
+			this.bytes = bytes;
+		}
+	}
+
+	private final Supplier<AssetRegistry> assets;
+	private final Runnable previewReady;
+	private final byte[] emptyPreview;
+	private final byte[] loadingPreview;
+
+	/**
+	 * The preview on the screen. It's only used while holding the lock of the output.
+	 */
+	private byte[] drawnPreview;
+
+	/**
+	 * The previews that call `previewReady` once they're ready, so that each one only calls it once.
+	 * It's only used while holding the lock of the output.
+	 */
+	private final Set<CompletableFuture<byte[]>> awaitedPreviews = new HashSet<>();
+
+	/**
+	 * @param assets Where to get the maps.
+	 * @param previewReady Called when a preview that was missing is ready, to call `refresh` from the thread drawing the menus.
+	 */
+	public MapSelectionMenu(Supplier<AssetRegistry> assets, Runnable previewReady) {
 		super(new Page[] { Page.MAP_FAR_WEST, Page.MAP_MEDIEVAL, Page.MAP_CITY, Page.MAP_MARIO, Page.MAP_AMONGUS });
+		this.assets = assets;
+		this.previewReady = previewReady;
+		this.emptyPreview = drawPreviewBox(null, null, null);
+		this.loadingPreview = drawPreviewBox(null, null, "Chargement...");
 	}
 
 	public void display() {
 		useDefaultTemplate();
 	}
+
+	/**
+	 * Gets the Y-coordinate of the first line of the previews, so that they're centered on the choices.
+	 */
+	private int getPreviewY() {
+		return getSelectorY(0) + (choices.length - PREVIEW_LINES) / 2;
+	}
+
+	/**
+	 * Shows the menu, then the preview of the first map.
+	 * The previews of the other maps start being drawn in the background.
+	 */
+	@Override
+	protected void show(PrintStream out) {
+		super.show(out);
+		for (Page choice : choices) {
+			getPreview(choice.getMapName());
+		}
+		drawnPreview = null;
+		drawPreview(out, 0, new byte[0]);
+	}
+
+	/**
+	 * Moves the selector and shows the preview of the selected map, in a single write.
+	 */
+	@Override
+	protected void drawSelectorMove(PrintStream out, int from, int to) {
+		drawPreview(out, to, getSelectorMove(from, to).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Draws the preview of the selected map if it's ready now but wasn't when it was selected.
+	 */
+	@Override
+	protected void refresh(PrintStream out, int selection) {
+		if (!canSelect(selection)) {
+			return;
+		}
+		byte[] preview = getPreview(choices[selection].getMapName()).getNow(null);
+		if (preview != null && preview != drawnPreview) {
+			drawPreview(out, selection, new byte[0]);
+		}
+	}
+
+	/**
+	 * Writes the preview of a map over the previous one.
+	 * @param out The output of the game session.
+	 * @param index The index of the map in the choices.
+	 * @param before What to write in the same frame, before the preview.
+	 */
+	private void drawPreview(PrintStream out, int index, byte[] before) {
+		CompletableFuture<byte[]> future = getPreview(choices[index].getMapName());
+		byte[] preview = future.getNow(null);
+		if (preview == null) {
+			preview = loadingPreview;
+			if (awaitedPreviews.add(future)) {
+				future.thenRun(previewReady);
+			}
+		}
+		byte[] frame = Arrays.copyOf(before, before.length + preview.length);
+		System.arraycopy(preview, 0, frame, before.length, preview.length);
+		out.write(frame, 0, frame.length);
+		out.flush();
+		drawnPreview = preview;
+	}
+
+	/**
+	 * Gets the preview of the current version of a map, and starts drawing it if it's not cached.
+	 * @param mapName The name of the map.
+	 * @return The bytes of the preview, once they're ready.
+	 */
+	private CompletableFuture<byte[]> getPreview(String mapName) {
+		AssetRegistry registry = assets.get();
+		Map map = registry.getMap(mapName);
+		if (map == null) {
+			return CompletableFuture.completedFuture(emptyPreview);
+		}
+		Preview cached = PREVIEWS.get(mapName);
+		if (cached != null && cached.map == map && cached.colors == registry.getColors()) {
+			return cached.bytes;
+		}
+		return PREVIEWS.compute(mapName, (name, current) -> {
+			if (current != null && current.map == map && current.colors == registry.getColors()) {
+				return current;
+			}
+			CompletableFuture<byte[]> bytes = CompletableFuture
+				.supplyAsync(() -> drawPreviewBox(registry, map, null))
+				.exceptionally(e -> emptyPreview);
+			return new Preview(map, registry.getColors(), bytes);
+		}).bytes;
+	}
+
+	/**
+	 * Draws the whole box of a preview: the first smaller version of the map that fits in it, centered,
+	 * and blank cells around it to erase the previous preview.
+	 * @param registry The assets giving the colors, or `null` for a box without a map.
+	 * @param map The map, or `null` for a box without a map.
+	 * @param text A line written in the middle of the box, or `null`.
+	 * @return The bytes to send to the terminal. They don't move the cursor.
+	 */
+	private byte[] drawPreviewBox(AssetRegistry registry, Map map, String text) {
+		RasterRenderer renderer = new RasterRenderer(HALF_BLOCKS);
+		int pixelWidth = renderer.getPixelWidth();
+		int rowsPerLine = renderer.getRowsPerLine();
+		int top = getPreviewY();
+		int width = 0;
+		int lines = 0;
+		int left = PREVIEW_X;
+		int first = top;
+		if (map != null) {
+			Raster thumbnail = map.getRaster(GameObject.LEVELS - 1);
+			for (int level = 1; level < GameObject.LEVELS; level++) {
+				Raster raster = map.getRaster(level);
+				if (raster.getWidth() * pixelWidth <= PREVIEW_COLUMNS && (raster.getHeight() + rowsPerLine - 1) / rowsPerLine <= PREVIEW_LINES) {
+					thumbnail = raster;
+					break;
+				}
+			}
+			width = Math.min(PREVIEW_COLUMNS, thumbnail.getWidth() * pixelWidth);
+			lines = Math.min(PREVIEW_LINES, (thumbnail.getHeight() + rowsPerLine - 1) / rowsPerLine);
+			left = PREVIEW_X + (PREVIEW_COLUMNS - width) / 2;
+			first = top + (PREVIEW_LINES - lines) / 2;
+			renderer.drawRows(registry, thumbnail, 0, Math.min(thumbnail.getHeight(), lines * rowsPerLine), left, first);
+		}
+		for (int y = top; y < top + PREVIEW_LINES; y++) {
+			if (y < first || y >= first + lines) {
+				renderer.drawText(PREVIEW_X, y, " ".repeat(PREVIEW_COLUMNS));
+			} else {
+				if (left > PREVIEW_X) {
+					renderer.drawText(PREVIEW_X, y, " ".repeat(left - PREVIEW_X));
+				}
+				if (left + width < PREVIEW_X + PREVIEW_COLUMNS) {
+					renderer.drawText(left + width, y, " ".repeat(PREVIEW_X + PREVIEW_COLUMNS - left - width));
+				}
+			}
+		}
+		if (text != null) {
+			renderer.drawText(PREVIEW_X + (PREVIEW_COLUMNS - text.length()) / 2, top + PREVIEW_LINES / 2, text);
+		}
+		byte[] frame = renderer.takeFrame();
+		byte[] save = "\033[s".getBytes(StandardCharsets.US_ASCII);
+		byte[] restore = (RasterRenderer.ANSI_RESET + "\033[u").getBytes(StandardCharsets.US_ASCII);
+		byte[] preview = Arrays.copyOf(save, save.length + frame.length + restore.length);
+		System.arraycopy(frame, 0, preview, save.length, frame.length);
+		System.arraycopy(restore, 0, preview, save.length + frame.length, restore.length);
+		return preview;
+	}
 }
@@ -0,0 +1,17 @@
+package main.java;
+
+/**
+ * What the user wants to do in a menu.
+ * The keyboard thread only sends these events to the loop of the game session,
+ * which is the only one to change the menus and to draw them.
+ */
+public enum MenuEvent {
+	UP,
+	DOWN,
+	SELECT,
+	QUIT,
+	/**
+	 * Not sent by the keyboard: something the menu prepared in the background is ready to be drawn (see `GameMenu.refresh`).
+	 */
+	REFRESH
+}
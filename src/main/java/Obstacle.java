@@ -9,4 +9,12 @@ public class Obstacle extends GameObject {
   public Obstacle(String name, ArrayList<ArrayList<Integer>> matrix) {
     super(name, matrix);
   }
+
+  public Obstacle(String name, Raster raster) {
+    super(name, raster);
+  }
+
+  Obstacle(String name, Raster[] levels) {
+    super(name, levels);
+  }
 }
@@ -0,0 +1,153 @@
+package main.java;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A raster stored outside of the Java heap, in a direct buffer, with one byte per pixel.
+ * Very large maps (or many maps on a server) then don't make the garbage collector slower:
+ * the heap only keeps this small object, and the pauses don't show up in the animation of the obstacles.
+ *
+ * The pixels are stored as `colorIndex + 1`, so `0` is a transparent pixel and the pallet can have up to 255 colors.
+ * All the rows must have the same width.
+ */
+public final class OffHeapRaster implements Raster {
+  /**
+   * The maximal number of colors in the pallet that this raster can store.
+   */
+  public static final int MAX_COLORS = 255;
+
+  private final int width;
+  private final int height;
+
+  /**
+   * The pixels, row after row. It's only read with absolute positions, so several threads can read it at the same time.
+   */
+  private final ByteBuffer pixels;
+
+  private OffHeapRaster(int width, int height, ByteBuffer pixels) {
+    this.width = width;
+    this.height = height;
+    this.pixels = pixels;
+  }
+
+  /**
+   * Copies a matrix outside of the heap.
+   * @param matrix A list of rows, each cell being the index of a color in the pallet (-1 is transparent).
+   * @return The same matrix, off-heap.
+   * @throws IllegalArgumentException If the rows don't have the same width, or if a color can't be stored in a byte.
+   */
+  public static OffHeapRaster fromMatrix(List<? extends List<Integer>> matrix) {
+    int height = matrix.size();
+    int width = height == 0 ? 0 : matrix.get(0).size();
+    ByteBuffer pixels = ByteBuffer.allocateDirect(width * height);
+    for (int y = 0; y < height; y++) {
+      List<Integer> row = matrix.get(y);
+      if (row.size() != width) {
+        throw new IllegalArgumentException("The row " + y + " has " + row.size() + " pixels instead of " + width);
+      }
+      for (int x = 0; x < width; x++) {
+        int colorIndex = row.get(x);
+        if (colorIndex < -1 || colorIndex >= MAX_COLORS) {
+          throw new IllegalArgumentException("The color " + colorIndex + " can't be stored off-heap");
+        }
+        pixels.put(y * width + x, (byte)(colorIndex + 1));
+      }
+    }
+    return new OffHeapRaster(width, height, pixels.asReadOnlyBuffer());
+  }
+
+  /**
+   * Copies another raster outside of the heap.
+   * @param raster The raster to copy, whose rows all have the same width.
+   * @return The same pixels, off-heap.
+   * @throws IllegalArgumentException If the rows don't have the same width, or if a color can't be stored in a byte.
+   */
+  public static OffHeapRaster copyOf(Raster raster) {
+    int height = raster.getHeight();
+    int width = raster.getWidth();
+    ByteBuffer pixels = ByteBuffer.allocateDirect(width * height);
+    for (int y = 0; y < height; y++) {
+      if (raster.getRowWidth(y) != width) {
+        throw new IllegalArgumentException("The row " + y + " has " + raster.getRowWidth(y) + " pixels instead of " + width);
+      }
+      int offset = y * width;
+      raster.forEachRun(y, 0, width, (x, length, colorIndex) -> {
+        if (colorIndex < -1 || colorIndex >= MAX_COLORS) {
+          throw new IllegalArgumentException("The color " + colorIndex + " can't be stored off-heap");
+        }
+        for (int i = x; i < x + length; i++) {
+          pixels.put(offset + i, (byte)(colorIndex + 1));
+        }
+      });
+    }
+    return new OffHeapRaster(width, height, pixels.asReadOnlyBuffer());
+  }
+
+  /**
+   * Shrinks a raster to half its width and half its height, like `RunLengthRaster.halve`, but keeps the result off-heap.
+   * @param source The raster to shrink.
+   * @return A new raster, whose odd width or height is rounded up.
+   * @throws IllegalArgumentException If a color can't be stored in a byte.
+   */
+  public static OffHeapRaster halve(Raster source) {
+    return fromMatrix(RunLengthRaster.halvedMatrix(source));
+  }
+
+  @Override public int getWidth() { return width; }
+  @Override public int getHeight() { return height; }
+
+  @Override
+  public int getRowWidth(int y) {
+    checkRow(y);
+    return width;
+  }
+
+  @Override
+  public int getRunCount(int y) {
+    checkRow(y);
+    int offset = y * width;
+    int runs = 0;
+    int previous = -1;
+    for (int x = 0; x < width; x++) {
+      int current = pixels.get(offset + x);
+      if (x == 0 || current != previous) {
+        runs++;
+      }
+      previous = current;
+    }
+    return runs;
+  }
+
+  @Override
+  public int get(int x, int y) {
+    checkRow(y);
+    if (x < 0 || x >= width) {
+      throw new IndexOutOfBoundsException("x = " + x + " is out of the row " + y);
+    }
+    return (pixels.get(y * width + x) & 0xFF) - 1;
+  }
+
+  @Override
+  public void forEachRun(int y, int fromX, int toX, RunConsumer consumer) {
+    checkRow(y);
+    int start = Math.max(0, fromX);
+    int end = Math.min(toX, width);
+    int offset = y * width;
+    while (start < end) {
+      byte color = pixels.get(offset + start);
+      int runEnd = start + 1;
+      while (runEnd < end && pixels.get(offset + runEnd) == color) {
+        runEnd++;
+      }
+      consumer.accept(start, runEnd - start, (color & 0xFF) - 1);
+      start = runEnd;
+    }
+  }
+
+  private void checkRow(int y) {
+    if (y < 0 || y >= height) {
+      throw new IndexOutOfBoundsException("y = " + y + " is out of the raster");
+    }
+  }
+}
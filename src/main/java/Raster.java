@@ -0,0 +1,77 @@
+package main.java;
+
+import java.util.ArrayList;
+
+/**
+ * The pixels of a map, an obstacle or a skin: each pixel is the index of a color in the pallet, or -1 if it's transparent.
+ * The renderer reads a raster row by row, as runs of the same color.
+ * A raster is never modified, so it can be shared by several games.
+ */
+public interface Raster {
+  /**
+   * Receives the runs of a row, from left to right.
+   */
+  @FunctionalInterface
+  interface RunConsumer {
+    /**
+     * @param x The X-coordinate of the first pixel of the run.
+     * @param length The number of pixels of the run (always > 0).
+     * @param colorIndex The index of the color in the pallet, or -1 for a transparent run.
+     */
+    void accept(int x, int length, int colorIndex);
+  }
+
+  int getWidth();
+  int getHeight();
+
+  /**
+   * Gets the width of a row. All the rows have the same width, unless the file of the asset is malformed.
+   * @param y The Y-coordinate of the row.
+   * @return The number of pixels of this row.
+   */
+  int getRowWidth(int y);
+
+  /**
+   * Gets the number of runs in a row, so the number of color changes the renderer needs.
+   * @param y The Y-coordinate of the row.
+   * @return The number of runs.
+   */
+  int getRunCount(int y);
+
+  /**
+   * Gets the color of a single pixel.
+   * @param x The X-coordinate of the pixel.
+   * @param y The Y-coordinate of the pixel.
+   * @return The index of the color in the pallet, or -1 if the pixel is transparent.
+   */
+  int get(int x, int y);
+
+  /**
+   * Gives the runs of a row between two X-coordinates.
+   * The first and the last runs are cut so that they stay between `fromX` and `toX`.
+   * @param y The Y-coordinate of the row.
+   * @param fromX The first X-coordinate (included).
+   * @param toX The last X-coordinate (excluded). It can go beyond the width of the row.
+   * @param consumer What receives the runs.
+   */
+  void forEachRun(int y, int fromX, int toX, RunConsumer consumer);
+
+  /**
+   * Decompresses the raster.
+   * @return A new matrix that the caller can modify.
+   */
+  default ArrayList<ArrayList<Integer>> toMatrix() {
+    int height = getHeight();
+    ArrayList<ArrayList<Integer>> matrix = new ArrayList<>(height);
+    for (int y = 0; y < height; y++) {
+      ArrayList<Integer> row = new ArrayList<>(getRowWidth(y));
+      forEachRun(y, 0, Integer.MAX_VALUE, (x, length, colorIndex) -> {
+        for (int i = 0; i < length; i++) {
+          row.add(colorIndex);
+        }
+      });
+      matrix.add(row);
+    }
+    return matrix;
+  }
+}
@@ -0,0 +1,549 @@
+package main.java;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Draws rasters (the map, the obstacles and the player) into a frame, then writes the frame to the screen.
+ *
+ * This is the hot path of the game: it runs at each step of each obstacle and of each jump.
+ * Once the frame buffer is big enough, it doesn't allocate anything,
+ * so that the garbage collector never interrupts the animation.
+ *
+ * It's not thread-safe: each game has its own renderer, used while holding the lock of its output.
+ *
+ * With half blocks, a character shows two pixels on top of each other: the color of the text is the upper pixel
+ * and the background is the lower one. The map then takes half as many lines and one column per pixel,
+ * for about half the bytes per frame. The coordinates given to the renderer don't change:
+ * the renderer converts them, and redraws both pixels of each character it touches.
+ */
+public final class RasterRenderer {
+  static final String ANSI_RESET = "\u001b[0m";
+  static final String ANSI_BG_DEFAULT_COLOR = "\u001b[49m";
+  static final String PIXEL = "  "; // In reality, a pixel is composed of two spaces and the background is then colored using ANSI
+
+  /**
+   * The system property that draws the game with half blocks (`-Dgame.halfBlocks=true`).
+   */
+  public static final String HALF_BLOCKS_PROPERTY = "game.halfBlocks";
+
+  private static final String UPPER_HALF_BLOCK = "\u2580";
+  private static final String LOWER_HALF_BLOCK = "\u2584";
+
+  /**
+   * With half blocks, the column of the screen where the map starts (it's drawn from the beginning of a line).
+   */
+  private static final int MAP_FIRST_COLUMN = 1;
+
+  /**
+   * The lines of the screen around a map: the empty line above it, and the line of the cursor below it.
+   */
+  private static final int MARGIN_LINES = 2;
+
+  /**
+   * Jumps a line, even if the terminal is in raw mode (see `Controls.println`).
+   */
+  private static final String NEW_LINE = "\r\r\n";
+
+  private final FrameBuffer frame = new FrameBuffer(16 * 1024);
+  private final RunPrinter printer = new RunPrinter();
+  private final Compositor compositor = new Compositor();
+
+  private final boolean halfBlocks;
+  private int level = 0;
+
+  /**
+   * With half blocks, the colors of the upper and lower pixels of the characters of the line being drawn.
+   */
+  private int[] upperPixels = new int[256];
+  private int[] lowerPixels = new int[256];
+  private final PixelFiller filler = new PixelFiller();
+
+  /**
+   * Creates a renderer drawing each pixel with two spaces.
+   */
+  public RasterRenderer() {
+    this(false);
+  }
+
+  /**
+   * @param halfBlocks Should two pixels on top of each other be drawn with a single character?
+   */
+  public RasterRenderer(boolean halfBlocks) {
+    this.halfBlocks = halfBlocks;
+  }
+
+  public boolean usesHalfBlocks() { return halfBlocks; }
+
+  /**
+   * Chooses the size of the rasters to draw (see `GameObject.getRaster(int)`).
+   * The coordinates given to the renderer don't change: they're still those of the whole map, the renderer converts them.
+   * The rasters given to the renderer must be those of this level.
+   * @param level 0 to draw the rasters at their size, 1 at half their size...
+   */
+  public void setLevel(int level) { this.level = level; }
+  public int getLevel() { return level; }
+
+  /**
+   * Finds the largest level at which a map fits in a terminal.
+   * @param map The raster of the map, at its size.
+   * @param columns The width of the terminal.
+   * @param lines The height of the terminal.
+   * @return The level (see `setLevel`), or the smallest level if the map never fits.
+   */
+  public int chooseLevel(Raster map, int columns, int lines) {
+    for (int level = 0; level < GameObject.LEVELS - 1; level++) {
+      int width = ceilShift(map.getWidth(), level) * getPixelWidth();
+      int height = (ceilShift(map.getHeight(), level) + getRowsPerLine() - 1) / getRowsPerLine();
+      if (width <= columns && height + MARGIN_LINES <= lines) {
+        return level;
+      }
+    }
+    return GameObject.LEVELS - 1;
+  }
+
+  private static int ceilShift(int size, int level) {
+    return (size + (1 << level) - 1) >> level;
+  }
+
+  /**
+   * Converts a position on the X-axis of the whole map (like `objectX`) to the current level.
+   */
+  private int toLevelX(int objectX) {
+    return (objectX / Game.PIXEL_SIZE >> level) * Game.PIXEL_SIZE;
+  }
+
+  /**
+   * Converts a position on the Y-axis of the whole map (like `objectY`) to the current level.
+   */
+  private int toLevelY(int objectY) {
+    return (objectY - Game.PIXEL_SIZE >> level) + Game.PIXEL_SIZE;
+  }
+
+  /**
+   * Gets the number of columns of the screen taken by a pixel.
+   * @return 1 with half blocks, `Game.PIXEL_SIZE` otherwise.
+   */
+  public int getPixelWidth() {
+    return halfBlocks ? 1 : Game.PIXEL_SIZE;
+  }
+
+  /**
+   * Gets the number of rows of a raster drawn on a single line of the screen.
+   * @return 2 with half blocks, 1 otherwise.
+   */
+  public int getRowsPerLine() {
+    return halfBlocks ? 2 : 1;
+  }
+
+  /**
+   * Draws a whole map from the current position of the cursor.
+   * @param assets The assets giving the colors.
+   * @param map The raster of the map.
+   * @return This renderer.
+   */
+  public RasterRenderer drawBackground(AssetRegistry assets, Raster map) {
+    printer.assets = assets;
+    frame.forgetCursor(); // the lines are jumped with new lines, not with moves of the cursor
+    int height = map.getHeight();
+    if (halfBlocks) {
+      for (int row = 0; row < height; row += 2) {
+        drawHalfBlocks(map, row, 0, map.getWidth(), null, 0, 0);
+        frame.append(NEW_LINE);
+      }
+      return this;
+    }
+    for (int lig = 0; lig < height; lig++) {
+      map.forEachRun(lig, 0, Integer.MAX_VALUE, printer);
+      printer.flush();
+      frame.append(NEW_LINE);
+    }
+    return this;
+  }
+
+  /**
+   * Draws some rows of a map at a specific position of the screen.
+   * @param assets The assets giving the colors.
+   * @param map The raster of the map.
+   * @param fromRow The first row of the map to draw (included).
+   * @param toRow The last row of the map to draw (excluded).
+   * @param cursorX The X-coordinate of the first column of the map on the screen.
+   * @param cursorY The Y-coordinate at which to draw `fromRow`.
+   * @return This renderer.
+   */
+  public RasterRenderer drawRows(AssetRegistry assets, Raster map, int fromRow, int toRow, int cursorX, int cursorY) {
+    printer.assets = assets;
+    if (halfBlocks) {
+      for (int row = fromRow; row < toRow; row += 2) { // the rows are paired from `fromRow`
+        frame.appendCursorMove(cursorX, cursorY + (row - fromRow) / 2);
+        drawHalfBlocks(map, row, 0, map.getWidth(), null, 0, 0);
+      }
+      return this;
+    }
+    for (int row = fromRow; row < toRow; row++) {
+      frame.appendCursorMove(cursorX, cursorY + row - fromRow);
+      map.forEachRun(row, 0, Integer.MAX_VALUE, printer);
+      printer.flush();
+    }
+    return this;
+  }
+
+  /**
+   * Writes a text at a specific position of the screen, with the colors of the terminal.
+   * @param x The X-coordinate of the first character.
+   * @param y The Y-coordinate of the text.
+   * @param text The text, on a single line.
+   * @return This renderer.
+   */
+  public RasterRenderer drawText(int x, int y, String text) {
+    frame.appendCursorMove(x, y).append(ANSI_RESET).append(text).forgetCursor(); // the width of the characters is unknown
+    return this;
+  }
+
+  /**
+   * Draws an element on the foreground.
+   * Instead of drawing transparent pixels that would take the same color as the console,
+   * we paint the corresponding pixel of the background.
+   * @param assets The assets giving the colors.
+   * @param element The raster of an obstacle or of the player.
+   * @param background The raster of the map.
+   * @param cursorX The X-coordinate at which to start drawing the element.
+   * @param cursorY The Y-coordinate at which to start drawing the element.
+   * @param objectX The X-coordinate of the object within the map itself.
+   * @param objectY The Y-coordinate of the object within the map itself.
+   * @return This renderer.
+   */
+  public RasterRenderer drawForeground(AssetRegistry assets, Raster element, Raster background, int cursorX, int cursorY, int objectX, int objectY) {
+    printer.assets = assets;
+    if (level > 0) {
+      cursorX += toLevelX(objectX) - objectX;
+      cursorY += toLevelY(objectY) - objectY;
+      objectX = toLevelX(objectX);
+      objectY = toLevelY(objectY);
+    }
+    int height = element.getHeight();
+    if (halfBlocks) {
+      int top = objectY - Game.PIXEL_SIZE;
+      int left = objectX / Game.PIXEL_SIZE;
+      drawHalfBlockLines(background, element, top, left, element.getWidth(), top, top + height, cursorY - top);
+      return this;
+    }
+    compositor.background = background;
+    compositor.backgroundX = objectX / Game.PIXEL_SIZE;
+    for (int lig = 0; lig < height; lig++) {
+      frame.appendCursorMove(cursorX, cursorY + lig); // each line starts on the same X shift, one line below the previous one
+      compositor.backgroundY = objectY + lig - Game.PIXEL_SIZE;
+      element.forEachRun(lig, 0, Integer.MAX_VALUE, compositor);
+      printer.flush();
+    }
+    return this;
+  }
+
+  /**
+   * Removes an element from the foreground.
+   * This way, the element shall not be replaced with transparent pixels,
+   * but rather the pixels that should be "behind" the element itself.
+   * @param assets The assets giving the colors.
+   * @param element The raster of the element to remove.
+   * @param background The raster of the map.
+   * @param absX The X position where to place the cursor.
+   * @param absY The Y position where to place the cursor.
+   * @param x The X position of the element in the map.
+   * @param y The Y position of the element in the map.
+   * @return This renderer.
+   */
+  public RasterRenderer erase(AssetRegistry assets, Raster element, Raster background, int absX, int absY, int x, int y) {
+    printer.assets = assets;
+    if (level > 0) {
+      absX += toLevelX(x) - x;
+      absY += toLevelY(y) - y;
+      x = toLevelX(x);
+      y = toLevelY(y);
+    }
+    int height = element.getHeight();
+    if (halfBlocks) {
+      int top = y - Game.PIXEL_SIZE;
+      int left = x / Game.PIXEL_SIZE;
+      drawHalfBlockLines(background, null, top, left, element.getWidth(), top, top + height, absY - top);
+      return this;
+    }
+    int fromX = x / Game.PIXEL_SIZE;
+    int toX = fromX + element.getWidth();
+    for (int line = 0; line < height; line++) {
+      frame.appendCursorMove(absX, absY + line);
+      background.forEachRun(y + line - Game.PIXEL_SIZE, fromX, toX, printer);
+      printer.flush();
+    }
+    return this;
+  }
+
+  /**
+   * Moves an element drawn on the foreground up or down, by only redrawing the lines of the screen that change:
+   * the leading edge gets the element, the trailing edge gets the background back,
+   * and a line in between is only redrawn if the element shows a different row there.
+   * @param assets The assets giving the colors.
+   * @param element The raster of the element.
+   * @param rowIds The identifiers of the rows of the element (see `identifyRows`).
+   * @param background The raster of the map.
+   * @param cursorX The X-coordinate at which the element is drawn.
+   * @param cursorY The Y-coordinate at which the element is currently drawn.
+   * @param objectX The X-coordinate of the element within the map itself.
+   * @param objectY The Y-coordinate of the element within the map itself.
+   * @param shift The number of lines to move the element by (negative to move it up).
+   * @return This renderer.
+   */
+  public RasterRenderer moveForeground(AssetRegistry assets, Raster element, int[] rowIds, Raster background,
+                                       int cursorX, int cursorY, int objectX, int objectY, int shift) {
+    printer.assets = assets;
+    if (level > 0) {
+      shift = toLevelY(objectY + shift) - toLevelY(objectY);
+      if (shift == 0) {
+        return this; // the move is too small to be seen at this level
+      }
+      cursorX += toLevelX(objectX) - objectX;
+      cursorY += toLevelY(objectY) - objectY;
+      objectX = toLevelX(objectX);
+      objectY = toLevelY(objectY);
+    }
+    int height = element.getHeight();
+    if (halfBlocks) {
+      moveHalfBlocks(element, rowIds, background, cursorY, objectX, objectY, shift);
+      return this;
+    }
+    compositor.background = background;
+    compositor.backgroundX = objectX / Game.PIXEL_SIZE;
+    int fromX = objectX / Game.PIXEL_SIZE;
+    int toX = fromX + element.getWidth();
+    for (int lig = Math.min(0, shift); lig < Math.max(height, height + shift); lig++) {
+      int oldRow = lig; // the row of the element shown on this line before the move
+      int newRow = lig - shift; // and after
+      boolean before = oldRow >= 0 && oldRow < height;
+      boolean after = newRow >= 0 && newRow < height;
+      int backgroundY = objectY + lig - Game.PIXEL_SIZE;
+      if (after) {
+        if (before && rowIds[oldRow] == rowIds[newRow]) {
+          continue;
+        }
+        frame.appendCursorMove(cursorX, cursorY + lig);
+        compositor.backgroundY = backgroundY;
+        element.forEachRun(newRow, 0, Integer.MAX_VALUE, compositor);
+        printer.flush();
+      } else if (before) {
+        frame.appendCursorMove(cursorX, cursorY + lig);
+        background.forEachRun(backgroundY, fromX, toX, printer);
+        printer.flush();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * `moveForeground` with half blocks: a line is redrawn if one of its two pixels shows something else after the move.
+   */
+  private void moveHalfBlocks(Raster element, int[] rowIds, Raster background, int cursorY, int objectX, int objectY, int shift) {
+    int height = element.getHeight();
+    int oldTop = objectY - Game.PIXEL_SIZE;
+    int newTop = oldTop + shift;
+    int left = objectX / Game.PIXEL_SIZE;
+    int originLine = cursorY - oldTop;
+    int lastRow = Math.max(oldTop, newTop) + height - 1;
+    for (int row = Math.min(oldTop, newTop) & ~1; row <= lastRow; row += 2) {
+      if (isUnchanged(rowIds, height, row - oldTop, row - newTop) && isUnchanged(rowIds, height, row + 1 - oldTop, row + 1 - newTop)) {
+        continue;
+      }
+      frame.appendCursorMove(MAP_FIRST_COLUMN + left, originLine + (row >> 1));
+      drawHalfBlocks(background, row, left, left + element.getWidth(), element, newTop, left);
+    }
+  }
+
+  /**
+   * Does a pixel show the same thing before and after the move of an element?
+   * @param oldRow The row of the element shown by the pixel before the move (out of the element if it showed the background).
+   * @param newRow The row of the element shown by the pixel after the move.
+   */
+  private static boolean isUnchanged(int[] rowIds, int height, int oldRow, int newRow) {
+    boolean before = oldRow >= 0 && oldRow < height;
+    boolean after = newRow >= 0 && newRow < height;
+    return before == after && (!before || rowIds[oldRow] == rowIds[newRow]);
+  }
+
+  /**
+   * Draws, with half blocks, the lines of the screen showing some rows of the map, between the columns of an element.
+   * @param background The raster of the map.
+   * @param element The element drawn over the map, or `null` to only draw the map.
+   * @param elementTop The row of the map where the element starts.
+   * @param elementLeft The column of the map where the element starts.
+   * @param width The number of columns to draw, from `elementLeft`.
+   * @param fromRow The first row of the map to draw (included). The other row of its line is drawn too.
+   * @param toRow The last row of the map to draw (excluded).
+   * @param originLine The line of the screen where the row `0` of the map would be drawn without half blocks.
+   */
+  private void drawHalfBlockLines(Raster background, Raster element, int elementTop, int elementLeft, int width, int fromRow, int toRow, int originLine) {
+    for (int row = fromRow & ~1; row < toRow; row += 2) {
+      frame.appendCursorMove(MAP_FIRST_COLUMN + elementLeft, originLine + (row >> 1));
+      drawHalfBlocks(background, row, elementLeft, elementLeft + width, element, elementTop, elementLeft);
+    }
+  }
+
+  /**
+   * Draws one line of half blocks from the current position of the cursor: the rows `upperRow` and `upperRow + 1` of the map,
+   * with an element over them.
+   * The characters whose two pixels have the same colors are merged into a single color sequence.
+   */
+  private void drawHalfBlocks(Raster background, int upperRow, int fromX, int toX, Raster element, int elementTop, int elementLeft) {
+    int width = toX - fromX;
+    if (upperPixels.length < width) {
+      upperPixels = new int[width];
+      lowerPixels = new int[width];
+    }
+    fillPixels(upperPixels, background, upperRow, fromX, toX, element, elementTop, elementLeft);
+    fillPixels(lowerPixels, background, upperRow + 1, fromX, toX, element, elementTop, elementLeft);
+    int start = 0;
+    for (int x = 1; x <= width; x++) {
+      if (x == width || upperPixels[x] != upperPixels[start] || lowerPixels[x] != lowerPixels[start]) {
+        appendHalfBlocks(upperPixels[start], lowerPixels[start], x - start);
+        start = x;
+      }
+    }
+    frame.append(ANSI_RESET);
+  }
+
+  /**
+   * Gets the colors of a row between two columns of the map: the background, then the element over it.
+   * A pixel outside of the map is transparent (-1).
+   */
+  private void fillPixels(int[] pixels, Raster background, int row, int fromX, int toX, Raster element, int elementTop, int elementLeft) {
+    Arrays.fill(pixels, 0, toX - fromX, -1);
+    filler.pixels = pixels;
+    if (row >= 0 && row < background.getHeight()) {
+      filler.shift = fromX;
+      background.forEachRun(row, fromX, toX, filler);
+    }
+    if (element != null && row >= elementTop && row < elementTop + element.getHeight()) {
+      filler.shift = fromX - elementLeft;
+      element.forEachRun(row - elementTop, fromX - elementLeft, toX - elementLeft, filler);
+    }
+  }
+
+  /**
+   * Appends characters showing the same two pixels.
+   * Two pixels of the same color are a space, so the most common characters (the sky, the ground) take a single byte.
+   */
+  private void appendHalfBlocks(int upper, int lower, int count) {
+    if (upper == lower) {
+      frame.append(upper == -1 ? ANSI_BG_DEFAULT_COLOR : printer.assets.getColor(upper).ANSI).repeat(" ", count);
+    } else if (upper == -1) {
+      frame.append(printer.assets.getColor(lower).FOREGROUND_ANSI).append(ANSI_BG_DEFAULT_COLOR).repeat(LOWER_HALF_BLOCK, count);
+    } else {
+      frame.append(printer.assets.getColor(upper).FOREGROUND_ANSI)
+        .append(lower == -1 ? ANSI_BG_DEFAULT_COLOR : printer.assets.getColor(lower).ANSI)
+        .repeat(UPPER_HALF_BLOCK, count);
+    }
+  }
+
+  /**
+   * Gives the same identifier to the rows of a raster that look exactly the same, so `moveForeground` can skip them.
+   * @param raster The raster of an element.
+   * @return The identifier of each row: the index of the first row identical to it.
+   */
+  public static int[] identifyRows(Raster raster) {
+    ArrayList<ArrayList<Integer>> rows = raster.toMatrix();
+    int[] ids = new int[rows.size()];
+    for (int y = 0; y < ids.length; y++) {
+      ids[y] = rows.indexOf(rows.get(y));
+    }
+    return ids;
+  }
+
+  /**
+   * Writes everything drawn since the last call, in a single write.
+   * @param out The output of the game.
+   */
+  public void flush(PrintStream out) {
+    frame.writeTo(out);
+  }
+
+  /**
+   * Takes everything drawn since the last call without writing it, to write it later, as many times as needed.
+   * @return The bytes of the frame.
+   */
+  public byte[] takeFrame() {
+    return frame.toByteArray();
+  }
+
+  /**
+   * Is there something drawn that hasn't been written yet?
+   * @return `true` if `flush` would write something.
+   */
+  public boolean hasPendingFrame() {
+    return frame.length() > 0;
+  }
+
+  /**
+   * Appends runs of pixels to the frame, with a single color sequence for each run.
+   * Consecutive runs of the same color (an element and the background behind it, for example) are merged.
+   */
+  private class RunPrinter implements Raster.RunConsumer {
+    private AssetRegistry assets;
+    private int pendingColorIndex;
+    private int pendingLength = 0;
+
+    @Override
+    public void accept(int x, int length, int colorIndex) {
+      if (pendingLength > 0 && colorIndex != pendingColorIndex) {
+        flush();
+      }
+      pendingColorIndex = colorIndex;
+      pendingLength += length;
+    }
+
+    /**
+     * Appends the pending run. It must be called at the end of each row.
+     */
+    void flush() {
+      if (pendingLength == 0) {
+        return;
+      }
+      // -1 is a transparent pixel: the exact color of the console is unknown, but ANSI allows us to use a special character for this.
+      frame.append(pendingColorIndex == -1 ? ANSI_BG_DEFAULT_COLOR : assets.getColor(pendingColorIndex).ANSI)
+        .repeat(PIXEL, pendingLength)
+        .append(ANSI_RESET);
+      pendingLength = 0;
+    }
+  }
+
+  /**
+   * Copies the colors of runs into an array of pixels. The transparent runs are skipped, so what's below them stays.
+   */
+  private static class PixelFiller implements Raster.RunConsumer {
+    private int[] pixels;
+    private int shift; // the X-coordinate of the runs matching the first pixel
+
+    @Override
+    public void accept(int x, int length, int colorIndex) {
+      if (colorIndex != -1) {
+        Arrays.fill(pixels, x - shift, x - shift + length, colorIndex);
+      }
+    }
+  }
+
+  /**
+   * Receives the runs of an element on the foreground:
+   * its transparent runs are replaced by the background behind them.
+   */
+  private class Compositor implements Raster.RunConsumer {
+    private Raster background;
+    private int backgroundX;
+    private int backgroundY;
+
+    @Override
+    public void accept(int x, int length, int colorIndex) {
+      if (colorIndex == -1) {
+        background.forEachRun(backgroundY, backgroundX + x, backgroundX + x + length, printer);
+      } else {
+        printer.accept(x, length, colorIndex);
+      }
+    }
+  }
+}
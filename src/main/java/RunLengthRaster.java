@@ -0,0 +1,213 @@
+package main.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A matrix of colors stored as runs: each row is a list of horizontal runs of the same color.
+ * The maps are mostly long runs of sky or ground, so this is much smaller than a list of lists of integers,
+ * and a run is exactly what the renderer draws with a single color sequence.
+ * It's immutable, so it can be shared by several games.
+ */
+public final class RunLengthRaster implements Raster {
+  private final int width;
+  private final int height;
+
+  /**
+   * The index of the first run of each row in `runEnds` and `runColors`.
+   * It has `height + 1` elements, so the runs of the row `y` go from `rowOffsets[y]` to `rowOffsets[y + 1]` (excluded).
+   */
+  private final int[] rowOffsets;
+
+  /**
+   * The X-coordinate just after the last pixel of each run.
+   */
+  private final int[] runEnds;
+
+  /**
+   * The color index of each run.
+   */
+  private final int[] runColors;
+
+  private RunLengthRaster(int width, int height, int[] rowOffsets, int[] runEnds, int[] runColors) {
+    this.width = width;
+    this.height = height;
+    this.rowOffsets = rowOffsets;
+    this.runEnds = runEnds;
+    this.runColors = runColors;
+  }
+
+  /**
+   * Compresses a matrix.
+   * @param matrix A list of rows, each cell being the index of a color in the pallet (-1 is transparent).
+   * @return The same matrix, as runs.
+   */
+  public static RunLengthRaster fromMatrix(List<? extends List<Integer>> matrix) {
+    int height = matrix.size();
+    int width = height == 0 ? 0 : matrix.get(0).size();
+    int[] rowOffsets = new int[height + 1];
+    int[] runEnds = new int[Math.max(16, height)];
+    int[] runColors = new int[runEnds.length];
+    int runs = 0;
+    for (int y = 0; y < height; y++) {
+      rowOffsets[y] = runs;
+      List<Integer> row = matrix.get(y);
+      int rowWidth = row.size();
+      for (int x = 0; x < rowWidth; x++) {
+        int colorIndex = row.get(x);
+        if (runs > rowOffsets[y] && runColors[runs - 1] == colorIndex) {
+          runEnds[runs - 1] = x + 1;
+          continue;
+        }
+        if (runs == runEnds.length) {
+          runEnds = Arrays.copyOf(runEnds, runs * 2);
+          runColors = Arrays.copyOf(runColors, runs * 2);
+        }
+        runEnds[runs] = x + 1;
+        runColors[runs] = colorIndex;
+        runs++;
+      }
+    }
+    rowOffsets[height] = runs;
+    return new RunLengthRaster(width, height, rowOffsets,
+      Arrays.copyOf(runEnds, runs), Arrays.copyOf(runColors, runs));
+  }
+
+  /**
+   * Shrinks a raster to half its width and half its height, for a terminal too small for it (see `GameObject.getRaster(int)`).
+   * Each pixel of the result replaces a square of 2x2 pixels: it takes the most common color of the square,
+   * and it's only transparent if most of the square is, so that the thin parts of a sprite don't disappear.
+   * @param source The raster to shrink.
+   * @return A new raster, whose odd width or height is rounded up.
+   */
+  public static RunLengthRaster halve(Raster source) {
+    return fromMatrix(halvedMatrix(source));
+  }
+
+  /**
+   * Computes the pixels of the half of a raster (see `halve`), so that each kind of raster can store them its own way.
+   * @param source The raster to shrink.
+   * @return The matrix of the half, whose rows all have the same width.
+   */
+  static List<List<Integer>> halvedMatrix(Raster source) {
+    int width = (source.getWidth() + 1) / 2;
+    int height = (source.getHeight() + 1) / 2;
+    List<List<Integer>> matrix = new ArrayList<>(height);
+    int[] square = new int[4];
+    for (int y = 0; y < height; y++) {
+      List<Integer> row = new ArrayList<>(width);
+      for (int x = 0; x < width; x++) {
+        int count = 0;
+        int transparent = 0;
+        for (int dy = 0; dy < 2; dy++) {
+          for (int dx = 0; dx < 2; dx++) {
+            int sx = Math.min(2 * x + dx, source.getWidth() - 1);
+            int sy = Math.min(2 * y + dy, source.getHeight() - 1);
+            int color = source.get(sx, sy);
+            if (color == -1) {
+              transparent++;
+            } else {
+              square[count++] = color;
+            }
+          }
+        }
+        row.add(transparent > 2 ? -1 : mostCommon(square, count));
+      }
+      matrix.add(row);
+    }
+    return matrix;
+  }
+
+  /**
+   * @return The most common of the first `count` colors; the first one found wins a tie.
+   */
+  private static int mostCommon(int[] colors, int count) {
+    int best = colors[0];
+    int bestCount = 0;
+    for (int i = 0; i < count; i++) {
+      int n = 0;
+      for (int j = 0; j < count; j++) {
+        if (colors[j] == colors[i]) {
+          n++;
+        }
+      }
+      if (n > bestCount) {
+        best = colors[i];
+        bestCount = n;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Creates a raster from runs that were already computed (by `AssetSnapshot` for example).
+   * The arrays are used as is, they mustn't be modified afterwards.
+   * @param width The width of the widest row.
+   * @param height The number of rows.
+   * @param rowOffsets The index of the first run of each row, followed by the total number of runs.
+   * @param runEnds The X-coordinate just after the last pixel of each run.
+   * @param runColors The color index of each run.
+   * @return The raster.
+   */
+  static RunLengthRaster fromRuns(int width, int height, int[] rowOffsets, int[] runEnds, int[] runColors) {
+    if (rowOffsets.length != height + 1 || runEnds.length != rowOffsets[height] || runColors.length != runEnds.length) {
+      throw new IllegalArgumentException("The runs don't match a raster of " + height + " rows");
+    }
+    return new RunLengthRaster(width, height, rowOffsets, runEnds, runColors);
+  }
+
+  @Override public int getWidth() { return width; }
+  @Override public int getHeight() { return height; }
+
+  @Override
+  public int getRowWidth(int y) {
+    int last = rowOffsets[y + 1] - 1;
+    return last < rowOffsets[y] ? 0 : runEnds[last];
+  }
+
+  @Override
+  public int getRunCount(int y) {
+    return rowOffsets[y + 1] - rowOffsets[y];
+  }
+
+  @Override
+  public int get(int x, int y) {
+    if (x < 0 || x >= getRowWidth(y)) {
+      throw new IndexOutOfBoundsException("x = " + x + " is out of the row " + y);
+    }
+    return runColors[findRun(y, x)];
+  }
+
+  @Override
+  public void forEachRun(int y, int fromX, int toX, RunConsumer consumer) {
+    int start = Math.max(0, fromX);
+    int end = Math.min(toX, getRowWidth(y));
+    if (start >= end) {
+      return;
+    }
+    int last = rowOffsets[y + 1];
+    for (int run = findRun(y, start); run < last && start < end; run++) {
+      int runEnd = Math.min(runEnds[run], end);
+      consumer.accept(start, runEnd - start, runColors[run]);
+      start = runEnd;
+    }
+  }
+
+  /**
+   * Finds the run containing a pixel, with a binary search on the ends of the runs of the row.
+   */
+  private int findRun(int y, int x) {
+    int low = rowOffsets[y];
+    int high = rowOffsets[y + 1] - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (runEnds[middle] <= x) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,68 @@
+package main.java;
+
+import java.util.Comparator;
+
+/**
+ * The result of a run of a player on a map, as saved in the scores (see `ScoreStore`).
+ * It's immutable.
+ */
+public final class RunResult {
+  /**
+   * The best runs first: the furthest, then the fastest, then the oldest.
+   * The seed and the map break the remaining ties, so that it's consistent with `equals`:
+   * a sorted set only drops a result that is already in it (like the copies of the results written during a compaction, see `ScoreStore`).
+   */
+  public static final Comparator<RunResult> BEST_FIRST = Comparator
+    .comparingInt(RunResult::getDistance).reversed()
+    .thenComparingLong(RunResult::getDurationMillis)
+    .thenComparingLong(RunResult::getTimestamp)
+    .thenComparingLong(RunResult::getSeed)
+    .thenComparing(RunResult::getMapName);
+
+  private final String mapName;
+  private final int distance;
+  private final long durationMillis;
+  private final long seed;
+  private final long timestamp;
+
+  /**
+   * @param mapName The name of the map.
+   * @param distance The number of obstacles the player got past.
+   * @param durationMillis How long the run lasted.
+   * @param seed What generated the obstacles of the run. The levels come from their configs, so it's `0` for now.
+   * @param timestamp When the run ended, in milliseconds since the epoch.
+   */
+  public RunResult(String mapName, int distance, long durationMillis, long seed, long timestamp) {
+    this.mapName = mapName;
+    this.distance = distance;
+    this.durationMillis = durationMillis;
+    this.seed = seed;
+    this.timestamp = timestamp;
+  }
+
+  public String getMapName() { return mapName; }
+  public int getDistance() { return distance; }
+  public long getDurationMillis() { return durationMillis; }
+  public long getSeed() { return seed; }
+  public long getTimestamp() { return timestamp; }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof RunResult)) {
+      return false;
+    }
+    RunResult result = (RunResult) other;
+    return mapName.equals(result.mapName) && distance == result.distance && durationMillis == result.durationMillis
+      && seed == result.seed && timestamp == result.timestamp;
+  }
+
+  @Override
+  public int hashCode() {
+    return mapName.hashCode() * 31 + Long.hashCode(timestamp);
+  }
+
+  @Override
+  public String toString() {
+    return mapName + " : " + distance + " obstacles en " + String.format("%.1f", durationMillis / 1000.0) + " s";
+  }
+}
@@ -0,0 +1,310 @@
+package main.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * The results of the runs, saved in a local file so they survive restarts.
+ *
+ * The file is an append-only log of records: `length | payload | CRC32 of the payload`.
+ * When the store is opened, the log is replayed into a sorted index per map;
+ * if the game was stopped while writing, the log is cut after the last complete record.
+ *
+ * Saving a result never blocks the game: the result is added to the index at once,
+ * then a background thread writes the pending results together, with a single write and a single sync (a group commit).
+ * From time to time, the log is compacted: it's rewritten with only the results kept in the index.
+ *
+ * It's thread-safe: all the sessions of a server share the same store.
+ */
+public final class ScoreStore implements AutoCloseable {
+  public static final String DEFAULT_PATH = "scores.log";
+
+  /**
+   * The number of results kept for each map. The others are dropped when the log is compacted.
+   */
+  static final int KEPT_PER_MAP = 100;
+
+  /**
+   * The number of records appended to the log before it's compacted.
+   */
+  static final int COMPACTION_INTERVAL = 1000;
+
+  private static final byte RECORD_VERSION = 1;
+
+  /**
+   * A record bigger than this can only come from a corrupted log.
+   */
+  private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  /**
+   * Tells the writer to stop, once everything before it is written.
+   */
+  private static final RunResult STOP = new RunResult("", 0, 0, 0, 0);
+
+  private final Path path;
+  private final ConcurrentHashMap<String, NavigableSet<RunResult>> index = new ConcurrentHashMap<>();
+  private final BlockingQueue<RunResult> pending = new LinkedBlockingQueue<>();
+  private final Thread writer;
+
+  /**
+   * Why the writer stopped, if the file couldn't be written.
+   * The results recorded afterwards stay in the index, but aren't saved anymore.
+   */
+  private volatile IOException error;
+
+  /**
+   * Only used by the writer thread (and by the constructor, before the writer starts).
+   */
+  private FileChannel log;
+  private int appendedSinceCompaction;
+
+  /**
+   * Opens the store, creating its file if it doesn't exist.
+   * @param path The file of the log.
+   * @throws IOException If the file can't be read or created.
+   */
+  public ScoreStore(Path path) throws IOException {
+    this.path = path;
+    this.log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long end = replay();
+      if (end < log.size()) {
+        log.truncate(end); // the end of the log is incomplete or corrupted
+      }
+      log.position(end);
+    } catch (IOException e) {
+      log.close();
+      throw e;
+    }
+    this.writer = new Thread(this::writePending, "score-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Saves the result of a run.
+   * It's visible in `getTopScores` immediately, and written to the file shortly after,
+   * unless the file couldn't be written before (see `close`).
+   * @param result The result of the run.
+   */
+  public void record(RunResult result) {
+    addToIndex(result);
+    if (error == null) {
+      pending.add(result);
+    }
+  }
+
+  /**
+   * Gets the best results of a map.
+   * @param mapName The name of the map.
+   * @param count The maximal number of results.
+   * @return The best results first (see `RunResult.BEST_FIRST`).
+   */
+  public List<RunResult> getTopScores(String mapName, int count) {
+    NavigableSet<RunResult> results = index.get(mapName);
+    if (results == null) {
+      return Collections.emptyList();
+    }
+    List<RunResult> top = new ArrayList<>(Math.min(count, KEPT_PER_MAP));
+    Iterator<RunResult> iterator = results.iterator();
+    while (top.size() < count && iterator.hasNext()) {
+      top.add(iterator.next());
+    }
+    return top;
+  }
+
+  /**
+   * Writes the pending results, then closes the file.
+   * @throws IOException If the file couldn't be written, now or since the store was opened.
+   */
+  @Override
+  public void close() throws IOException {
+    pending.add(STOP);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  private void addToIndex(RunResult result) {
+    NavigableSet<RunResult> results = index.computeIfAbsent(result.getMapName(), name -> new ConcurrentSkipListSet<>(RunResult.BEST_FIRST));
+    results.add(result);
+    while (results.size() > KEPT_PER_MAP) {
+      results.pollLast();
+    }
+  }
+
+  /**
+   * Reads the log into the index.
+   * @return The position right after the last valid record.
+   */
+  private long replay() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES);
+    long position = 0;
+    try {
+      while (true) {
+        readFully(header.clear(), position);
+        int length = header.flip().getInt();
+        if (length <= 0 || length > MAX_RECORD_LENGTH) {
+          return position;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, position + Integer.BYTES);
+        readFully(checksum.clear(), position + Integer.BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        if ((int)crc.getValue() != checksum.flip().getInt()) {
+          return position;
+        }
+        RunResult result = decode(payload.flip());
+        if (result == null) {
+          return position;
+        }
+        addToIndex(result);
+        appendedSinceCompaction++;
+        position += Integer.BYTES + length + Integer.BYTES;
+      }
+    } catch (EOFException e) {
+      return position;
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (log.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  /**
+   * The loop of the writer thread: waits for a result, then writes it with all the others waiting.
+   */
+  private void writePending() {
+    List<RunResult> batch = new ArrayList<>();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    boolean stopping = false;
+    try {
+      while (!stopping) {
+        batch.add(pending.take());
+        pending.drainTo(batch);
+        bytes.reset();
+        for (RunResult result : batch) {
+          if (result == STOP) {
+            stopping = true;
+          } else {
+            encode(result, bytes);
+            appendedSinceCompaction++;
+          }
+        }
+        batch.clear();
+        if (bytes.size() > 0) {
+          ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+          while (buffer.hasRemaining()) {
+            log.write(buffer);
+          }
+          log.force(false);
+        }
+        if (appendedSinceCompaction >= COMPACTION_INTERVAL) {
+          compact();
+        }
+      }
+    } catch (IOException e) {
+      error = e;
+      pending.clear();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        log.close();
+      } catch (IOException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Rewrites the log with the results of the index only, then replaces the old log with it.
+   * A result recorded meanwhile is also appended to the new log afterwards:
+   * the duplicate is ignored when the log is replayed, since the index is a set.
+   */
+  private void compact() throws IOException {
+    Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (NavigableSet<RunResult> results : index.values()) {
+      for (RunResult result : results) {
+        encode(result, bytes);
+      }
+    }
+    Files.write(compacted, bytes.toByteArray());
+    try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    log.close();
+    Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    log = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    log.position(log.size());
+    appendedSinceCompaction = 0;
+  }
+
+  private static void encode(RunResult result, ByteArrayOutputStream target) {
+    try {
+      ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+      DataOutputStream data = new DataOutputStream(payload);
+      data.writeByte(RECORD_VERSION);
+      data.writeUTF(result.getMapName());
+      data.writeInt(result.getDistance());
+      data.writeLong(result.getDurationMillis());
+      data.writeLong(result.getSeed());
+      data.writeLong(result.getTimestamp());
+      byte[] bytes = payload.toByteArray();
+      CRC32 crc = new CRC32();
+      crc.update(bytes);
+      DataOutputStream record = new DataOutputStream(target);
+      record.writeInt(bytes.length);
+      record.write(bytes);
+      record.writeInt((int)crc.getValue());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // impossible, it's written in memory
+    }
+  }
+
+  /**
+   * @return The result, or `null` if the record comes from an unknown version.
+   */
+  private static RunResult decode(ByteBuffer payload) throws IOException {
+    DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload.array(), payload.position(), payload.remaining()));
+    if (data.readByte() != RECORD_VERSION) {
+      return null;
+    }
+    return new RunResult(data.readUTF(), data.readInt(), data.readLong(), data.readLong(), data.readLong());
+  }
+}
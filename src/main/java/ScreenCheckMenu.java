@@ -11,6 +11,11 @@ public class ScreenCheckMenu extends GameMenu {
     this.pixel_size = pixel_size;
   }
 
+  @Override
+  protected String getCacheKey() {
+    return super.getCacheKey() + ":" + min_height + "x" + min_width + "x" + pixel_size;
+  }
+
   /**
    * Executes a little program to see if the user has a big enough console to play with.
    * It displays numbers both horizontally and vertically
@@ -19,14 +24,14 @@ public class ScreenCheckMenu extends GameMenu {
    */
   @Override
   protected void display() {
-    Controls.println("L'écran est à la bonne taille si vous pouvez voir les nombres " + min_height + " en hauteur et " + min_width + " en largeur.");
+    println("L'écran est à la bonne taille si vous pouvez voir les nombres " + min_height + " en hauteur et " + min_width + " en largeur.");
     for(int i = 0; i < min_height; i++) {
-		  System.out.print(".".repeat(pixel_size));
+		  out.print(".".repeat(pixel_size));
 	  }
-    System.out.print(min_height);
-	  Controls.println("");
+    out.print(min_height);
+	  println("");
 	  for(int h = 1; h < min_width + 1; h++) {
-		  Controls.println(String.format("%0" + pixel_size + "d", h) + " ");
+		  println(String.format("%0" + pixel_size + "d", h) + " ");
 	  }
   }
 }
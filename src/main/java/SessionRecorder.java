@@ -0,0 +1,183 @@
+package main.java;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the game of the player in an asciicast file (version 2), that `asciinema play` can replay.
+ *
+ * The game draws on this stream as usual (see `FrameTap`). Its thread only gives each frame a time and queues it:
+ * another thread applies the frame to a copy of the screen, and writes what changed since the previous frame (see `VirtualTerminal.diff`).
+ * So a frame that draws the same thing again, or clears the whole screen to draw almost the same thing, takes little room in the file.
+ *
+ * The file is written through a buffer, flushed each time the recording thread has nothing left to do.
+ */
+public final class SessionRecorder extends FrameTap {
+  public static final String DEFAULT_PATH = "session.cast";
+
+  /**
+   * Stops the recording thread.
+   */
+  private static final Frame END = new Frame(0, new byte[0]);
+
+  /**
+   * The frames flushed within this delay of each other are recorded as a single one.
+   * It's shorter than a frame of the jump (see `Game.JUMP_DELAY_BETWEEN_EACH_FRAME`).
+   */
+  private static final long MERGE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  private static final class Frame {
+    private final long nanoTime;
+    private final byte[] bytes;
+
+    private Frame(long nanoTime, byte[] bytes) {
+      this.nanoTime = nanoTime;
+      this.bytes = bytes;
+    }
+  }
+
+  private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+  private final BufferedWriter file;
+  private final long startNanoTime = System.nanoTime();
+
+  /**
+   * Only used by the recording thread.
+   */
+  private final VirtualTerminal screen;
+  private final VirtualTerminal recorded;
+
+  private final Thread recorder;
+  private volatile IOException error;
+
+  /**
+   * Starts recording.
+   * @param player Where the player sees the game (the standard output for example).
+   * @param path The file of the recording, replaced if it exists.
+   * @param columns The width of the screen of the recording.
+   * @param rows The height of the screen of the recording.
+   * @throws IOException If the file can't be created.
+   */
+  public SessionRecorder(OutputStream player, Path path, int columns, int rows) throws IOException {
+    super(player);
+    this.screen = new VirtualTerminal(columns, rows);
+    this.recorded = new VirtualTerminal(columns, rows);
+    this.file = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    file.write("{\"version\": 2, \"width\": " + columns + ", \"height\": " + rows
+      + ", \"timestamp\": " + System.currentTimeMillis() / 1000 + ", \"env\": {\"TERM\": \"xterm-256color\"}}\n");
+    this.recorder = new Thread(this::recordForever, "recorder");
+    recorder.setDaemon(true); // it must not prevent the game from stopping, `close` waits for it
+    recorder.start();
+  }
+
+  @Override
+  protected void frameFlushed(byte[] frame) {
+    frames.add(new Frame(System.nanoTime(), frame));
+  }
+
+  private void recordForever() {
+    try {
+      Frame held = null; // a frame read too late to be merged with the previous ones
+      while (true) {
+        Frame frame = held != null ? held : frames.poll();
+        held = null;
+        if (frame == null) {
+          file.flush(); // nothing to do for now, so what was recorded can be saved
+          frame = frames.take();
+        }
+        if (frame == END) {
+          break;
+        }
+        // the frames drawn at almost the same time are recorded as one (a cleared screen and the map drawn again, for example)
+        apply(frame);
+        long time = frame.nanoTime;
+        for (Frame next; (next = frames.poll(frame.nanoTime + MERGE_NANOS - System.nanoTime(), TimeUnit.NANOSECONDS)) != null;) {
+          if (next == END || next.nanoTime - frame.nanoTime >= MERGE_NANOS) {
+            held = next;
+            break;
+          }
+          apply(next);
+          time = next.nanoTime;
+        }
+        record(time);
+      }
+    } catch (IOException e) {
+      error = e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        file.close();
+      } catch (IOException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+  }
+
+  private void apply(Frame frame) {
+    try {
+      screen.write(frame.bytes, 0, frame.bytes.length);
+    } catch (IllegalStateException e) {
+      // a sequence the copy doesn't understand: the recording may be wrong until the screen is cleared
+    }
+  }
+
+  /**
+   * Writes what changed on the screen since the last event.
+   * @param nanoTime When the screen looked like this.
+   */
+  private void record(long nanoTime) throws IOException {
+    String diff = screen.diff(recorded);
+    if (diff.isEmpty()) {
+      return;
+    }
+    recorded.write(diff.getBytes(StandardCharsets.UTF_8));
+    long micros = (nanoTime - startNanoTime) / 1000;
+    file.write(String.format("[%d.%06d, \"o\", ", micros / 1_000_000, micros % 1_000_000));
+    writeJSONString(diff);
+    file.write("]\n");
+  }
+
+  private void writeJSONString(String text) throws IOException {
+    file.write('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        file.write('\\');
+        file.write(c);
+      } else if (c < 0x20) {
+        file.write(String.format("\\u%04x", (int)c));
+      } else {
+        file.write(c);
+      }
+    }
+    file.write('"');
+  }
+
+  /**
+   * Records the last frame, then waits until everything is written in the file.
+   * It doesn't close the stream of the player.
+   * @throws IOException If the file couldn't be written.
+   */
+  @Override
+  public void close() throws IOException {
+    super.close();
+    frames.add(END);
+    try {
+      recorder.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package main.java;
+
+import java.util.ArrayList;
+
+/**
+ * One skin of the player (its name and its matrix).
+ */
+public class Skin extends GameObject {
+  public Skin(String name, ArrayList<ArrayList<Integer>> matrix) {
+    super(name, matrix);
+  }
+
+  public Skin(String name, Raster raster) {
+    super(name, raster);
+  }
+
+  Skin(String name, Raster[] levels) {
+    super(name, levels);
+  }
+}
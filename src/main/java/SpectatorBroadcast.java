@@ -0,0 +1,244 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shows the game of the player to spectators, on other terminals.
+ *
+ * The game draws on this stream as usual (see `FrameTap`),
+ * and each frame is kept in a single buffer shared by all the spectators,
+ * so a frame is never drawn again nor copied for each of them.
+ *
+ * Each spectator has its own thread and a small queue of frames. A spectator too slow to keep up
+ * doesn't slow the player down: when its queue is full, its pending frames are dropped
+ * and it gets a keyframe instead, that draws the whole screen. So does a spectator that just arrived.
+ * The keyframes come from a copy of the screen of the player (see `VirtualTerminal`), kept up to date by another thread.
+ *
+ * The spectators only receive: for example `socat -u TCP:localhost:4243 -` in a terminal in raw mode.
+ */
+public final class SpectatorBroadcast extends FrameTap {
+  public static final int DEFAULT_PORT = 4243;
+
+  /**
+   * The most frames waiting for a spectator. About a second of jump.
+   */
+  static final int VIEWER_QUEUE_FRAMES = 64;
+
+  /**
+   * Wakes the broadcasting thread up without any new frame, for the spectators that just arrived.
+   */
+  private static final byte[] NO_FRAME = new byte[0];
+
+  /**
+   * The frames flushed by the game, waiting to be broadcast.
+   * It isn't bounded: the broadcasting thread doesn't write anywhere, so it can't be slow for long.
+   */
+  private final BlockingQueue<byte[]> frames = new LinkedBlockingQueue<>();
+
+  private final ConcurrentLinkedQueue<Viewer> arrivals = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Only used by the broadcasting thread.
+   */
+  private final List<Viewer> viewers = new ArrayList<>();
+  private final VirtualTerminal screen;
+
+  private final AtomicInteger viewerCount = new AtomicInteger();
+  private final AtomicLong droppedFrames = new AtomicLong();
+  private final Thread broadcaster;
+  private volatile ServerSocketChannel server;
+  private volatile boolean closed = false;
+
+  /**
+   * @param player Where the player sees the game (the standard output for example).
+   * @param columns The width of the copy of the screen of the player.
+   * @param rows The height of the copy of the screen of the player.
+   */
+  public SpectatorBroadcast(OutputStream player, int columns, int rows) {
+    super(player);
+    this.screen = new VirtualTerminal(columns, rows);
+    this.broadcaster = new Thread(this::broadcastForever, "spectators");
+    broadcaster.setDaemon(true); // it must not prevent the game from stopping
+    broadcaster.start();
+  }
+
+  @Override
+  protected void frameFlushed(byte[] frame) {
+    frames.add(frame);
+  }
+
+  /**
+   * Adds a spectator. It gets a keyframe right away, then the next frames.
+   * @param channel Where the spectator sees the game: a socket, or a terminal opened as a file (`/dev/pts/3` for example).
+   */
+  public void addViewer(WritableByteChannel channel) {
+    Viewer viewer = new Viewer(channel);
+    viewerCount.incrementAndGet();
+    arrivals.add(viewer);
+    frames.add(NO_FRAME);
+    viewer.thread.setDaemon(true);
+    viewer.thread.start();
+  }
+
+  /**
+   * Accepts the spectators connecting to a local port, on its own thread.
+   * @param port The local port on which the spectators connect.
+   * @throws IOException If the port can't be opened.
+   */
+  public void listen(int port) throws IOException {
+    ServerSocketChannel server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    this.server = server;
+    Thread acceptor = new Thread(() -> {
+      try (server) {
+        while (!closed) {
+          SocketChannel socket = server.accept();
+          socket.socket().setTcpNoDelay(true);
+          addViewer(socket);
+        }
+      } catch (IOException e) {
+        // the port was closed along with the game
+      }
+    }, "spectator-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  private void broadcastForever() {
+    try {
+      while (!closed) {
+        byte[] frame = frames.take();
+        for (Viewer viewer; (viewer = arrivals.poll()) != null;) {
+          viewers.add(viewer);
+        }
+        if (frame.length > 0) {
+          try {
+            screen.write(frame, 0, frame.length);
+          } catch (IllegalStateException e) {
+            // a sequence the copy doesn't understand: the keyframes may be wrong until the screen is cleared
+          }
+        }
+        broadcast(frame);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void broadcast(byte[] frame) {
+    ByteBuffer shared = ByteBuffer.wrap(frame).asReadOnlyBuffer();
+    ByteBuffer keyframe = null; // made at most once per frame, and only when someone needs it
+    for (Iterator<Viewer> iterator = viewers.iterator(); iterator.hasNext();) {
+      Viewer viewer = iterator.next();
+      if (viewer.closed) {
+        iterator.remove();
+        viewerCount.decrementAndGet();
+        continue;
+      }
+      if (!viewer.needsKeyframe) {
+        if (frame.length == 0 || viewer.queue.offer(shared.duplicate())) { // each spectator reads the same bytes at its own pace
+          continue;
+        }
+        droppedFrames.addAndGet(viewer.queue.size() + 1);
+      }
+      if (keyframe == null) {
+        keyframe = ByteBuffer.wrap(screen.toKeyframe().getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+      }
+      // the keyframe already contains this frame and the dropped ones
+      viewer.queue.clear();
+      viewer.queue.offer(keyframe.duplicate());
+      viewer.needsKeyframe = false;
+    }
+  }
+
+  /**
+   * @return The number of spectators currently watching.
+   */
+  public int getViewerCount() { return viewerCount.get(); }
+
+  /**
+   * @return The number of frames that weren't sent to a spectator too slow to receive them, for all the spectators.
+   */
+  public long getDroppedFrames() { return droppedFrames.get(); }
+
+  /**
+   * Stops broadcasting and disconnects the spectators. It doesn't close the stream of the player.
+   */
+  @Override
+  public void close() throws IOException {
+    super.close();
+    closed = true;
+    if (server != null) {
+      server.close();
+    }
+    broadcaster.interrupt();
+    for (Viewer viewer; (viewer = arrivals.poll()) != null;) {
+      viewer.close();
+    }
+    // the broadcasting thread is stopped, so the list of spectators can't change anymore
+    try {
+      broadcaster.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (Viewer viewer : viewers) {
+      viewer.close();
+    }
+  }
+
+  /**
+   * A spectator, with the thread writing its frames.
+   */
+  private static final class Viewer implements Runnable {
+    private final WritableByteChannel channel;
+    private final BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(VIEWER_QUEUE_FRAMES);
+    private boolean needsKeyframe = true; // only used by the broadcasting thread
+    private volatile boolean closed = false;
+    private final Thread thread = new Thread(this, "spectator");
+
+    private Viewer(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          ByteBuffer frame = queue.take();
+          while (frame.hasRemaining()) {
+            channel.write(frame);
+          }
+        }
+      } catch (IOException | InterruptedException e) {
+        // the spectator left
+      } finally {
+        close();
+      }
+    }
+
+    private void close() {
+      closed = true;
+      thread.interrupt(); // it also closes the channel if a write is pending
+      try {
+        channel.close();
+      } catch (IOException ignore) {}
+    }
+  }
+}
@@ -0,0 +1,405 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Several players on the same terminal, each one with its own jump key.
+ * Each player gets a lane: a horizontal band of the same map, the lanes being stacked vertically.
+ * The obstacles of each lane follow the config of the map (`MapSpawnConfig`), independently from the other lanes.
+ *
+ * Everything happens on a single thread, at each tick:
+ * all the lanes are updated, the collisions of all the players are tested in a single pass,
+ * then the changes of all the lanes are drawn into one frame, written with a single flush.
+ * The keyboard thread only records the jumps, so the lanes don't need any lock.
+ */
+public class SplitLaneGame extends Controls {
+  static final int MAX_PLAYERS = 4;
+
+  /**
+   * The jump key of each player, and its name in the header.
+   */
+  private static final char[] JUMP_KEYS = { ' ', 'm', 'a', 'p' };
+  private static final String[] JUMP_KEY_NAMES = { "espace", "m", "a", "p" };
+
+  /**
+   * The delay between two ticks.
+   * It's shorter than the delay between two steps of the fastest obstacle, so that no step is late.
+   */
+  private static final long TICK_DELAY = 5;
+
+  /**
+   * In the single player game, the first row of the map is drawn on the second line of the screen (see `CLEAR_SCREEN`).
+   * The Y-coordinates of the configs and of the player count from the top of the screen, so this is subtracted to get a row of the map.
+   */
+  private static final int MAP_SCREEN_Y = 2;
+
+  /**
+   * The lanes are drawn below the header.
+   */
+  private static final int FIRST_LANE_Y = 2;
+
+  private static final int NOT_DRAWN = -1; // the player hasn't been drawn yet
+
+  private static final int PLAYING = 0;
+  private static final int LOST = 1;
+  private static final int WON = 2;
+
+  private final AssetRegistry assets;
+  private final Raster map;
+  private final Raster skin;
+  private final int[] skinRowIds; // see `RasterRenderer.identifyRows`
+  private final int floorY; // where the players stand on the terrain of the map (see `Game.getFloorY`)
+  private final int ceilingY; // the highest they can jump (see `Game.getCeilingY`)
+  private final ArrayList<ObstacleSpawn> spawns;
+  private final Lane[] lanes;
+
+  /**
+   * The first row of the map shown in each lane: high enough for the top of the jump and for every obstacle.
+   */
+  private final int laneTopRow;
+  private final int laneHeight;
+
+  /**
+   * The column where an obstacle hits the players (see `Game.ObstacleMovement`).
+   */
+  private final int collisionX;
+
+  /**
+   * Draws all the lanes. It's only used by the thread of the ticks.
+   */
+  private final RasterRenderer renderer = new RasterRenderer();
+
+  /**
+   * The jumps requested by the keyboard thread since the last tick (`1` for a request), one per player.
+   */
+  private final AtomicIntegerArray jumpRequests;
+
+  /**
+   * The positions used to test the collisions of all the players at once, one element per lane.
+   */
+  private final boolean[] crossed;
+  private final int[] obstacleTops;
+  private final int[] obstacleHeights;
+  private final int[] playerTops;
+  private final boolean[] hit;
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private volatile boolean over = false;
+  private volatile boolean quit = false;
+
+  /**
+   * Creates a game for several players, on the terminal of the process.
+   * @param assets The assets of the game.
+   * @param mapName The map shared by all the lanes.
+   * @param players The number of players, from 1 to `MAX_PLAYERS`.
+   */
+  public SplitLaneGame(AssetRegistry assets, String mapName, int players) {
+    this(null, System.out, assets, mapName, players);
+  }
+
+  /**
+   * Creates a game for several players, played through specific streams (see `Controls`).
+   * @param input The stream from which the keys are read, or `null` for the terminal of the process.
+   * @param out The stream on which the game is drawn.
+   * @param assets The assets of the game.
+   * @param mapName The map shared by all the lanes.
+   * @param players The number of players, from 1 to `MAX_PLAYERS`.
+   */
+  public SplitLaneGame(InputStream input, PrintStream out, AssetRegistry assets, String mapName, int players) {
+    super(input, out);
+    if (players < 1 || players > MAX_PLAYERS) {
+      throw new IllegalArgumentException("Il faut entre 1 et " + MAX_PLAYERS + " joueurs");
+    }
+    if (assets.getMap(mapName) == null || assets.getConfig(mapName) == null) {
+      throw new IllegalArgumentException("La carte '" + mapName + "' n'existe pas");
+    }
+    this.assets = assets;
+    this.map = assets.getMap(mapName).getRaster();
+    this.skin = assets.getSkin(Game.PLAYER_DEFAULT_SKIN).getRaster();
+    this.skinRowIds = RasterRenderer.identifyRows(skin);
+    this.spawns = assets.getConfig(mapName).getSpawns();
+
+    Terrain terrain = assets.getTerrain(mapName);
+    this.floorY = Game.getFloorY(terrain, skin, Game.PLAYER_X / Game.PIXEL_SIZE);
+    this.ceilingY = Game.getCeilingY(terrain, skin, Game.PLAYER_X / Game.PIXEL_SIZE, floorY);
+    int topRow = Math.max(ceilingY, floorY - Game.JUMP_HEIGHT) - MAP_SCREEN_Y - Game.PIXEL_SIZE;
+    for (ObstacleSpawn spawn : spawns) {
+      topRow = Math.min(topRow, spawn.getY() - MAP_SCREEN_Y);
+    }
+    this.laneTopRow = Math.max(0, topRow);
+    this.laneHeight = map.getHeight() - laneTopRow;
+    this.collisionX = (Game.PLAYER_X + skin.getWidth()) * Game.PIXEL_SIZE - 1;
+
+    this.jumpRequests = new AtomicIntegerArray(players);
+    this.crossed = new boolean[players];
+    this.obstacleTops = new int[players];
+    this.obstacleHeights = new int[players];
+    this.playerTops = new int[players];
+    this.hit = new boolean[players];
+    this.lanes = new Lane[players];
+    for (int i = 0; i < players; i++) {
+      lanes[i] = new Lane(i, FIRST_LANE_Y + i * laneHeight);
+    }
+  }
+
+  /**
+   * Starts the game. It blocks until the players quit.
+   */
+  public void start() {
+    enableKeyTypedInConsole(true);
+    begin(System.nanoTime());
+    scheduler.scheduleWithFixedDelay(() -> tick(System.nanoTime()), TICK_DELAY, TICK_DELAY, TimeUnit.MILLISECONDS);
+    while (!over && !quit) {
+      sleep(100);
+    }
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    moveCursorTo(1, FIRST_LANE_Y + lanes.length * laneHeight);
+    println("");
+    for (Lane lane : lanes) {
+      println("Joueur " + (lane.index + 1) + " : " + (lane.status == WON ? "gagné !" : lane.status == LOST ? "perdu..." : "abandon"));
+    }
+    if (!quit) {
+      println("Appuie sur 'q' pour quitter.");
+      while (!quit) {
+        sleep(100);
+      }
+    }
+    enableKeyTypedInConsole(false);
+  }
+
+  /**
+   * Clears the screen, then draws the header and the lanes with their first obstacles.
+   * @param now The time of the start, from `System.nanoTime()`.
+   */
+  protected void begin(long now) {
+    clearMyScreen();
+    StringBuilder header = new StringBuilder();
+    for (int i = 0; i < lanes.length; i++) {
+      header.append("Joueur ").append(i + 1).append(" : ").append(JUMP_KEY_NAMES[i]).append("   ");
+    }
+    renderer.drawText(1, 1, header.append("'q' pour quitter").toString());
+    for (Lane lane : lanes) {
+      renderer.drawRows(assets, map, laneTopRow, map.getHeight(), 1, lane.screenTop);
+      lane.spawn(0, now);
+      lane.draw();
+    }
+    renderer.flush(out);
+  }
+
+  /**
+   * Updates all the lanes, then draws them in a single frame.
+   * It must not allocate anything.
+   * @param now The time of the tick, from `System.nanoTime()`.
+   */
+  protected void tick(long now) {
+    boolean playing = false;
+    for (Lane lane : lanes) {
+      if (lane.status == PLAYING) {
+        lane.update(now);
+        playing = true;
+      }
+    }
+    detectCollisions();
+    for (Lane lane : lanes) {
+      if (lane.status != PLAYING) {
+        continue;
+      }
+      if (hit[lane.index]) {
+        lane.end(LOST);
+      } else if (lane.obstacleX <= lane.obstacle.getWidth()) {
+        lane.erase();
+        lane.spawn(lane.spawnIndex + 1, now);
+      }
+      if (lane.status == PLAYING) {
+        lane.draw();
+      }
+    }
+    if (renderer.hasPendingFrame()) {
+      renderer.flush(out);
+    }
+    if (!playing) {
+      over = true;
+    }
+  }
+
+  /**
+   * Tests the collisions of all the players in a single pass over the positions of the lanes.
+   * Like in the single player game, an obstacle hits a player when it reaches the player,
+   * unless it's entirely above or below the player.
+   */
+  private void detectCollisions() {
+    int playerHeight = skin.getHeight();
+    for (int i = 0; i < hit.length; i++) {
+      boolean isObstacleAbovePlayer = obstacleTops[i] + obstacleHeights[i] < playerTops[i];
+      boolean isObstacleBelowPlayer = obstacleTops[i] > playerTops[i] + playerHeight;
+      hit[i] = crossed[i] && !isObstacleAbovePlayer && !isObstacleBelowPlayer;
+    }
+  }
+
+  @Override
+  protected void keyTypedInConsole(int keyCode) {
+    for (int i = 0; i < lanes.length; i++) {
+      if (keyCode == JUMP_KEYS[i]) {
+        jumpRequests.set(i, 1);
+        return;
+      }
+    }
+    if (keyCode == (int)'q') {
+      quit = true;
+    }
+  }
+
+  @Override
+  protected void inputClosed() {
+    quit = true;
+  }
+
+  /**
+   * The lane of a player: its position, its jump and the current obstacle.
+   * It's only used by the thread of the ticks.
+   * The Y-coordinates count from the top of the screen of the single player game, like in the configs.
+   */
+  private class Lane {
+    private final int index;
+    private final int screenTop;
+    private int status = PLAYING;
+
+    private int playerY = floorY;
+    private int drawnPlayerY = NOT_DRAWN;
+    private final JumpPhysics jump = new JumpPhysics(Game.JUMP_HEIGHT, Game.JUMP_APEX_MILLIS);
+    private long jumpStart;
+
+    private int spawnIndex;
+    private Raster obstacle;
+    private int obstacleY;
+    private long obstacleDelay;
+    private long nextObstacleStep;
+    private int obstacleX;
+    private int drawnObstacleX = -1;
+
+    Lane(int index, int screenTop) {
+      this.index = index;
+      this.screenTop = screenTop;
+    }
+
+    /**
+     * Converts a Y-coordinate of the single player game into a line of the screen.
+     */
+    private int toScreenY(int y) {
+      return screenTop + y - MAP_SCREEN_Y - laneTopRow;
+    }
+
+    /**
+     * Starts the movement of an obstacle from the right of the map, or ends the lane if there isn't any left.
+     */
+    void spawn(int spawnIndex, long now) {
+      if (spawnIndex >= spawns.size()) {
+        end(WON);
+        return;
+      }
+      ObstacleSpawn spawn = spawns.get(spawnIndex);
+      this.spawnIndex = spawnIndex;
+      this.obstacle = assets.getObstacle(spawn.getName()).getRaster();
+      this.obstacleY = spawn.getY();
+      this.obstacleDelay = TimeUnit.MILLISECONDS.toNanos(Game.getStepDelay(spawn));
+      this.nextObstacleStep = now + obstacleDelay;
+      this.obstacleX = (map.getWidth() - obstacle.getWidth()) * Game.PIXEL_SIZE - 1;
+      this.drawnObstacleX = -1;
+    }
+
+    /**
+     * Moves the player and the obstacle as many steps as their delays allow since the last tick.
+     */
+    void update(long now) {
+      if (jumpRequests.getAndSet(index, 0) == 1 && !jump.isJumping()) {
+        jump.start();
+        jumpStart = now;
+      }
+      if (jump.isJumping()) {
+        jump.advanceTo(now - jumpStart);
+        playerY = Math.max(ceilingY, floorY - jump.getHeight());
+      }
+      int previousX = obstacleX;
+      while (now >= nextObstacleStep && obstacleX > obstacle.getWidth()) {
+        obstacleX--;
+        nextObstacleStep += obstacleDelay;
+      }
+      crossed[index] = previousX > collisionX && obstacleX <= collisionX;
+      obstacleTops[index] = obstacleY;
+      obstacleHeights[index] = obstacle.getHeight();
+      playerTops[index] = playerY;
+    }
+
+    /**
+     * Draws what moved since the last frame.
+     * The player is drawn after the obstacle, and also when the obstacle is drawn over it.
+     */
+    void draw() {
+      boolean obstacleMoved = drawnObstacleX != obstacleX;
+      if (obstacleMoved) {
+        if (drawnObstacleX != -1) {
+          renderer.erase(assets, obstacle, map, drawnObstacleX, toScreenY(obstacleY), drawnObstacleX, obstacleY);
+        }
+        renderer.drawForeground(assets, obstacle, map, obstacleX, toScreenY(obstacleY), obstacleX, obstacleY);
+        drawnObstacleX = obstacleX;
+      }
+      boolean playerMoved = drawnPlayerY != playerY;
+      boolean covered = obstacleMoved && obstacleX <= (Game.PLAYER_X + skin.getWidth() + 1) * Game.PIXEL_SIZE;
+      if (playerMoved && !covered && drawnPlayerY != NOT_DRAWN) {
+        renderer.moveForeground(assets, skin, skinRowIds, map, Game.PLAYER_X + 1, toScreenY(drawnPlayerY), Game.PLAYER_X, drawnPlayerY, playerY - drawnPlayerY);
+        drawnPlayerY = playerY;
+      } else if (playerMoved || covered) {
+        if (playerMoved && drawnPlayerY != NOT_DRAWN) {
+          renderer.erase(assets, skin, map, Game.PLAYER_X + 1, toScreenY(drawnPlayerY), Game.PLAYER_X, drawnPlayerY);
+        }
+        renderer.drawForeground(assets, skin, map, Game.PLAYER_X + 1, toScreenY(playerY), Game.PLAYER_X, playerY);
+        drawnPlayerY = playerY;
+      }
+    }
+
+    /**
+     * Removes the obstacle from the lane.
+     */
+    void erase() {
+      if (drawnObstacleX != -1) {
+        renderer.erase(assets, obstacle, map, drawnObstacleX, toScreenY(obstacleY), drawnObstacleX, obstacleY);
+        drawnObstacleX = -1;
+      }
+    }
+
+    /**
+     * Ends the lane, and writes the result on its first line.
+     */
+    void end(int status) {
+      this.status = status;
+      crossed[index] = false;
+      renderer.drawText(2, screenTop, status == WON ? " Gagné ! " : " Perdu... ");
+    }
+  }
+
+  /**
+   * Usage: `java main.java.SplitLaneGame [players] [map]`
+   * By default, two players play on the desert.
+   */
+  public static void main(String[] args) throws IOException {
+    int players = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+    String mapName = args.length > 1 ? args[1] : "desert";
+    if (!AssetValidator.check(System.out)) {
+      System.exit(1);
+    }
+    new SplitLaneGame(AssetRegistry.getDefault(), mapName, players).start();
+  }
+}
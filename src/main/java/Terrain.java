@@ -0,0 +1,148 @@
+package main.java;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The solid pixels of a map: the pixels whose color can't be walked through (see `Color.x`).
+ *
+ * They're found once, when the map is loaded, and kept in a bitmap (one bit per pixel)
+ * and in a table giving the floor of each column, so that each query is a single lookup during the game.
+ * A map without any solid pixel is flat: the player stays on the floor of the game (`Game.MAP_DISTANCE_UNTIL_FLOOR`).
+ *
+ * It's immutable.
+ */
+public final class Terrain {
+  private final int width;
+  private final int height;
+  private final long[] solid; // the bit `y * width + x` is set if the pixel (x, y) is solid
+  private final int[] floors; // the highest solid row of each column, or `height` for a pit
+  private final boolean flat;
+
+  private Terrain(int width, int height, long[] solid, int[] floors, boolean flat) {
+    this.width = width;
+    this.height = height;
+    this.solid = solid;
+    this.floors = floors;
+    this.flat = flat;
+  }
+
+  /**
+   * Finds the solid pixels of a map.
+   * @param raster The pixels of the map.
+   * @param colors The pallet, giving the colors that can be walked through.
+   * @return The terrain of the map.
+   */
+  public static Terrain of(Raster raster, List<Color> colors) {
+    int width = raster.getWidth();
+    int height = raster.getHeight();
+    boolean[] solidColors = new boolean[colors.size()];
+    for (int i = 0; i < solidColors.length; i++) {
+      solidColors[i] = !colors.get(i).x;
+    }
+    long[] solid = new long[(width * height + 63) / 64];
+    int[] floors = new int[width];
+    Arrays.fill(floors, height);
+    boolean[] flat = {true};
+    for (int y = height - 1; y >= 0; y--) { // from the bottom, so that the last solid row found in a column is the highest
+      int row = y;
+      raster.forEachRun(y, 0, width, (x, length, colorIndex) -> {
+        if (colorIndex < 0 || colorIndex >= solidColors.length || !solidColors[colorIndex]) {
+          return;
+        }
+        flat[0] = false;
+        for (int i = x; i < x + length; i++) {
+          int bit = row * width + i;
+          solid[bit >> 6] |= 1L << bit;
+          floors[i] = row;
+        }
+      });
+    }
+    return new Terrain(width, height, solid, floors, flat[0]);
+  }
+
+  /**
+   * Restores a terrain saved in a snapshot (see `AssetSnapshot`).
+   * The arrays are used as is, they mustn't be modified afterwards.
+   * @throws IllegalArgumentException If the arrays don't match the size of the map.
+   */
+  static Terrain restore(int width, int height, long[] solid, int[] floors) {
+    if (width < 0 || height < 0 || solid.length != (width * height + 63) / 64 || floors.length != width) {
+      throw new IllegalArgumentException("The terrain doesn't match a map of " + width + "x" + height);
+    }
+    boolean flat = true;
+    for (int floor : floors) {
+      flat &= floor == height; // a column with a solid pixel has a floor
+    }
+    return new Terrain(width, height, solid, floors, flat);
+  }
+
+  /**
+   * Gets the bitmap of the solid pixels, to save it (see `AssetSnapshot`). It mustn't be modified.
+   */
+  long[] getSolidBits() { return solid; }
+
+  /**
+   * Gets the floor of each column, to save it (see `AssetSnapshot`). It mustn't be modified.
+   */
+  int[] getFloors() { return floors; }
+
+  /**
+   * Is there no solid pixel at all in the map?
+   */
+  public boolean isFlat() { return flat; }
+
+  /**
+   * Is a pixel solid? The pixels outside of the map aren't.
+   */
+  public boolean isSolid(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      return false;
+    }
+    int bit = y * width + x;
+    return (solid[bit >> 6] & 1L << bit) != 0;
+  }
+
+  /**
+   * Gets the floor of a column: its highest solid row.
+   * @return The row of the floor, or the height of the map if the column is a pit.
+   */
+  public int getFloor(int x) {
+    return x < 0 || x >= width ? height : floors[x];
+  }
+
+  /**
+   * Gets the highest floor under a group of columns, where something as wide as them would stand.
+   * @param fromX The first column (included).
+   * @param toX The last column (excluded).
+   * @return The row of the floor, or the height of the map if all the columns are pits.
+   */
+  public int getFloor(int fromX, int toX) {
+    int floor = height;
+    for (int x = fromX; x < toX; x++) {
+      floor = Math.min(floor, getFloor(x));
+    }
+    return floor;
+  }
+
+  /**
+   * Gets the lowest solid row above a given row, in a group of columns: what something as wide as them would hit while going up.
+   * @param fromX The first column (included).
+   * @param toX The last column (excluded).
+   * @param belowRow The row from which it goes up (excluded).
+   * @return The row of the ceiling, or -1 if nothing is above.
+   */
+  public int getCeiling(int fromX, int toX, int belowRow) {
+    for (int y = Math.min(belowRow, height) - 1; y >= 0; y--) {
+      for (int x = fromX; x < toX; x++) {
+        if (isSolid(x, y)) {
+          return y;
+        }
+      }
+    }
+    return -1;
+  }
+
+  public int getWidth() { return width; }
+  public int getHeight() { return height; }
+}
@@ -3,11 +3,19 @@ package main.java;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Reads a text file.
  */
 public class TextReader {
+	/**
+	 * The files that were already read by `getCachedContent`.
+	 */
+	private static final ConcurrentHashMap<String, List<String>> CACHE = new ConcurrentHashMap<>();
+
 	/**
 	 * Gets the content of the text file and returns each line in an `ArrayList`.
 	 * If the file doesn't exist, an empty list is returned.
@@ -29,4 +37,15 @@ public class TextReader {
 
 		return lines;
 	}
+
+	/**
+	 * Gets the content of a text file that never changes (the logo for example).
+	 * The file is only read the first time, then the same lines are returned.
+	 * 
+	 * @param path The path to the file.
+	 * @return Each line in a read-only list.
+	 */
+	public static List<String> getCachedContent(String path) {
+		return CACHE.computeIfAbsent(path, p -> Collections.unmodifiableList(getContent(p)));
+	}
 }
\ No newline at end of file
@@ -11,9 +11,14 @@ public class UnknownMenu extends GameMenu {
     this.message = "Wooooow t'as foutu quoi! T'as encore pété le jeuuu jpp!!";
   }
 
+  @Override
+  protected String getCacheKey() {
+    return super.getCacheKey() + ":" + message;
+  }
+
   @Override
   protected void display() {
-    Controls.println(message);   
+    println(message);   
     displayQuitMessage(); 
   }
 }
@@ -1,18 +1,52 @@
 package main.java;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class VictoryMenu extends GameMenu {
   private static final String VICTORY_PATH = "assets/menu/victoire.txt";
 
+  private final RunResult result;
+  private final List<RunResult> best;
+
+  public VictoryMenu() {
+    this(null, Collections.emptyList());
+  }
+
+  /**
+   * @param result The result of the run that just ended, or `null` if the scores aren't saved.
+   * @param best The best runs of the map, the best first.
+   */
+  public VictoryMenu(RunResult result, List<RunResult> best) {
+    this.result = result;
+    this.best = best;
+  }
+
+  /**
+   * Draws the logo, the same for all the runs: it's cached (see `GameMenu.show`).
+   */
   @Override
   protected void display() {
     drawSpace(10);
-    ArrayList<String> victoryLogoLines = TextReader.getContent(VICTORY_PATH);
-    for (String line : victoryLogoLines) {
-      Controls.println(line);
+    for (String line : getLogoLines()) {
+      println(line);
     }
     drawSpace(10);
+  }
+
+  /**
+   * Draws the scores of this run, below the cached part.
+   */
+  @Override
+  protected void displayChangingPart() {
+    if (result != null) {
+      displayScores(result, best, getLogoLines().get(0).length() / 2);
+      drawSpace(2);
+    }
     displayQuitMessage();
   }
+
+  private List<String> getLogoLines() {
+    return TextReader.getCachedContent(VICTORY_PATH);
+  }
 }
@@ -0,0 +1,499 @@
+package main.java;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A terminal without a screen: it reads what the game writes and keeps the characters and the colors of each cell,
+ * so that tests can check what is actually drawn, and how many bytes and escape sequences it takes.
+ * The spectators also use it to know what the player sees (see `SpectatorBroadcast`).
+ *
+ * It understands the sequences written by the game (see `Controls`, `FrameBuffer` and `RasterRenderer`):
+ * the moves of the cursor (`H`, `A`, `B`, `C`, `D`, `G`, `s`, `u`), the clearing of the screen and of the lines (`J`, `K`)
+ * and the colors (`m`). Any other sequence is an error, so that a new one can't go unnoticed.
+ *
+ * Like the terminal in raw mode, a new line only moves the cursor down. Each code point takes a single cell.
+ *
+ * Give it to a `PrintStream` (with the UTF-8 charset) to use it as the output of the game.
+ * It's not thread-safe: the game writes while holding the lock of its output.
+ */
+public final class VirtualTerminal extends OutputStream {
+  private static final char ESC = '\u001b';
+
+  private final int columns;
+  private final int rows;
+  private final int[] chars;
+  private final String[] foregrounds; // `null` for the default color
+  private final String[] backgrounds;
+
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+    .onMalformedInput(CodingErrorAction.REPLACE)
+    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private final ByteBuffer pendingBytes = ByteBuffer.allocate(4096);
+  private final CharBuffer decoded = CharBuffer.allocate(4096);
+  private final StringBuilder sequence = new StringBuilder();
+  private boolean inSequence = false;
+  private char highSurrogate = 0;
+
+  private int cursorX = 1;
+  private int cursorY = 1;
+  private int savedX = 1;
+  private int savedY = 1;
+  private String foreground = null;
+  private String background = null;
+
+  private long byteCount = 0;
+  private long sequenceCount = 0;
+
+  /**
+   * Creates an empty screen, with the cursor in the top left corner.
+   * @param columns The width of the screen.
+   * @param rows The height of the screen.
+   */
+  public VirtualTerminal(int columns, int rows) {
+    this.columns = columns;
+    this.rows = rows;
+    this.chars = new int[columns * rows];
+    this.foregrounds = new String[columns * rows];
+    this.backgrounds = new String[columns * rows];
+    Arrays.fill(chars, ' ');
+  }
+
+  @Override
+  public void write(int b) {
+    write(new byte[] { (byte)b }, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    byteCount += length;
+    while (length > 0) {
+      int chunk = Math.min(length, pendingBytes.remaining());
+      pendingBytes.put(bytes, offset, chunk);
+      offset += chunk;
+      length -= chunk;
+      pendingBytes.flip();
+      decoder.decode(pendingBytes, decoded, false);
+      pendingBytes.compact(); // a character cut between two writes waits for its last bytes
+      decoded.flip();
+      while (decoded.hasRemaining()) {
+        accept(decoded.get());
+      }
+      decoded.clear();
+    }
+  }
+
+  private void accept(char c) {
+    if (inSequence) {
+      sequence.append(c);
+      if (sequence.length() > 1 && c >= '@' && c <= '~') {
+        inSequence = false;
+        sequenceCount++;
+        execute(sequence.toString());
+      }
+    } else if (c == ESC) {
+      inSequence = true;
+      sequence.setLength(0);
+    } else if (c == '\r') {
+      cursorX = 1;
+    } else if (c == '\n') {
+      lineFeed();
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      print(Character.toCodePoint(highSurrogate, c));
+    } else {
+      print(c);
+    }
+  }
+
+  private void print(int codePoint) {
+    if (cursorX > columns) { // the terminal only wraps when something is printed beyond the last column
+      cursorX = 1;
+      lineFeed();
+    }
+    int cell = (cursorY - 1) * columns + cursorX - 1;
+    chars[cell] = codePoint;
+    foregrounds[cell] = foreground;
+    backgrounds[cell] = background;
+    cursorX++;
+  }
+
+  private void lineFeed() {
+    if (cursorY < rows) {
+      cursorY++;
+      return;
+    }
+    // the screen scrolls up
+    System.arraycopy(chars, columns, chars, 0, chars.length - columns);
+    System.arraycopy(foregrounds, columns, foregrounds, 0, foregrounds.length - columns);
+    System.arraycopy(backgrounds, columns, backgrounds, 0, backgrounds.length - columns);
+    clear(chars.length - columns, chars.length);
+  }
+
+  /**
+   * @param sequence The sequence, without its escape character (for example `[12;3H`).
+   */
+  private void execute(String sequence) {
+    if (sequence.charAt(0) != '[') {
+      throw new IllegalStateException("Unsupported escape sequence: ESC" + sequence);
+    }
+    String parameters = sequence.substring(1, sequence.length() - 1);
+    char command = sequence.charAt(sequence.length() - 1);
+    switch (command) {
+      case 'H':
+      case 'f':
+        int separator = parameters.indexOf(';');
+        cursorY = clampRow(separator < 0 ? parseOr(parameters, 1) : parseOr(parameters.substring(0, separator), 1));
+        cursorX = clampColumn(separator < 0 ? 1 : parseOr(parameters.substring(separator + 1), 1));
+        break;
+      case 'A': cursorY = clampRow(cursorY - parseOr(parameters, 1)); break;
+      case 'B': cursorY = clampRow(cursorY + parseOr(parameters, 1)); break;
+      case 'C': cursorX = clampColumn(cursorX + parseOr(parameters, 1)); break;
+      case 'D': cursorX = clampColumn(cursorX - parseOr(parameters, 1)); break;
+      case 'G': cursorX = clampColumn(parseOr(parameters, 1)); break;
+      case 's': savedX = cursorX; savedY = cursorY; break;
+      case 'u': cursorX = savedX; cursorY = savedY; break;
+      case 'J': eraseDisplay(parseOr(parameters, 0)); break;
+      case 'K': eraseLine(parseOr(parameters, 0)); break;
+      case 'm': selectGraphicRendition(parameters); break;
+      default:
+        throw new IllegalStateException("Unsupported escape sequence: ESC" + sequence);
+    }
+  }
+
+  private void eraseDisplay(int mode) {
+    int cursor = (cursorY - 1) * columns + Math.min(cursorX, columns) - 1;
+    switch (mode) {
+      case 0: clear(cursor, chars.length); break;
+      case 1: clear(0, cursor + 1); break;
+      default: clear(0, chars.length);
+    }
+  }
+
+  private void eraseLine(int mode) {
+    int lineStart = (cursorY - 1) * columns;
+    int cursor = lineStart + Math.min(cursorX, columns) - 1;
+    switch (mode) {
+      case 0: clear(cursor, lineStart + columns); break;
+      case 1: clear(lineStart, cursor + 1); break;
+      default: clear(lineStart, lineStart + columns);
+    }
+  }
+
+  /**
+   * Erased cells take the current background, like in a real terminal.
+   */
+  private void clear(int fromCell, int toCell) {
+    Arrays.fill(chars, fromCell, toCell, ' ');
+    Arrays.fill(foregrounds, fromCell, toCell, null);
+    Arrays.fill(backgrounds, fromCell, toCell, background);
+  }
+
+  /**
+   * Only the colors are kept: the other attributes (bold, underline...) aren't used by the game.
+   */
+  private void selectGraphicRendition(String parameters) {
+    String[] codes = parameters.isEmpty() ? new String[] { "0" } : parameters.split(";", -1);
+    for (int i = 0; i < codes.length; i++) {
+      int code = parseOr(codes[i], 0);
+      if (code == 0) {
+        foreground = null;
+        background = null;
+      } else if (code == 39) {
+        foreground = null;
+      } else if (code == 49) {
+        background = null;
+      } else if (code == 38 || code == 48) {
+        int length = i + 1 < codes.length && codes[i + 1].equals("5") ? 2 : 4; // 256 colors or RGB
+        if (i + length >= codes.length) {
+          throw new IllegalStateException("Incomplete color: ESC[" + parameters + "m");
+        }
+        String color = ESC + "[" + String.join(";", Arrays.copyOfRange(codes, i, i + length + 1)) + "m";
+        if (code == 38) {
+          foreground = color;
+        } else {
+          background = color;
+        }
+        i += length;
+      }
+    }
+  }
+
+  private static int parseOr(String number, int defaultValue) {
+    return number.isEmpty() ? defaultValue : Integer.parseInt(number);
+  }
+
+  private int clampRow(int y) { return Math.max(1, Math.min(rows, y)); }
+  private int clampColumn(int x) { return Math.max(1, Math.min(columns, x)); }
+
+  private int cellAt(int x, int y) {
+    if (x < 1 || x > columns || y < 1 || y > rows) {
+      throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside of a " + columns + "x" + rows + " screen");
+    }
+    return (y - 1) * columns + x - 1;
+  }
+
+  /**
+   * Gets the code point of a cell.
+   * @param x The column of the cell, from 1 like the moves of the cursor.
+   * @param y The line of the cell, from 1.
+   */
+  public int getChar(int x, int y) { return chars[cellAt(x, y)]; }
+
+  /**
+   * Gets the color of the text of a cell.
+   * @return The sequence giving the color (`ESC[38;...m`), or `null` for the default color.
+   */
+  public String getForeground(int x, int y) { return foregrounds[cellAt(x, y)]; }
+
+  /**
+   * Gets the background color of a cell.
+   * @return The sequence giving the color (`ESC[48;...m`, see `Color.getANSI`), or `null` for the default color.
+   */
+  public String getBackground(int x, int y) { return backgrounds[cellAt(x, y)]; }
+
+  /**
+   * Gets the text of a line, without the spaces at its end.
+   * @param y The line, from 1.
+   */
+  public String getLine(int y) {
+    int start = cellAt(1, y);
+    int end = start + columns;
+    while (end > start && chars[end - 1] == ' ') {
+      end--;
+    }
+    return new String(chars, start, end - start);
+  }
+
+  /**
+   * Counts the cells that look different on another screen of the same size: another character or other colors.
+   */
+  public int countDifferences(VirtualTerminal other) {
+    if (other.columns != columns || other.rows != rows) {
+      throw new IllegalArgumentException("The screens don't have the same size");
+    }
+    int differences = 0;
+    for (int cell = 0; cell < chars.length; cell++) {
+      if (looksDifferent(other, cell)) {
+        differences++;
+      }
+    }
+    return differences;
+  }
+
+  private static boolean equalColors(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * Forgets the number of bytes and sequences received so far, to measure the next frame.
+   */
+  public void resetCounters() {
+    byteCount = 0;
+    sequenceCount = 0;
+  }
+
+  public int getColumns() { return columns; }
+  public int getRows() { return rows; }
+  public int getCursorX() { return cursorX; }
+  public int getCursorY() { return cursorY; }
+
+  /**
+   * @return The number of bytes received since the last `resetCounters`.
+   */
+  public long getByteCount() { return byteCount; }
+
+  /**
+   * @return The number of escape sequences received since the last `resetCounters`.
+   */
+  public long getSequenceCount() { return sequenceCount; }
+
+  /**
+   * Gets what draws this screen on another terminal, from whatever it showed before:
+   * the characters and colors of each line, then the saved position, the position of the cursor and its colors.
+   * The spaces with the default colors at the end of each line are left out.
+   * @return The sequences and the text, to encode in UTF-8.
+   */
+  public String toKeyframe() {
+    Painter keyframe = new Painter(chars.length * 2);
+    keyframe.text.append(ESC).append("[0m").append(ESC).append("[H").append(ESC).append("[2J");
+    keyframe.cursor = 0;
+    keyframe.colorsKnown = true;
+    for (int y = 1; y <= rows; y++) {
+      int start = (y - 1) * columns;
+      for (int cell = start; cell < trimmedEnd(start); cell++) {
+        keyframe.draw(cell);
+      }
+    }
+    keyframe.text.append(ESC).append('[').append(savedY).append(';').append(savedX).append('H').append(ESC).append("[s");
+    keyframe.cursor = -1;
+    keyframe.finish();
+    return keyframe.text.toString();
+  }
+
+  /**
+   * Gets what turns another screen of the same size into this one: only the cells that look different are drawn again
+   * (the end of a line that became empty is erased at once), then the cursor is moved where it is on this screen, with its colors.
+   * The saved position isn't restored.
+   * @param previous What the other terminal shows.
+   * @return The sequences and the text, to encode in UTF-8, or an empty text if the screens look the same.
+   */
+  public String diff(VirtualTerminal previous) {
+    if (previous.columns != columns || previous.rows != rows) {
+      throw new IllegalArgumentException("The screens don't have the same size");
+    }
+    Painter diff = new Painter(64);
+    diff.cursor = previous.cursorX > columns ? -1 : (previous.cursorY - 1) * columns + previous.cursorX - 1;
+    diff.colorsKnown = true;
+    diff.currentForeground = previous.foreground;
+    diff.currentBackground = previous.background;
+    for (int y = 1; y <= rows; y++) {
+      int start = (y - 1) * columns;
+      int end = start + columns;
+      int blankFrom = trimmedEnd(start);
+      for (int cell = start; cell < end; cell++) {
+        if (!looksDifferent(previous, cell)) {
+          continue;
+        }
+        if (cell >= blankFrom && end - cell > 3) {
+          diff.eraseLine(cell);
+          break;
+        }
+        diff.draw(cell);
+      }
+    }
+    diff.finish();
+    return diff.text.toString();
+  }
+
+  /**
+   * Finds where the spaces with the default colors at the end of a line start.
+   * @param start The first cell of the line.
+   */
+  private int trimmedEnd(int start) {
+    int end = start + columns;
+    while (end > start && chars[end - 1] == ' ' && foregrounds[end - 1] == null && backgrounds[end - 1] == null) {
+      end--;
+    }
+    return end;
+  }
+
+  private boolean looksDifferent(VirtualTerminal other, int cell) {
+    return chars[cell] != other.chars[cell]
+      || !equalColors(foregrounds[cell], other.foregrounds[cell])
+      || !equalColors(backgrounds[cell], other.backgrounds[cell]);
+  }
+
+  /**
+   * Writes what draws cells of this screen on another terminal, without moving the cursor or changing a color when it's not needed.
+   */
+  private final class Painter {
+    private final StringBuilder text;
+    private int cursor = -1; // the cell where the cursor of the other terminal is, or -1 if it's unknown
+    private boolean colorsKnown = false;
+    private String currentForeground;
+    private String currentBackground;
+
+    private Painter(int capacity) {
+      this.text = new StringBuilder(capacity);
+    }
+
+    private void draw(int cell) {
+      moveTo(cell);
+      setColors(foregrounds[cell], backgrounds[cell]);
+      text.appendCodePoint(chars[cell]);
+      cursor = (cell + 1) % columns == 0 ? -1 : cell + 1; // after the last column, the terminal waits for the next character to wrap
+    }
+
+    /**
+     * Erases from a cell to the end of its line, with the default colors.
+     */
+    private void eraseLine(int cell) {
+      moveTo(cell);
+      setColors(colorsKnown ? currentForeground : null, null);
+      text.append(ESC).append("[K");
+    }
+
+    /**
+     * Moves the cursor where it is on this screen, with its colors.
+     */
+    private void finish() {
+      int x = Math.min(cursorX, columns);
+      if (cursor != (cursorY - 1) * columns + x - 1) {
+        text.append(ESC).append('[').append(cursorY).append(';').append(x).append('H');
+      }
+      setColors(foreground, background);
+    }
+
+    private void moveTo(int cell) {
+      if (cursor == cell) {
+        return;
+      }
+      if (cursor >= 0 && cursor / columns == cell / columns && cell > cursor) {
+        if (isCheaperToRedraw(cursor, cell)) {
+          for (int skipped = cursor; skipped < cell; skipped++) {
+            text.appendCodePoint(chars[skipped]);
+          }
+        } else {
+          text.append(ESC).append('[').append(cell - cursor).append('C');
+        }
+      } else {
+        text.append(ESC).append('[').append(cell / columns + 1).append(';').append(cell % columns + 1).append('H');
+      }
+      cursor = cell;
+    }
+
+    /**
+     * Are the cells between the cursor and the next change shorter to draw again than to move over (`ESC[nC`)?
+     * The other terminal already shows them, so they must be drawn with the current colors.
+     */
+    private boolean isCheaperToRedraw(int fromCell, int toCell) {
+      if (toCell - fromCell > 3 || !colorsKnown) {
+        return false;
+      }
+      for (int cell = fromCell; cell < toCell; cell++) {
+        if (chars[cell] >= 0x80 || !equalColors(foregrounds[cell], currentForeground) || !equalColors(backgrounds[cell], currentBackground)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void setColors(String foreground, String background) {
+      if (!colorsKnown) {
+        text.append(ESC).append("[0m");
+        if (foreground != null) {
+          text.append(foreground);
+        }
+        if (background != null) {
+          text.append(background);
+        }
+      } else {
+        if (!equalColors(foreground, currentForeground)) {
+          text.append(foreground == null ? ESC + "[39m" : foreground);
+        }
+        if (!equalColors(background, currentBackground)) {
+          text.append(background == null ? ESC + "[49m" : background);
+        }
+      }
+      colorsKnown = true;
+      currentForeground = foreground;
+      currentBackground = background;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder screen = new StringBuilder();
+    for (int y = 1; y <= rows; y++) {
+      screen.append(getLine(y)).append('\n');
+    }
+    return screen.toString();
+  }
+}
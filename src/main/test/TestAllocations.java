@@ -0,0 +1,280 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.Game;
+import main.java.MapSpawnConfig;
+import main.java.Obstacle;
+import main.java.ObstacleSpawn;
+import main.java.Raster;
+import main.java.RasterRenderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that the steps of the game don't allocate anything once the game is warmed up,
+ * so that the garbage collector never interrupts the animation.
+ */
+public class TestAllocations {
+    private static final int WARM_UP_STEPS = 2000;
+    private static final int MEASURED_STEPS = 500;
+
+    /**
+     * The JDK's scheduler allocates a few bytes each time its thread waits for the next task
+     * (a node of its condition queue), outside of the code of the game.
+     */
+    private static final int SCHEDULER_BYTES_PER_STEP = 64;
+
+    /**
+     * How long a real game is played before and while being measured.
+     */
+    private static final long GAME_WARM_UP_MILLIS = 3000;
+    private static final long GAME_MEASURED_MILLIS = 2000;
+
+    /**
+     * A frame of a jump that moves the player publishes a new `GameState` (it's immutable), and allocates nothing else.
+     */
+    private static final int STATE_BYTES = 48;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Measuring doesn't allocate anything, so it can surround each step.
+     */
+    private static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Moves an obstacle across a map, the way the game does it:
+     * on a scheduler, with a fixed delay between the steps, each step removing the obstacle and drawing it one pixel to the left.
+     */
+    @Test
+    public void testObstacleStepsDontAllocate() throws Exception {
+        assertObstacleStepsDontAllocate(new RasterRenderer());
+    }
+
+    /**
+     * Same steps, each character showing two pixels on top of each other.
+     */
+    @Test
+    public void testHalfBlockObstacleStepsDontAllocate() throws Exception {
+        assertObstacleStepsDontAllocate(new RasterRenderer(true));
+    }
+
+    private void assertObstacleStepsDontAllocate(RasterRenderer renderer) throws Exception {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+        Raster map = assets.getMap("desert").getRaster();
+        Obstacle obstacle = assets.getObstacle(assets.getObstacleNames().iterator().next());
+        Raster raster = obstacle.getRaster();
+        int posY = map.getHeight() - raster.getHeight();
+        int startX = (map.getWidth() - raster.getWidth()) * 2;
+
+        AtomicLong allocatedBySteps = new AtomicLong();
+        AtomicLong allocatedByThread = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Runnable step = new Runnable() {
+                private int count = 0;
+                private int x = startX;
+                private long threadBefore;
+                private long stepsTotal = 0;
+
+                @Override
+                public void run() {
+                    if (count == WARM_UP_STEPS) {
+                        threadBefore = allocatedBytes();
+                    }
+                    long stepBefore = allocatedBytes();
+                    renderer.erase(assets, raster, map, x, posY, x, posY)
+                        .drawForeground(assets, raster, map, x - 1, posY, x - 1, posY)
+                        .flush(out);
+                    x = x <= raster.getWidth() * 2 ? startX : x - 1;
+                    if (count >= WARM_UP_STEPS) {
+                        stepsTotal += allocatedBytes() - stepBefore;
+                    }
+                    if (++count == WARM_UP_STEPS + MEASURED_STEPS) {
+                        allocatedBySteps.set(stepsTotal);
+                        allocatedByThread.set(allocatedBytes() - threadBefore);
+                        done.countDown();
+                    }
+                }
+            };
+            ScheduledFuture<?> future = scheduler.scheduleWithFixedDelay(step, 0, 100, TimeUnit.MICROSECONDS);
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            future.cancel(false);
+        } finally {
+            scheduler.shutdownNow();
+        }
+        assertEquals(0, allocatedBySteps.get(), "bytes allocated by " + MEASURED_STEPS + " steps");
+        assertTrue(allocatedByThread.get() < MEASURED_STEPS * SCHEDULER_BYTES_PER_STEP,
+            allocatedByThread.get() + " bytes allocated by the scheduler in " + MEASURED_STEPS + " steps");
+    }
+
+    /**
+     * A scheduler that measures what each step of the movements allocates, once `measuring` is set.
+     * The last step of a movement is left out: it may start the next obstacle or open a menu.
+     */
+    private static class MeasuringScheduler extends ScheduledThreadPoolExecutor {
+        private volatile boolean measuring = false;
+        private final AtomicLong obstacleSteps = new AtomicLong();
+        private final AtomicLong obstacleBytes = new AtomicLong();
+        private final AtomicLong jumpSteps = new AtomicLong();
+        private final AtomicLong maxJumpStepBytes = new AtomicLong();
+
+        MeasuringScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            MeasuredStep step = new MeasuredStep(command, command.getClass().getSimpleName().startsWith("Jump"));
+            step.future = super.scheduleWithFixedDelay(step, initialDelay, delay, unit);
+            return step.future;
+        }
+
+        private class MeasuredStep implements Runnable {
+            private final Runnable command;
+            private final boolean jump;
+            private volatile ScheduledFuture<?> future;
+
+            MeasuredStep(Runnable command, boolean jump) {
+                this.command = command;
+                this.jump = jump;
+            }
+
+            @Override
+            public void run() {
+                if (!measuring) {
+                    command.run();
+                    return;
+                }
+                long before = allocatedBytes();
+                command.run();
+                long bytes = allocatedBytes() - before;
+                ScheduledFuture<?> current = future;
+                if (current == null || current.isCancelled()) {
+                    return; // the first or the last step
+                }
+                if (jump) {
+                    jumpSteps.incrementAndGet();
+                    maxJumpStepBytes.accumulateAndGet(bytes, Math::max);
+                } else {
+                    obstacleSteps.incrementAndGet();
+                    obstacleBytes.addAndGet(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * The output of a game, kept until the map is shown, then thrown away without allocating anything.
+     */
+    private static class Screen extends OutputStream {
+        private final ByteArrayOutputStream shown = new ByteArrayOutputStream();
+        private volatile boolean recording = true;
+
+        @Override
+        public void write(int b) {
+            if (recording) {
+                shown.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (recording) {
+                shown.write(bytes, offset, length);
+            }
+        }
+
+        boolean contains(String text) {
+            return shown.toString(StandardCharsets.UTF_8).contains(text);
+        }
+    }
+
+    /**
+     * A real game on the desert, with obstacles flying above the player while it keeps jumping:
+     * once the game is warmed up, the steps of the obstacles don't allocate anything,
+     * and the frames of the jump only allocate the state they publish.
+     */
+    @Test
+    public void testGameStepsDontAllocate() throws Exception {
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            spawns.add(new ObstacleSpawn("cactus", 20, 5)); // a step every 3 milliseconds, above the jumps
+        }
+        AssetRegistry assets = AssetRegistry.getDefault().toBuilder().putConfig("desert", new MapSpawnConfig(spawns)).build();
+        MeasuringScheduler scheduler = new MeasuringScheduler();
+        PipedOutputStream keys = new PipedOutputStream();
+        Screen screen = new Screen();
+        Thread loop;
+        try {
+            Game game = new Game(new PipedInputStream(keys), new PrintStream(screen, true, StandardCharsets.UTF_8), scheduler, () -> assets);
+            loop = new Thread(game::start);
+            loop.start();
+            waitFor(screen, "Appuie sur 'q'");
+            keys.write("\033[B\r".getBytes(StandardCharsets.US_ASCII)); // "Mode Arcade"
+            keys.flush();
+            waitFor(screen, "Among Us");
+            keys.write('\r'); // "Far West", the desert
+            keys.flush();
+            Thread.sleep(200); // the map is drawn
+            screen.recording = false;
+
+            jumpFor(keys, GAME_WARM_UP_MILLIS);
+            scheduler.measuring = true;
+            jumpFor(keys, GAME_MEASURED_MILLIS);
+            scheduler.measuring = false;
+
+            keys.write('q'); // back to the main menu
+            keys.write('q');
+            keys.flush();
+            loop.join(5_000);
+        } finally {
+            keys.close();
+            scheduler.shutdownNow();
+        }
+        assertFalse(loop.isAlive());
+        assertTrue(scheduler.obstacleSteps.get() > 100, scheduler.obstacleSteps.get() + " steps of the obstacles measured");
+        assertTrue(scheduler.jumpSteps.get() > 10, scheduler.jumpSteps.get() + " frames of the jumps measured");
+        assertEquals(0, scheduler.obstacleBytes.get(), "bytes allocated by " + scheduler.obstacleSteps.get() + " steps of the obstacles");
+        assertTrue(scheduler.maxJumpStepBytes.get() <= STATE_BYTES,
+            scheduler.maxJumpStepBytes.get() + " bytes allocated by a frame of a jump");
+    }
+
+    private static void jumpFor(PipedOutputStream keys, long millis) throws Exception {
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            keys.write(' '); // ignored while the player is already jumping
+            keys.flush();
+            Thread.sleep(200); // the game reads a key every 100 milliseconds
+        }
+    }
+
+    private static void waitFor(Screen screen, String text) throws InterruptedException {
+        for (int i = 0; i < 500 && !screen.contains(text); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(screen.contains(text), "'" + text + "' was never drawn");
+    }
+}
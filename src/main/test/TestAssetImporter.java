@@ -0,0 +1,83 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.AssetImporter;
+import main.java.AssetRegistry;
+import main.java.Raster;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+public class TestAssetImporter {
+    private static final int RED = 0xFF0000;
+    private static final int BLUE = 0x0000FF;
+    private static final int OPAQUE = 0xFF000000;
+
+    @Test
+    public void testColorsOfThePalletAreKept() {
+        int[] pallet = {RED, BLUE};
+        int[] pixels = {OPAQUE | RED, OPAQUE | BLUE, 0, OPAQUE | 0xFD0201, 0x10FF0000};
+        AssetImporter.Quantization result = AssetImporter.quantize(pixels, pallet, 16);
+        assertArrayEquals(new int[] {0, 1, -1, 0, -1}, result.getIndices());
+        assertEquals(0, result.getNewColors().length);
+    }
+
+    @Test
+    public void testNewColorsRespectTheMaximumSize() {
+        int[] pallet = {RED, BLUE};
+        int[] pixels = new int[64 * 64];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = OPAQUE | (i % 64) * 4 << 8 | (i / 64) * 4; // a gradient of green and blue
+        }
+        AssetImporter.Quantization result = AssetImporter.quantize(pixels, pallet, 10);
+        assertEquals(8, result.getNewColors().length);
+        for (int index : result.getIndices()) {
+            assertTrue(index >= 0 && index < 10, "index " + index);
+        }
+
+        // without room in the pallet, the closest color is used
+        result = AssetImporter.quantize(new int[] {OPAQUE | 0xC00040}, pallet, 2);
+        assertArrayEquals(new int[] {0}, result.getIndices());
+        assertEquals(0, result.getNewColors().length);
+    }
+
+    @Test
+    public void testImportedSkinCanBeLoaded(@TempDir Path assets) throws IOException {
+        Files.createDirectories(assets.resolve("skins"));
+        Path pallet = assets.resolve("0-colors.csv");
+        Files.writeString(pallet, "x,r,g,b\n1,255,0,0\n0,0,0,255"); // like the real pallet, without a final new line
+        BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 40; x++) {
+                image.setRGB(x, y, x < 10 ? 0 : x < 20 ? OPAQUE | RED : x < 30 ? OPAQUE | BLUE : OPAQUE | 0x00FF00);
+            }
+        }
+        Path png = assets.resolve("image.png");
+        ImageIO.write(image, "png", png.toFile());
+
+        AssetImporter.importImage(png, assets, "skins", "imported", 4, AssetImporter.DEFAULT_MAX_COLORS);
+
+        AssetRegistry registry = new AssetRegistry.Builder()
+            .loadColors(pallet.toString())
+            .loadSkin(assets.resolve("skins/imported.csv").toString())
+            .build();
+        assertEquals(3, registry.getColors().size());
+        Raster skin = registry.getSkin("imported").getRaster();
+        assertEquals(4, skin.getWidth());
+        assertEquals(2, skin.getHeight());
+        for (int y = 0; y < 2; y++) {
+            assertEquals(-1, skin.get(0, y));
+            assertEquals(0, skin.get(1, y));
+            assertEquals(1, skin.get(2, y));
+            assertEquals(2, skin.get(3, y));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.AssetRegistry;
+import main.java.AssetSnapshot;
+import main.java.GameObject;
+import main.java.ObstacleSpawn;
+import main.java.OffHeapRaster;
+import main.java.Terrain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestAssetSnapshot {
+    @Test
+    public void testSnapshotRestoresTheSameAssets(@TempDir Path root) throws IOException {
+        Path assets = Files.createDirectories(root.resolve("assets"));
+        Files.writeString(assets.resolve("a.csv"), "1");
+        Path snapshot = root.resolve("assets.snapshot");
+        AssetRegistry original = AssetRegistry.getDefault();
+        AtomicInteger loads = new AtomicInteger();
+
+        AssetSnapshot.loadOrBuild(snapshot, assets, false, () -> { loads.incrementAndGet(); return original; });
+        assertTrue(AssetSnapshot.isUpToDate(snapshot, assets));
+        AssetRegistry restored = AssetSnapshot.loadOrBuild(snapshot, assets, false, () -> { loads.incrementAndGet(); return original; });
+        assertEquals(1, loads.get(), "the second launch must not read the files");
+
+        assertEquals(original.getColors().size(), restored.getColors().size());
+        assertEquals(original.getMapNames(), restored.getMapNames());
+        assertEquals(original.getObstacleNames(), restored.getObstacleNames());
+        assertEquals(original.getSkinNames(), restored.getSkinNames());
+        for (String name : original.getMapNames()) {
+            assertSameLevels(original.getMap(name), restored.getMap(name));
+            Terrain expected = original.getTerrain(name);
+            Terrain actual = restored.getTerrain(name);
+            assertEquals(expected.isFlat(), actual.isFlat());
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getFloor(x), actual.getFloor(x));
+                for (int y = 0; y < expected.getHeight(); y++) {
+                    assertEquals(expected.isSolid(x, y), actual.isSolid(x, y));
+                }
+            }
+        }
+        for (String name : original.getObstacleNames()) {
+            assertSameLevels(original.getObstacle(name), restored.getObstacle(name));
+        }
+        for (String name : original.getSkinNames()) {
+            assertSameLevels(original.getSkin(name), restored.getSkin(name));
+        }
+        for (String name : original.getConfigNames()) {
+            List<ObstacleSpawn> expected = original.getConfig(name).getSpawns();
+            List<ObstacleSpawn> actual = restored.getConfig(name).getSpawns();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getName(), actual.get(i).getName());
+                assertEquals(expected.get(i).getSpeed(), actual.get(i).getSpeed());
+                assertEquals(expected.get(i).getY(), actual.get(i).getY());
+            }
+        }
+
+        AssetRegistry offHeap = AssetSnapshot.loadOrBuild(snapshot, assets, true, () -> { loads.incrementAndGet(); return original; });
+        assertTrue(offHeap.hasOffHeapMaps());
+        for (String name : original.getMapNames()) {
+            assertSameLevels(original.getMap(name), offHeap.getMap(name));
+            for (int level = 0; level < GameObject.LEVELS; level++) {
+                assertTrue(offHeap.getMap(name).getRaster(level) instanceof OffHeapRaster);
+            }
+        }
+        assertEquals(1, loads.get());
+    }
+
+    private static void assertSameLevels(GameObject expected, GameObject actual) {
+        for (int level = 0; level < GameObject.LEVELS; level++) {
+            assertEquals(expected.getRaster(level).toMatrix(), actual.getRaster(level).toMatrix(), expected.getName() + " at the level " + level);
+        }
+    }
+
+    @Test
+    public void testChangedOrCorruptedSnapshotIsRebuilt(@TempDir Path root) throws IOException {
+        Path assets = Files.createDirectories(root.resolve("assets"));
+        Files.writeString(assets.resolve("a.csv"), "1");
+        Path snapshot = root.resolve("assets.snapshot");
+        AtomicInteger loads = new AtomicInteger();
+
+        AssetSnapshot.loadOrBuild(snapshot, assets, false, () -> { loads.incrementAndGet(); return AssetRegistry.getDefault(); });
+        Files.writeString(assets.resolve("b.csv"), "2"); // a new asset
+        assertFalse(AssetSnapshot.isUpToDate(snapshot, assets));
+        AssetSnapshot.loadOrBuild(snapshot, assets, false, () -> { loads.incrementAndGet(); return AssetRegistry.getDefault(); });
+        assertEquals(2, loads.get());
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(snapshot, bytes);
+        AssetRegistry rebuilt = AssetSnapshot.loadOrBuild(snapshot, assets, false, () -> { loads.incrementAndGet(); return AssetRegistry.getDefault(); });
+        assertEquals(3, loads.get());
+        assertFalse(rebuilt.getMapNames().isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.AssetRegistry;
+import main.java.AssetValidator;
+import main.java.OffHeapRaster;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Checks that the validator accepts the assets of the game and reports every problem of a broken asset tree.
+ */
+public class TestAssetValidator {
+    @Test
+    public void testShippedAssetsAreValid() {
+        List<AssetValidator.Problem> problems = new AssetValidator(Paths.get("assets")).validate();
+        assertTrue(problems.isEmpty(), problems.toString());
+    }
+
+    @Test
+    public void testReportsAllProblems(@TempDir Path root) throws IOException {
+        Files.createDirectories(root.resolve("maps"));
+        Files.createDirectories(root.resolve("obstacles"));
+        Files.createDirectories(root.resolve("skins"));
+        Files.createDirectories(root.resolve("map-configs"));
+        Files.writeString(root.resolve("0-colors.csv"), "x,r,g,b\n1,0,0,0\n0,255,255,255\n");
+        StringBuilder map = new StringBuilder("a0,a1,a2,a3\n");
+        for (int i = 0; i < 40; i++) {
+            map.append(i == 5 ? "0,1,7\n" : "0,1,1,0\n"); // line 7 is ragged and uses a color that doesn't exist
+        }
+        Files.writeString(root.resolve("maps/desert.csv"), map.toString());
+        Files.writeString(root.resolve("obstacles/cactus.csv"), "a0,a1\n1,-1\n1,1\n");
+        Files.writeString(root.resolve("skins/amongus.csv"), "a0,a1\n0,0\n0,0\n");
+        Files.writeString(root.resolve("map-configs/desert-config.csv"), "name,speed,y\ncactus,100,30\ncar,100,30\ncactus,100,45\n");
+
+        List<AssetValidator.Problem> problems = new AssetValidator(root).validate();
+
+        assertTrue(has(problems, "desert.csv", 7, "cases au lieu de"));
+        assertTrue(has(problems, "desert.csv", 7, "la couleur 7"));
+        assertTrue(has(problems, "desert-config.csv", 3, "'car' n'existe pas"));
+        assertTrue(has(problems, "desert-config.csv", 4, "sort de la carte"));
+        assertFalse(has(problems, "desert-config.csv", 2, ""));
+        assertTrue(has(problems, "map-configs", 0, "'medieval' du menu n'a pas de configuration"));
+    }
+
+    @Test
+    public void testReportsPalletsTooBigForOffHeapMaps(@TempDir Path root) throws IOException {
+        StringBuilder pallet = new StringBuilder("x,r,g,b\n");
+        for (int i = 0; i <= OffHeapRaster.MAX_COLORS; i++) {
+            pallet.append("1,").append(i % 256).append(",0,0\n");
+        }
+        Files.writeString(root.resolve("0-colors.csv"), pallet.toString());
+
+        List<AssetValidator.Problem> onHeap = new AssetValidator(root).validate();
+        List<AssetValidator.Problem> offHeap;
+        System.setProperty(AssetRegistry.OFF_HEAP_MAPS_PROPERTY, "true");
+        try {
+            offHeap = new AssetValidator(root).validate();
+        } finally {
+            System.clearProperty(AssetRegistry.OFF_HEAP_MAPS_PROPERTY);
+        }
+
+        assertFalse(has(onHeap, "0-colors.csv", OffHeapRaster.MAX_COLORS + 2, "n'en acceptent que"), onHeap.toString());
+        assertTrue(has(offHeap, "0-colors.csv", OffHeapRaster.MAX_COLORS + 2, "n'en acceptent que " + OffHeapRaster.MAX_COLORS), offHeap.toString());
+    }
+
+    private boolean has(List<AssetValidator.Problem> problems, String file, int line, String message) {
+        return problems.stream().anyMatch(p -> p.getFile().endsWith(file) && p.getLine() == line && p.getMessage().contains(message));
+    }
+}
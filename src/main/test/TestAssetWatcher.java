@@ -0,0 +1,107 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.AssetRegistry;
+import main.java.AssetWatcher;
+import main.java.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TestAssetWatcher {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Copies the assets of the game, so that the test can change them.
+     */
+    private static AssetRegistry copyAssets(Path root) throws IOException {
+        Path assets = Paths.get("assets");
+        for (String directory : List.of("maps", "obstacles", "skins", "map-configs")) {
+            Files.createDirectories(root.resolve(directory));
+            try (Stream<Path> files = Files.list(assets.resolve(directory))) {
+                for (Path file : (Iterable<Path>)files::iterator) {
+                    Files.copy(file, root.resolve(directory).resolve(file.getFileName()));
+                }
+            }
+        }
+        Files.copy(assets.resolve("0-colors.csv"), root.resolve("0-colors.csv"));
+        return new AssetRegistry.Builder()
+            .loadColors(root.resolve("0-colors.csv").toString())
+            .loadMaps(root.resolve("maps").toString())
+            .loadObstacles(root.resolve("obstacles").toString())
+            .loadSkins(root.resolve("skins").toString())
+            .loadConfigs(root.resolve("map-configs").toString())
+            .build();
+    }
+
+    private static String countLines(ByteArrayOutputStream log, String text) {
+        return String.valueOf(log.toString(StandardCharsets.UTF_8).lines().filter(line -> line.contains(text)).count());
+    }
+
+    @Test
+    public void testFileWrittenInChunksIsReloadedOnce(@TempDir Path root) throws IOException, InterruptedException {
+        AssetRegistry initial = copyAssets(root);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        AssetWatcher watcher = new AssetWatcher(initial, root, new PrintStream(log, true, StandardCharsets.UTF_8));
+        try {
+            Path file = root.resolve("maps/desert.csv");
+            List<String> lines = Files.readAllLines(file);
+            String row = lines.get(1);
+            String rest = row.substring(row.indexOf(','));
+            lines.set(1, (row.startsWith("0,") ? "1" : "0") + rest); // another color for the first pixel
+            String content = String.join("\n", lines) + "\n";
+            // like an editor writing the file in two chunks: the first half alone is a valid matrix with fewer rows
+            int middle = content.length() / 2;
+            middle = content.lastIndexOf('\n', middle) + 1;
+            Files.writeString(file, content.substring(0, middle));
+            Thread.sleep(AssetWatcher.DEBOUNCE_MILLIS / 4);
+            Files.writeString(file, content);
+
+            Map original = initial.getMap("desert");
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (watcher.get().getMap("desert") == original && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Map reloaded = watcher.get().getMap("desert");
+            assertNotSame(original, reloaded, "the map must be reloaded");
+            assertEquals(original.getRaster().getHeight(), reloaded.getRaster().getHeight());
+            Thread.sleep(AssetWatcher.DEBOUNCE_MILLIS * 2);
+            assertEquals("1", countLines(log, "rechargé"), log.toString(StandardCharsets.UTF_8));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testMapThatBreaksTheAssetsIsNotPublished(@TempDir Path root) throws IOException, InterruptedException {
+        AssetRegistry initial = copyAssets(root);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        AssetWatcher watcher = new AssetWatcher(initial, root, new PrintStream(log, true, StandardCharsets.UTF_8));
+        try {
+            Path file = root.resolve("maps/desert.csv");
+            List<String> lines = Files.readAllLines(file);
+            // a valid matrix, but too small for the obstacles of its config and for the player
+            Files.write(file, lines.subList(0, 10));
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (countLines(log, "ignorée").equals("0") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("1", countLines(log, "ignorée"), log.toString(StandardCharsets.UTF_8));
+            assertSame(initial.getMap("desert"), watcher.get().getMap("desert"), "the previous version must be kept");
+        } finally {
+            watcher.close();
+        }
+    }
+}
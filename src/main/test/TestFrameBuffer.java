@@ -0,0 +1,56 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.FrameBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests of the sequences written to move the cursor.
+ */
+public class TestFrameBuffer {
+    private String write(FrameBuffer frame) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        frame.writeTo(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testAbsoluteMoveWhenThePositionIsUnknown() {
+        FrameBuffer frame = new FrameBuffer(4);
+        frame.appendCursorMove(35, 1234);
+        assertEquals("\033[1234;35H", write(frame));
+    }
+
+    @Test
+    public void testRelativeMoves() {
+        FrameBuffer frame = new FrameBuffer(64);
+        frame.appendCursorMove(30, 20);
+        write(frame);
+
+        // the position is forgotten after each frame
+        frame.appendCursorMove(30, 20).repeat("  ", 4).appendCursorMove(30, 21);
+        assertEquals("\033[20;30H" + "        " + "\r\n\033[29C", write(frame));
+
+        frame.appendCursorMove(30, 20).appendCursorMove(40, 20).appendCursorMove(41, 20).appendCursorMove(41, 23);
+        assertEquals("\033[20;30H" + "\033[10C" + "\033[C" + "\033[3B", write(frame));
+
+        // going back to the left is always absolute or after a carriage return
+        frame.appendCursorMove(3, 20).repeat("  ", 1).appendCursorMove(3, 20);
+        assertEquals("\033[20;3H" + "  " + "\r\033[2C", write(frame));
+        frame.appendCursorMove(30, 20).repeat(" ", 1).appendCursorMove(29, 19);
+        assertEquals("\033[20;30H" + " " + "\033[19;29H", write(frame));
+    }
+
+    @Test
+    public void testText() {
+        FrameBuffer frame = new FrameBuffer(1);
+        frame.append("é▀😀").append(7).append(1000);
+        assertEquals("é▀😀71000", write(frame));
+    }
+}
@@ -0,0 +1,62 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.GameEvents;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TestGameEvents {
+    @Test
+    public void testEventsAreRecorded(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("test.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("game.Tick");
+            recording.enable("game.FrameFlush");
+            recording.enable("game.ObstacleSpawn");
+            recording.enable("game.ObstacleDespawn");
+            recording.enable("game.CollisionCheck");
+            recording.enable("game.AssetLoad");
+            recording.enable("game.MenuTransition");
+            recording.start();
+
+            GameEvents.beginTick("jump").commit();
+            GameEvents.beginFrameFlush(1234).commit();
+            GameEvents.obstacleSpawned("desert", "cactus", 3, 60, 25);
+            GameEvents.collisionChecked("desert", 3, 25, 32, false);
+            GameEvents.obstacleDespawned("desert", "cactus", 3, false);
+            GameEvents.beginAssetLoad("map", "assets/maps/desert.csv").commit();
+            GameEvents.beginMenuTransition("MapSelectionMenu", "desert").commit();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .collect(Collectors.toMap(event -> event.getEventType().getName(), Function.identity()));
+        assertEquals(7, events.size(), events.keySet().toString());
+        assertEquals("jump", events.get("game.Tick").getString("movement"));
+        assertEquals(1234, events.get("game.FrameFlush").getInt("bytes"));
+        assertEquals(60, events.get("game.ObstacleSpawn").getInt("speed"));
+        assertFalse(events.get("game.CollisionCheck").getBoolean("collided"));
+        assertEquals("cactus", events.get("game.ObstacleDespawn").getString("obstacle"));
+        assertEquals("map", events.get("game.AssetLoad").getString("kind"));
+        assertEquals("desert", events.get("game.MenuTransition").getString("to"));
+        for (RecordedEvent event : events.values()) {
+            assertEquals(List.of("Game"), event.getEventType().getCategoryNames());
+            assertNotNull(event.getThread(), "the thread of each event must be known");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.AssetRegistry;
+import main.java.Game;
+import main.java.GameMenu;
+import main.java.GameOverMenu;
+import main.java.GameState;
+import main.java.MainMenu;
+import main.java.MapSpawnConfig;
+import main.java.ObstacleSpawn;
+import main.java.RunResult;
+import main.java.ScoreStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress tests of the state shared by the keyboard, the jump and the obstacles.
+ * Many threads change the same state at the same time, the way the game does it,
+ * and we check that no change is lost and that nobody ever reads an inconsistent state.
+ */
+public class TestGameState {
+    private static final int FLOOR = 32;
+    private static final int THREADS = 8;
+
+    /**
+     * Runs the same task on several threads that all start at the same time.
+     */
+    private void runConcurrently(int threads, Runnable task) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ArrayList<Thread> all = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    task.run();
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            all.add(thread);
+            thread.start();
+        }
+        for (Thread thread : all) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    @Test
+    public void testOnlyOneObstacleEndsTheRound() throws Exception {
+        for (int round = 0; round < 500; round++) {
+            AtomicReference<GameState> state = new AtomicReference<>(GameState.initial(new MainMenu(), FLOOR).startMap("desert", FLOOR));
+            int currentRound = state.get().getRound();
+            AtomicInteger winners = new AtomicInteger();
+            runConcurrently(THREADS, () -> {
+                GameMenu gameOver = new GameOverMenu();
+                GameState after = state.updateAndGet(current -> current.isPlaying(currentRound) ? current.withMenu(gameOver) : current);
+                if (after.getMenu() == gameOver) {
+                    winners.incrementAndGet();
+                }
+            });
+            assertEquals(1, winners.get());
+            assertFalse(state.get().isPlaying(currentRound));
+        }
+    }
+
+    @Test
+    public void testJumpIsNeverStuck() throws Exception {
+        AtomicReference<GameState> state = new AtomicReference<>(GameState.initial(new MainMenu(), FLOOR).startMap("desert", FLOOR));
+        AtomicInteger lastJumpId = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // Readers check that a state where the player isn't jumping always has the player on the floor.
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                GameState current = state.get();
+                if (current.canJump() && current.getPlayerY() != FLOOR) {
+                    throw new AssertionError("torn state: not jumping at y=" + current.getPlayerY());
+                }
+            }
+        });
+        AtomicReference<Throwable> readerFailure = new AtomicReference<>();
+        reader.setUncaughtExceptionHandler((thread, e) -> readerFailure.set(e));
+        reader.start();
+
+        // Jumpers do what `Game.jump` does, and some of them cancel the current jump like an obstacle leaving the map.
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < 2000; i++) {
+                if (i % 7 == 0) {
+                    state.updateAndGet(current -> current.endJump(FLOOR));
+                    continue;
+                }
+                int jumpId = lastJumpId.incrementAndGet();
+                GameState current = state.get();
+                if (!current.canJump() || !state.compareAndSet(current, current.startJump(jumpId))) {
+                    continue;
+                }
+                for (int step = 0; step < 26; step++) {
+                    int shift = step < 13 ? -1 : 1;
+                    GameState after = state.updateAndGet(s -> s.getJumpId() == jumpId ? s.movePlayer(shift) : s);
+                    if (after.getJumpId() != jumpId) {
+                        break; // cancelled
+                    }
+                }
+                state.updateAndGet(s -> s.getJumpId() == jumpId ? s.endJump(FLOOR) : s);
+            }
+        });
+        running.set(false);
+        reader.join();
+
+        assertNull(readerFailure.get());
+        assertTrue(state.get().canJump());
+        assertEquals(FLOOR, state.get().getPlayerY());
+    }
+
+    private static int count(ByteArrayOutputStream output, String text) {
+        String screen = output.toString(StandardCharsets.UTF_8);
+        int count = 0;
+        for (int i = screen.indexOf(text); i >= 0; i = screen.indexOf(text, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void waitFor(ByteArrayOutputStream output, String text, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (count(output, text) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(count(output, text) >= count, "'" + text + "' was drawn " + count(output, text) + " time(s) instead of " + count);
+    }
+
+    @Test
+    public void testObstaclesRacingToEndTheRoundDrawTheMenuAndSaveTheResultOnce(@TempDir Path directory) throws Exception {
+        // the first obstacle flies slowly above the player, so that the test can send the next ones itself
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        spawns.add(new ObstacleSpawn("cactus", 100_000, 5));
+        spawns.add(new ObstacleSpawn("cactus", 1, 30)); // a step per millisecond, right into the player
+        AssetRegistry assets = AssetRegistry.getDefault().toBuilder().putConfig("desert", new MapSpawnConfig(spawns)).build();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(THREADS);
+        PipedOutputStream keys = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(keys);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Game game;
+        Thread loop;
+        try (ScoreStore scores = new ScoreStore(directory.resolve("scores.log"))) {
+            game = new Game(input, new PrintStream(output, true, StandardCharsets.UTF_8), scheduler, () -> assets, scores);
+            loop = new Thread(game::start);
+            loop.start();
+            waitFor(output, "Appuie sur 'q'", 1);
+
+            int rounds = 3;
+            for (int round = 1; round <= rounds; round++) {
+                keys.write("\033[B\r".getBytes(StandardCharsets.US_ASCII)); // "Mode Arcade"
+                keys.flush();
+                waitFor(output, "Among Us", round);
+                int clears = count(output, "\033[2J");
+                keys.write('\r'); // "Far West", the desert
+                keys.flush();
+                waitFor(output, "\033[2J", clears + 1);
+                Thread.sleep(100); // the map is drawn
+
+                runConcurrently(THREADS, () -> game.moveObstacle(1));
+                waitFor(output, "Ton score", round);
+                Thread.sleep(300); // the other obstacles reach the player too, after the round is over
+                assertEquals(round, count(output, "Ton score"), "the menu must be drawn once per round");
+                List<RunResult> results = scores.getTopScores("desert", 10);
+                assertEquals(round, results.size(), "the result must be saved once per round");
+
+                keys.write('q'); // back to the main menu
+                keys.flush();
+                waitFor(output, "Disclaimer", round + 1);
+            }
+            keys.write('q');
+            keys.flush();
+            loop.join(5_000);
+        } finally {
+            keys.close();
+            scheduler.shutdownNow();
+        }
+        assertFalse(loop.isAlive());
+    }
+}
@@ -0,0 +1,51 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.JumpPhysics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJumpPhysics {
+    private static final int APEX = 13;
+    private static final long APEX_MILLIS = 520;
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    public void testArcReachesApexThenLands() {
+        JumpPhysics jump = new JumpPhysics(APEX, APEX_MILLIS);
+        jump.start();
+        int highest = 0;
+        long landedAt = -1;
+        for (long t = 0; t <= 2000; t++) {
+            if (!jump.advanceTo(t * MILLI)) {
+                landedAt = t;
+                break;
+            }
+            highest = Math.max(highest, jump.getHeight());
+        }
+        assertEquals(APEX, highest);
+        assertEquals(2 * APEX_MILLIS, landedAt, 4);
+        assertEquals(0, jump.getHeight());
+    }
+
+    /**
+     * The height at a given time doesn't depend on how often the jump was drawn before.
+     */
+    @Test
+    public void testArcDoesNotDependOnFrameRate() {
+        JumpPhysics smooth = new JumpPhysics(APEX, APEX_MILLIS);
+        JumpPhysics choppy = new JumpPhysics(APEX, APEX_MILLIS);
+        smooth.start();
+        choppy.start();
+        for (long t = 0; t <= 2 * APEX_MILLIS; t += 100) {
+            for (long frame = Math.max(0, t - 100); frame <= t; frame += 7) {
+                smooth.advanceTo(frame * MILLI);
+            }
+            smooth.advanceTo(t * MILLI);
+            choppy.advanceTo(t * MILLI);
+            assertEquals(smooth.getHeight(), choppy.getHeight(), "at " + t + " ms");
+            assertEquals(smooth.isJumping(), choppy.isJumping(), "at " + t + " ms");
+        }
+    }
+}
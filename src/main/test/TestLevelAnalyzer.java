@@ -0,0 +1,68 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.LevelAnalyzer;
+import main.java.MapSpawnConfig;
+import main.java.ObstacleSpawn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestLevelAnalyzer {
+    private static MapSpawnConfig config(String obstacle, int speed, int y, int count) {
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            spawns.add(new ObstacleSpawn(obstacle, speed, y));
+        }
+        return new MapSpawnConfig(spawns);
+    }
+
+    @Test
+    public void testShippedMapsAreBeatable() {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        List<LevelAnalyzer.Report> reports = assertTimeout(Duration.ofSeconds(10), () -> new LevelAnalyzer(assets).analyzeAll());
+        assertEquals(assets.getConfigNames().size(), reports.size());
+        for (LevelAnalyzer.Report report : reports) {
+            assertTrue(report.isBeatable(), report.toString());
+            assertTrue(report.getTightness() >= 0 && report.getTightness() < 1, report.toString());
+        }
+    }
+
+    @Test
+    public void testCloserObstaclesAreTighter() {
+        LevelAnalyzer analyzer = new LevelAnalyzer(AssetRegistry.getDefault());
+        LevelAnalyzer.Report slow = analyzer.analyze("desert", config("cactus", 40, 30, 4));
+        LevelAnalyzer.Report fast = analyzer.analyze("desert", config("cactus", 20, 30, 4));
+        assertTrue(slow.isBeatable(), slow.toString());
+        assertTrue(fast.isBeatable(), fast.toString());
+        assertEquals(4, fast.getMandatoryJumps());
+        assertTrue(fast.getTightestWindowMillis() < slow.getTightestWindowMillis(), fast + " / " + slow);
+        assertTrue(fast.getTightness() > slow.getTightness());
+    }
+
+    @Test
+    public void testObstaclesTooCloseToJumpOverAreImpossible() {
+        LevelAnalyzer analyzer = new LevelAnalyzer(AssetRegistry.getDefault());
+        // each obstacle comes before the player has landed from the previous one
+        LevelAnalyzer.Report report = analyzer.analyze("desert", config("cactus", 1, 30, 4));
+        assertFalse(report.isBeatable(), report.toString());
+        assertEquals(1, report.getTightness());
+        assertEquals(0, report.getTightestSpawnIndex());
+    }
+
+    @Test
+    public void testObstaclesAboveThePlayerNeedNoJump() {
+        LevelAnalyzer analyzer = new LevelAnalyzer(AssetRegistry.getDefault());
+        LevelAnalyzer.Report report = analyzer.analyze("desert", config("cactus", 100, 5, 3));
+        assertTrue(report.isBeatable(), report.toString());
+        assertEquals(3, report.getChecks());
+        assertEquals(0, report.getMandatoryJumps());
+        assertEquals(-1, report.getTightestSpawnIndex());
+        assertEquals(0, report.getTightness());
+    }
+}
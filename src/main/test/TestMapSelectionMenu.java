@@ -0,0 +1,186 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.Color;
+import main.java.FrameTap;
+import main.java.Map;
+import main.java.MapSelectionMenu;
+import main.java.Raster;
+import main.java.VirtualTerminal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks the previews of the maps drawn next to the list of the maps, on a virtual terminal.
+ */
+public class TestMapSelectionMenu {
+    private static final int MAP_WIDTH = 20;
+    private static final int MAP_HEIGHT = 10;
+
+    /**
+     * The cells of the preview of a map of `MAP_WIDTH` by `MAP_HEIGHT` pixels: it's shown at half its size, each pixel on two columns.
+     */
+    private static final int PREVIEW_CELLS = MAP_WIDTH / 2 * 2 * (MAP_HEIGHT / 2);
+
+    /**
+     * Gives the tests the methods the game calls on the menu.
+     */
+    private static class PreviewMenu extends MapSelectionMenu {
+        PreviewMenu(AtomicReference<AssetRegistry> assets, Runnable previewReady) {
+            super(assets::get, previewReady);
+        }
+
+        void showOn(PrintStream out) { show(out); }
+        void moveSelector(PrintStream out, int from, int to) { drawSelectorMove(out, from, to); }
+        void refreshOn(PrintStream out, int selection) { refresh(out, selection); }
+    }
+
+    /**
+     * A map whose smaller versions can't be read until the gate is opened, so that its preview isn't ready yet.
+     */
+    private static class GatedMap extends Map {
+        private final CountDownLatch gate;
+
+        GatedMap(ArrayList<ArrayList<Integer>> matrix, CountDownLatch gate) {
+            super("desert", matrix);
+            this.gate = gate;
+        }
+
+        @Override
+        public Raster getRaster(int level) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getRaster(level);
+        }
+    }
+
+    private static ArrayList<ArrayList<Integer>> filled(int colorIndex) {
+        ArrayList<ArrayList<Integer>> matrix = new ArrayList<>();
+        for (int y = 0; y < MAP_HEIGHT; y++) {
+            ArrayList<Integer> row = new ArrayList<>();
+            for (int x = 0; x < MAP_WIDTH; x++) {
+                row.add(colorIndex);
+            }
+            matrix.add(row);
+        }
+        return matrix;
+    }
+
+    /**
+     * Creates a registry with only the desert, so that the previews of the other maps are empty right away.
+     */
+    private static AssetRegistry registry(List<Color> colors, Map desert) {
+        AssetRegistry.Builder builder = new AssetRegistry.Builder();
+        for (Color color : colors) {
+            builder.addColor(color);
+        }
+        return builder.putMap(desert).build();
+    }
+
+    private static int countCells(VirtualTerminal screen, String background) {
+        int count = 0;
+        for (int y = 1; y <= screen.getRows(); y++) {
+            for (int x = 1; x <= screen.getColumns(); x++) {
+                if (background.equals(screen.getBackground(x, y))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isLoading(VirtualTerminal screen) {
+        for (int y = 1; y <= screen.getRows(); y++) {
+            if (screen.getLine(y).contains("Chargement...")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Refreshes the menu the way the game does it, until the preview of the desert shows a color.
+     */
+    private static void waitForPreview(PreviewMenu menu, PrintStream out, VirtualTerminal screen, String background) throws InterruptedException {
+        for (int i = 0; i < 500 && countCells(screen, background) != PREVIEW_CELLS; i++) {
+            Thread.sleep(10);
+            menu.refreshOn(out, 0);
+        }
+        assertEquals(PREVIEW_CELLS, countCells(screen, background));
+    }
+
+    @Test
+    public void testPreviewIsDrawnOnceReady() throws InterruptedException {
+        List<Color> colors = AssetRegistry.getDefault().getColors();
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicReference<AssetRegistry> assets = new AtomicReference<>(registry(colors, new GatedMap(filled(1), gate)));
+        AtomicInteger ready = new AtomicInteger();
+        PreviewMenu menu = new PreviewMenu(assets, ready::incrementAndGet);
+        VirtualTerminal screen = new VirtualTerminal(FrameTap.SCREEN_COLUMNS, FrameTap.SCREEN_ROWS);
+        PrintStream out = new PrintStream(screen, true, StandardCharsets.UTF_8);
+
+        menu.showOn(out);
+        for (int i = 0; i < 3; i++) { // the loading preview is drawn again each time the desert is selected
+            menu.moveSelector(out, 0, 1);
+            menu.moveSelector(out, 1, 0);
+        }
+        menu.refreshOn(out, 0);
+        assertTrue(isLoading(screen));
+        assertEquals(0, countCells(screen, colors.get(1).getANSI()));
+
+        gate.countDown();
+        for (int i = 0; i < 500 && ready.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100); // any other call would come now
+        assertEquals(1, ready.get(), "the game must be told once that the preview is ready");
+        menu.refreshOn(out, 0);
+        assertFalse(isLoading(screen));
+        assertEquals(PREVIEW_CELLS, countCells(screen, colors.get(1).getANSI()));
+    }
+
+    @Test
+    public void testPreviewIsDrawnAgainAfterAReload() throws InterruptedException {
+        List<Color> colors = AssetRegistry.getDefault().getColors();
+        String first = colors.get(0).getANSI();
+        String second = colors.get(1).getANSI();
+        assertNotEquals(first, second);
+        AtomicReference<AssetRegistry> assets = new AtomicReference<>(registry(colors, new Map("desert", filled(0))));
+        PreviewMenu menu = new PreviewMenu(assets, () -> {});
+        VirtualTerminal screen = new VirtualTerminal(FrameTap.SCREEN_COLUMNS, FrameTap.SCREEN_ROWS);
+        PrintStream out = new PrintStream(screen, true, StandardCharsets.UTF_8);
+        menu.showOn(out);
+        waitForPreview(menu, out, screen, first);
+
+        // the map is reloaded
+        Map reloaded = new Map("desert", filled(1));
+        assets.set(registry(colors, reloaded));
+        menu.moveSelector(out, 0, 1);
+        menu.moveSelector(out, 1, 0);
+        waitForPreview(menu, out, screen, second);
+        assertEquals(0, countCells(screen, first));
+
+        // the pallet is reloaded, the map stays the same
+        List<Color> recolored = new ArrayList<>(colors);
+        String third = "\033[48;2;1;2;3m";
+        recolored.set(1, new Color(third, true));
+        assets.set(registry(recolored, reloaded));
+        menu.moveSelector(out, 0, 1);
+        menu.moveSelector(out, 1, 0);
+        waitForPreview(menu, out, screen, third);
+        assertEquals(0, countCells(screen, second));
+    }
+}
@@ -0,0 +1,115 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.GameObject;
+import main.java.Map;
+import main.java.OffHeapRaster;
+import main.java.Raster;
+import main.java.RunLengthRaster;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests of the compressed matrices of the maps, obstacles and skins.
+ */
+public class TestRunLengthRaster {
+    private ArrayList<ArrayList<Integer>> matrix(Integer[]... rows) {
+        ArrayList<ArrayList<Integer>> matrix = new ArrayList<>();
+        for (Integer[] row : rows) {
+            matrix.add(new ArrayList<>(Arrays.asList(row)));
+        }
+        return matrix;
+    }
+
+    @Test
+    public void testHalve() {
+        RunLengthRaster raster = RunLengthRaster.fromMatrix(matrix(
+            new Integer[]{ 1, 1, -1, 3, 4 },
+            new Integer[]{ 2, 1, -1, -1, 4 },
+            new Integer[]{ 5, 5, 6, 7, -1 }
+        ));
+        RunLengthRaster half = RunLengthRaster.halve(raster);
+        assertEquals(3, half.getWidth());
+        assertEquals(2, half.getHeight());
+        assertEquals(List.of(
+            List.of(1, -1, 4), // three transparent pixels out of four make a transparent one
+            List.of(5, 6, -1)
+        ), half.toMatrix());
+    }
+
+    @Test
+    public void testRuns() {
+        RunLengthRaster raster = RunLengthRaster.fromMatrix(matrix(
+            new Integer[]{ 6, 6, 6, 2, 2, -1 },
+            new Integer[]{ 6, 6, 6, 6, 6, 6 }
+        ));
+        assertEquals(6, raster.getWidth());
+        assertEquals(2, raster.getHeight());
+        assertEquals(3, raster.getRunCount(0));
+        assertEquals(1, raster.getRunCount(1));
+        assertEquals(2, raster.get(4, 0));
+        assertEquals(-1, raster.get(5, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> raster.get(6, 1));
+
+        // the runs are cut at the given bounds
+        List<int[]> runs = new ArrayList<>();
+        raster.forEachRun(0, 1, 4, (x, length, colorIndex) -> runs.add(new int[]{ x, length, colorIndex }));
+        assertEquals(2, runs.size());
+        assertArrayEquals(new int[]{ 1, 2, 6 }, runs.get(0));
+        assertArrayEquals(new int[]{ 3, 1, 2 }, runs.get(1));
+    }
+
+    /**
+     * Every asset of the game must be exactly the same once decompressed.
+     */
+    @Test
+    public void testRoundTripOfTheAssets() throws Exception {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        for (String mapName : assets.getMapNames()) {
+            Map map = assets.getMap(mapName);
+            try (BufferedReader reader = new BufferedReader(new FileReader(AssetRegistry.MAPS_DIRECTORY + "/" + mapName + ".csv"))) {
+                assertEquals(AssetRegistry.readMatrix(reader), map.getMatrix());
+            }
+            int runs = 0;
+            int pixels = 0;
+            for (int y = 0; y < map.getRaster().getHeight(); y++) {
+                runs += map.getRaster().getRunCount(y);
+                pixels += map.getRaster().getRowWidth(y);
+            }
+            assertTrue(runs < pixels, mapName + " should have fewer runs than pixels");
+        }
+    }
+
+    /**
+     * The maps stored off-heap must give the same pixels and the same runs.
+     */
+    @Test
+    public void testOffHeapMaps() {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        for (String mapName : assets.getMapNames()) {
+            Raster onHeap = assets.getMap(mapName).getRaster();
+            OffHeapRaster offHeap = OffHeapRaster.fromMatrix(onHeap.toMatrix());
+            assertEquals(onHeap.toMatrix(), offHeap.toMatrix());
+            for (int y = 0; y < onHeap.getHeight(); y++) {
+                assertEquals(onHeap.getRunCount(y), offHeap.getRunCount(y));
+                assertEquals(onHeap.getWidth(), offHeap.getRowWidth(y));
+            }
+        }
+        Map map = new Map("test", matrix(new Integer[]{ -1, 3, 3 }), true);
+        assertTrue(map.getRaster() instanceof OffHeapRaster);
+        assertEquals(-1, map.getRaster().get(0, 0));
+        assertEquals(3, map.getRaster().get(2, 0));
+        for (int level = 1; level < GameObject.LEVELS; level++) {
+            assertTrue(map.getRaster(level) instanceof OffHeapRaster);
+            assertEquals(RunLengthRaster.halve(map.getRaster(level - 1)).toMatrix(), map.getRaster(level).toMatrix());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.RunResult;
+import main.java.ScoreStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class TestScoreStore {
+    @Test
+    public void testScoresSurviveRestart(@TempDir Path root) throws IOException {
+        Path path = root.resolve("scores.log");
+        try (ScoreStore store = new ScoreStore(path)) {
+            store.record(new RunResult("desert", 3, 5000, 0, 1));
+            store.record(new RunResult("desert", 7, 9000, 0, 2));
+            store.record(new RunResult("desert", 7, 8000, 0, 3));
+            store.record(new RunResult("foret", 1, 1000, 0, 4));
+            assertEquals(7, store.getTopScores("desert", 1).get(0).getDistance());
+        }
+        try (ScoreStore store = new ScoreStore(path)) {
+            List<RunResult> top = store.getTopScores("desert", 10);
+            assertEquals(List.of(
+                new RunResult("desert", 7, 8000, 0, 3),
+                new RunResult("desert", 7, 9000, 0, 2),
+                new RunResult("desert", 3, 5000, 0, 1)
+            ), top);
+            assertEquals(1, store.getTopScores("foret", 10).size());
+            assertTrue(store.getTopScores("neige", 10).isEmpty());
+        }
+    }
+
+    @Test
+    public void testIncompleteRecordIsDropped(@TempDir Path root) throws IOException {
+        Path path = root.resolve("scores.log");
+        try (ScoreStore store = new ScoreStore(path)) {
+            store.record(new RunResult("desert", 3, 5000, 0, 1));
+            store.record(new RunResult("desert", 4, 5000, 0, 2));
+        }
+        long size = Files.size(path);
+        // the game stopped in the middle of the last record
+        try (var channel = Files.newByteChannel(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        try (ScoreStore store = new ScoreStore(path)) {
+            assertEquals(List.of(new RunResult("desert", 3, 5000, 0, 1)), store.getTopScores("desert", 10));
+            store.record(new RunResult("desert", 5, 5000, 0, 3));
+        }
+        try (ScoreStore store = new ScoreStore(path)) {
+            assertEquals(2, store.getTopScores("desert", 10).size());
+        }
+    }
+
+    @Test
+    public void testLogIsCompacted(@TempDir Path root) throws IOException {
+        Path path = root.resolve("scores.log");
+        int runs = 3000;
+        try (ScoreStore store = new ScoreStore(path)) {
+            for (int i = 0; i < runs; i++) {
+                store.record(new RunResult("desert", i % 50, 1000, 0, i));
+            }
+        }
+        try (ScoreStore store = new ScoreStore(path)) {
+            List<RunResult> top = store.getTopScores("desert", 1000);
+            assertTrue(top.size() < runs);
+            assertEquals(49, top.get(0).getDistance());
+            assertEquals(49, top.get(0).getTimestamp());
+        }
+        assertTrue(Files.size(path) < runs * 20L, Files.size(path) + " bytes");
+    }
+
+    @Test
+    public void testWriteFailureIsThrownByClose(@TempDir Path root) throws IOException {
+        Path path = root.resolve("scores.log");
+        Files.createDirectory(root.resolve("scores.log.tmp")); // the compacted log can't be written
+        ScoreStore store = new ScoreStore(path);
+        for (int i = 0; i < 3000; i++) {
+            store.record(new RunResult("desert", i % 50, 1000, 0, i));
+        }
+        assertEquals(49, store.getTopScores("desert", 1).get(0).getDistance(), "the scores are still shown");
+        assertThrows(IOException.class, store::close);
+    }
+
+    @Test
+    public void testTiedRunsAreAllKept(@TempDir Path root) throws IOException {
+        Path path = root.resolve("scores.log");
+        try (ScoreStore store = new ScoreStore(path)) {
+            store.record(new RunResult("desert", 3, 5000, 1, 10));
+            store.record(new RunResult("desert", 3, 5000, 2, 10)); // the same distance, duration and millisecond
+            store.record(new RunResult("desert", 3, 5000, 1, 10)); // the same run again
+            assertEquals(2, store.getTopScores("desert", 10).size());
+        }
+        try (ScoreStore store = new ScoreStore(path)) {
+            assertEquals(List.of(
+                new RunResult("desert", 3, 5000, 1, 10),
+                new RunResult("desert", 3, 5000, 2, 10)
+            ), store.getTopScores("desert", 10));
+        }
+    }
+}
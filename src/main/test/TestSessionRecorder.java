@@ -0,0 +1,91 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.AssetRegistry;
+import main.java.Raster;
+import main.java.RasterRenderer;
+import main.java.SessionRecorder;
+import main.java.VirtualTerminal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class TestSessionRecorder {
+    private static final int COLUMNS = 160;
+    private static final int ROWS = 45;
+    private static final int JUMP_FRAME_MILLIS = 16;
+
+    /**
+     * Reads the text of an event of the recording: `[time, "o", "text"]`.
+     */
+    private static String eventText(String event) {
+        String quoted = event.substring(event.indexOf("\"o\", \"") + 6, event.length() - 2);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < quoted.length(); i++) {
+            char c = quoted.charAt(i);
+            if (c != '\\') {
+                text.append(c);
+            } else if (quoted.charAt(++i) == 'u') {
+                text.append((char)Integer.parseInt(quoted.substring(i + 1, i + 5), 16));
+                i += 4;
+            } else {
+                text.append(quoted.charAt(i));
+            }
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testRecordingReplaysTheGameWithLessBytes(@TempDir Path directory) throws IOException, InterruptedException {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        Raster map = assets.getMap("desert").getRaster();
+        Raster skin = assets.getSkin(assets.getSkinNames().iterator().next()).getRaster();
+        RasterRenderer renderer = new RasterRenderer();
+        VirtualTerminal player = new VirtualTerminal(COLUMNS, ROWS);
+        Path file = directory.resolve("run.cast");
+        SessionRecorder recorder = new SessionRecorder(player, file, COLUMNS, ROWS);
+        // only the renderer flushes: the cleared screen and the map are a single frame,
+        // so that the size of the recording doesn't depend on how fast the map is drawn (see `SessionRecorder.MERGE_NANOS`)
+        PrintStream out = new PrintStream(recorder, false, StandardCharsets.UTF_8);
+
+        int y = 32;
+        for (int redraw = 0; redraw < 3; redraw++) { // like a new round: the screen is cleared, then the map is drawn again
+            out.print("\033[H\033[2J\r\n");
+            renderer.drawBackground(assets, map).drawForeground(assets, skin, map, 3, y, 2, y).flush(out);
+            for (int i = 1; i <= 13; i++) {
+                int newY = 32 - i % 13;
+                renderer.erase(assets, skin, map, 3, y, 2, y)
+                    .drawForeground(assets, skin, map, 3, newY, 2, newY)
+                    .flush(out);
+                y = newY;
+                Thread.sleep(JUMP_FRAME_MILLIS);
+            }
+        }
+        recorder.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(lines.get(0).startsWith("{\"version\": 2, \"width\": 160, \"height\": 45"), lines.get(0));
+        VirtualTerminal replayed = new VirtualTerminal(COLUMNS, ROWS);
+        PrintStream replay = new PrintStream(replayed, true, StandardCharsets.UTF_8);
+        double previousTime = 0;
+        for (String event : lines.subList(1, lines.size())) {
+            double time = Double.parseDouble(event.substring(1, event.indexOf(',')));
+            assertTrue(time >= previousTime, "the events must be in order");
+            previousTime = time;
+            replay.print(eventText(event));
+        }
+        assertEquals(0, replayed.countDifferences(player));
+        assertTrue(lines.size() > 13, "each frame of the jump must be recorded");
+
+        long recordedBytes = replayed.getByteCount();
+        assertTrue(recordedBytes * 2 < player.getByteCount(), recordedBytes + " bytes recorded for " + player.getByteCount() + " drawn");
+    }
+}
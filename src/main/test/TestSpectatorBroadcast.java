@@ -0,0 +1,132 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.Raster;
+import main.java.RasterRenderer;
+import main.java.SpectatorBroadcast;
+import main.java.VirtualTerminal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+public class TestSpectatorBroadcast {
+    private static final int COLUMNS = 160;
+    private static final int ROWS = 45;
+
+    /**
+     * A spectator whose terminal is a `VirtualTerminal`, that can be made to wait before receiving anything.
+     */
+    private static class Spectator implements WritableByteChannel {
+        private final VirtualTerminal screen = new VirtualTerminal(COLUMNS, ROWS);
+        private final CountDownLatch ready;
+        private volatile boolean open = true;
+
+        Spectator(boolean slow) {
+            this.ready = new CountDownLatch(slow ? 1 : 0);
+        }
+
+        @Override
+        public int write(ByteBuffer bytes) {
+            try {
+                ready.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int length = bytes.remaining();
+            byte[] copy = new byte[length];
+            bytes.get(copy);
+            synchronized (screen) {
+                screen.write(copy, 0, length);
+            }
+            return length;
+        }
+
+        int countDifferences(VirtualTerminal player) {
+            synchronized (screen) {
+                return screen.countDifferences(player);
+            }
+        }
+
+        @Override
+        public boolean isOpen() { return open; }
+
+        @Override
+        public void close() { open = false; }
+    }
+
+    private static void waitUntil(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Draws a map, then moves something on it, one frame at a time.
+     */
+    private static void play(PrintStream out, int frames) {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        Raster map = assets.getMap("desert").getRaster();
+        Raster skin = assets.getSkin(assets.getSkinNames().iterator().next()).getRaster();
+        RasterRenderer renderer = new RasterRenderer();
+        out.print("\033[H\033[2J\r\n");
+        renderer.drawBackground(assets, map).flush(out);
+        int y = 32;
+        for (int i = 1; i <= frames; i++) {
+            int newY = 32 - i % 13;
+            renderer.erase(assets, skin, map, 3, y, 2, y)
+                .drawForeground(assets, skin, map, 3, newY, 2, newY)
+                .flush(out);
+            y = newY;
+        }
+    }
+
+    @Test
+    public void testSpectatorsSeeWhatThePlayerSees() throws Exception {
+        VirtualTerminal player = new VirtualTerminal(COLUMNS, ROWS);
+        SpectatorBroadcast broadcast = new SpectatorBroadcast(player, COLUMNS, ROWS);
+        PrintStream out = new PrintStream(broadcast, true, StandardCharsets.UTF_8);
+        try {
+            Spectator early = new Spectator(false);
+            broadcast.addViewer(early);
+            play(out, 20);
+
+            Spectator late = new Spectator(false); // it only gets a keyframe, then the next frames
+            broadcast.addViewer(late);
+            waitUntil(() -> late.countDifferences(player) == 0, "the late spectator must see the screen right away");
+            play(out, 5);
+            waitUntil(() -> early.countDifferences(player) == 0 && late.countDifferences(player) == 0, "the spectators must see what the player sees");
+            assertEquals(2, broadcast.getViewerCount());
+            assertEquals(0, broadcast.getDroppedFrames());
+        } finally {
+            broadcast.close();
+        }
+    }
+
+    @Test
+    public void testSlowSpectatorDoesntStallThePlayer() throws Exception {
+        VirtualTerminal player = new VirtualTerminal(COLUMNS, ROWS);
+        SpectatorBroadcast broadcast = new SpectatorBroadcast(player, COLUMNS, ROWS);
+        PrintStream out = new PrintStream(broadcast, true, StandardCharsets.UTF_8);
+        try {
+            Spectator slow = new Spectator(true);
+            broadcast.addViewer(slow);
+            play(out, 500); // it would block forever if the player waited for the spectator
+            waitUntil(() -> broadcast.getDroppedFrames() > 0, "the frames of the slow spectator must be dropped");
+
+            slow.ready.countDown();
+            waitUntil(() -> slow.countDifferences(player) == 0, "a keyframe must catch the slow spectator up");
+        } finally {
+            broadcast.close();
+        }
+    }
+}
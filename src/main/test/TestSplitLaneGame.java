@@ -0,0 +1,154 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.MapSpawnConfig;
+import main.java.ObstacleSpawn;
+import main.java.SplitLaneGame;
+import main.java.VirtualTerminal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a game of two lanes on a virtual terminal, with ticks at chosen times.
+ */
+public class TestSplitLaneGame {
+    private static final long START = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The time between two ticks: longer than the delay between two steps of the first obstacle,
+     * so that each tick catches up several steps.
+     */
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(150);
+
+    /**
+     * The first line of the first lane, where its result is written.
+     */
+    private static final int FIRST_LANE_LINE = 2;
+
+    private static final int MAX_TICKS = 1000;
+
+    /**
+     * Gives the tests the methods the scheduler and the keyboard call on the game.
+     */
+    private static class Lanes extends SplitLaneGame {
+        Lanes(PrintStream out, AssetRegistry assets) {
+            super(new ByteArrayInputStream(new byte[0]), out, assets, "desert", 2);
+        }
+
+        void beginAt(long now) { begin(now); }
+        void tickAt(long now) { tick(now); }
+        void press(char key) { keyTypedInConsole(key); }
+    }
+
+    /**
+     * The screen of the game, which counts the flushes.
+     */
+    private static class Screen extends OutputStream {
+        final VirtualTerminal terminal = new VirtualTerminal(200, 150);
+        int flushes = 0;
+
+        @Override
+        public void write(int b) {
+            terminal.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            terminal.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        /**
+         * @return The line on which the result of a lane is written, `-1` if no lane ended this way.
+         */
+        int findResult(String result, int fromLine) {
+            for (int y = fromLine; y <= terminal.getRows(); y++) {
+                if (terminal.getLine(y).contains(result)) {
+                    return y;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A cactus on the ground, slow enough to stay under the players for a whole jump,
+     * then a cactus high above the players.
+     */
+    private static AssetRegistry registry() {
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        spawns.add(new ObstacleSpawn("cactus", 400, 30)); // a step every 60 milliseconds
+        spawns.add(new ObstacleSpawn("cactus", 20, 5));
+        return AssetRegistry.getDefault().toBuilder().putConfig("desert", new MapSpawnConfig(spawns)).build();
+    }
+
+    /**
+     * Plays a game in which nobody jumps.
+     * @return The tick at which the first cactus reaches the players.
+     */
+    private static int findCrossingTick(AssetRegistry assets) {
+        Screen screen = new Screen();
+        Lanes game = new Lanes(new PrintStream(screen, false, StandardCharsets.UTF_8), assets);
+        game.beginAt(START);
+        for (int tick = 1; tick <= MAX_TICKS; tick++) {
+            game.tickAt(START + tick * TICK);
+            if (screen.findResult("Perdu...", FIRST_LANE_LINE) != -1) {
+                assertEquals(FIRST_LANE_LINE, screen.findResult("Perdu...", FIRST_LANE_LINE));
+                assertNotEquals(-1, screen.findResult("Perdu...", FIRST_LANE_LINE + 1), "both lanes have the same obstacles");
+                return tick;
+            }
+        }
+        return fail("the cactus never reached the players");
+    }
+
+    @Test
+    public void testLanesEndIndependently() {
+        AssetRegistry assets = registry();
+        int crossing = findCrossingTick(assets);
+        int jump = crossing - 4; // the jump is almost at its top when the cactus arrives
+        assertTrue(jump > 0);
+
+        Screen screen = new Screen();
+        Lanes game = new Lanes(new PrintStream(screen, false, StandardCharsets.UTF_8), assets);
+        game.beginAt(START);
+        int lastTick = -1;
+        for (int tick = 1; tick <= MAX_TICKS && lastTick == -1; tick++) {
+            if (tick == jump) {
+                game.press('m');
+            }
+            long bytes = screen.terminal.getByteCount();
+            int flushes = screen.flushes;
+            game.tickAt(START + tick * TICK);
+            boolean drawn = screen.terminal.getByteCount() != bytes;
+            assertEquals(drawn ? 1 : 0, screen.flushes - flushes, "flushes of the tick " + tick);
+
+            int lost = screen.findResult("Perdu...", FIRST_LANE_LINE);
+            if (tick < crossing) {
+                assertEquals(-1, lost, "nobody is hit before the cactus reaches the players");
+            } else {
+                // the first player is hit even though the cactus made several steps during the tick,
+                // the second one is above it, and isn't hit once it lands while the cactus goes by
+                assertEquals(FIRST_LANE_LINE, lost, "the lane of the first player at the tick " + tick);
+                assertEquals(-1, screen.findResult("Perdu...", FIRST_LANE_LINE + 1), "the lane of the second player at the tick " + tick);
+            }
+            if (screen.findResult("Gagné !", FIRST_LANE_LINE) != -1) {
+                lastTick = tick;
+            }
+        }
+        assertTrue(lastTick > crossing, "the second player wins after the last cactus");
+        assertTrue(screen.findResult("Gagné !", FIRST_LANE_LINE) > FIRST_LANE_LINE);
+    }
+}
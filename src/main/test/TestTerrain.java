@@ -0,0 +1,60 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.Color;
+import main.java.RunLengthRaster;
+import main.java.Terrain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TestTerrain {
+    private static final List<Color> COLORS = List.of(
+        new Color("\u001b[48;2;0;0;255m", true), // the sky
+        new Color("\u001b[48;2;0;128;0m", false) // the ground
+    );
+
+    private static Terrain terrain(Integer[][] rows) {
+        return Terrain.of(RunLengthRaster.fromMatrix(Arrays.stream(rows).map(List::of).toList()), COLORS);
+    }
+
+    @Test
+    public void testFloorsWallsAndPits() {
+        Terrain terrain = terrain(new Integer[][] {
+            {0, 0, 1, 0, 0},
+            {0, 0, 0, 0, -1},
+            {0, 1, 0, 0, -1},
+            {1, 1, 1, 0, 1},
+        });
+        assertFalse(terrain.isFlat());
+        assertTrue(terrain.isSolid(2, 0));
+        assertFalse(terrain.isSolid(2, 1));
+        assertFalse(terrain.isSolid(4, 1), "a transparent pixel isn't solid");
+        assertFalse(terrain.isSolid(-1, 3));
+        assertFalse(terrain.isSolid(0, 4));
+
+        assertEquals(3, terrain.getFloor(0));
+        assertEquals(2, terrain.getFloor(1));
+        assertEquals(0, terrain.getFloor(2));
+        assertEquals(4, terrain.getFloor(3), "a pit");
+        assertEquals(2, terrain.getFloor(0, 2));
+        assertEquals(4, terrain.getFloor(3, 4));
+
+        assertEquals(0, terrain.getCeiling(1, 3, 2));
+        assertEquals(-1, terrain.getCeiling(3, 5, 3));
+        assertEquals(2, terrain.getCeiling(0, 2, 3));
+    }
+
+    @Test
+    public void testMapsWithoutSolidColorsAreFlat() {
+        assertTrue(terrain(new Integer[][] {{0, -1}, {0, 0}}).isFlat());
+        AssetRegistry assets = AssetRegistry.getDefault();
+        for (String name : assets.getMapNames()) {
+            assertNotNull(assets.getTerrain(name));
+        }
+    }
+}
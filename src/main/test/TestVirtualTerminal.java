@@ -0,0 +1,340 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+
+import main.java.AssetRegistry;
+import main.java.FrameTap;
+import main.java.Game;
+import main.java.GameMenu;
+import main.java.GameObject;
+import main.java.Raster;
+import main.java.RasterRenderer;
+import main.java.VirtualTerminal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Checks what the renderer actually draws on a screen, and what it costs.
+ */
+public class TestVirtualTerminal {
+    /**
+     * The most bytes a map may take per pixel, in a full frame without half blocks (about 7 for the busiest map).
+     */
+    private static final double BYTES_PER_PIXEL_BUDGET = 8;
+
+    /**
+     * The most escape sequences a map may take for each run of pixels of the same color (a color, then a reset).
+     */
+    private static final int SEQUENCES_PER_RUN_BUDGET = 2;
+
+    private static final int[] JUMP = {31, 30, 28, 25, 22, 19, 19, 20, 24, 28, 32, 29, 32};
+    private static final int FLOOR = 32;
+    private static final int PLAYER_X = 2;
+    private static final int MAP_LINE = 2;
+    private static final int OBSTACLE_Y = 30;
+    private static final int OBSTACLE_STEPS = 40;
+
+    private static PrintStream printStream(VirtualTerminal terminal) {
+        return new PrintStream(terminal, true, StandardCharsets.UTF_8);
+    }
+
+    private static String background(AssetRegistry assets, int colorIndex) {
+        return colorIndex == -1 ? null : assets.getColor(colorIndex).getANSI();
+    }
+
+    @Test
+    public void testSequences() {
+        VirtualTerminal terminal = new VirtualTerminal(10, 3);
+        PrintStream out = printStream(terminal);
+        out.print("\033[H\033[2J\r\nab\033[48;2;1;2;3mc\033[0m");
+        out.print("\033[3;4H\033[s\033[2Cé\033[u\033[A▀");
+        out.flush();
+
+        assertEquals("abc▀", terminal.getLine(2));
+        assertEquals("\033[48;2;1;2;3m", terminal.getBackground(3, 2));
+        assertNull(terminal.getBackground(2, 2));
+        assertEquals("     é", terminal.getLine(3));
+        assertEquals(5, terminal.getCursorX());
+        assertEquals(2, terminal.getCursorY());
+
+        // a character whose bytes are split between two writes
+        byte[] bytes = "é".getBytes(StandardCharsets.UTF_8);
+        terminal.write(bytes, 0, 1);
+        terminal.write(bytes, 1, 1);
+        assertEquals('é', terminal.getChar(5, 2));
+
+        assertThrows(IllegalStateException.class, () -> terminal.write("\033[?25l".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Each pixel of each map is drawn with its own color, within the budgets.
+     */
+    @Test
+    public void testMapsAreDrawnExactly() {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        for (String name : assets.getMapNames()) {
+            Raster map = assets.getMap(name).getRaster();
+            VirtualTerminal terminal = new VirtualTerminal(map.getWidth() * 2, map.getHeight() + 1);
+            new RasterRenderer().drawBackground(assets, map).flush(printStream(terminal));
+            for (int y = 0; y < map.getHeight(); y++) {
+                for (int x = 0; x < map.getWidth(); x++) {
+                    String expected = background(assets, map.get(x, y));
+                    assertEquals(expected, terminal.getBackground(2 * x + 1, y + 1), name + " (" + x + ", " + y + ")");
+                    assertEquals(expected, terminal.getBackground(2 * x + 2, y + 1), name + " (" + x + ", " + y + ")");
+                }
+            }
+
+            int[] runs = {0};
+            for (int y = 0; y < map.getHeight(); y++) {
+                map.forEachRun(y, 0, Integer.MAX_VALUE, (x, length, colorIndex) -> runs[0]++);
+            }
+            double bytesPerPixel = (double)terminal.getByteCount() / (map.getWidth() * map.getHeight());
+            assertTrue(bytesPerPixel <= BYTES_PER_PIXEL_BUDGET, name + ": " + bytesPerPixel + " bytes per pixel");
+            assertTrue(terminal.getSequenceCount() <= (long)SEQUENCES_PER_RUN_BUDGET * runs[0],
+                name + ": " + terminal.getSequenceCount() + " sequences for " + runs[0] + " runs");
+
+            VirtualTerminal halfBlocks = new VirtualTerminal(map.getWidth(), (map.getHeight() + 1) / 2 + 1);
+            new RasterRenderer(true).drawBackground(assets, map).flush(printStream(halfBlocks));
+            for (int y = 0; y < map.getHeight(); y++) {
+                for (int x = 0; x < map.getWidth(); x++) {
+                    assertEquals(background(assets, map.get(x, y)), halfBlockPixel(halfBlocks, x, y), name + " (" + x + ", " + y + ")");
+                }
+            }
+            assertTrue(halfBlocks.getByteCount() < terminal.getByteCount(), name + ": half blocks must take fewer bytes");
+        }
+    }
+
+    /**
+     * Gets the color of a pixel drawn with half blocks, as a background color.
+     */
+    private static String halfBlockPixel(VirtualTerminal terminal, int x, int y) {
+        boolean upper = y % 2 == 0;
+        if (terminal.getChar(x + 1, y / 2 + 1) == (upper ? '▀' : '▄')) {
+            String color = terminal.getForeground(x + 1, y / 2 + 1);
+            return color == null ? null : color.replace("[38;", "[48;");
+        }
+        return terminal.getBackground(x + 1, y / 2 + 1);
+    }
+
+    @Test
+    public void testLevelFitsTheTerminal() {
+        Raster map = AssetRegistry.getDefault().getMap("desert").getRaster(); // 78x40
+        RasterRenderer renderer = new RasterRenderer();
+        assertEquals(0, renderer.chooseLevel(map, 160, 50));
+        assertEquals(1, renderer.chooseLevel(map, 100, 50));
+        assertEquals(2, renderer.chooseLevel(map, 80, 20));
+        assertEquals(GameObject.LEVELS - 1, renderer.chooseLevel(map, 10, 5), "the smallest level when nothing fits");
+        assertEquals(0, new RasterRenderer(true).chooseLevel(map, 80, 22));
+    }
+
+    /**
+     * Moving the player only redraws what changes, and leaves the same screen as drawing it again from scratch,
+     * with or without half blocks, at each level.
+     */
+    @Test
+    public void testJumpLeavesTheSameScreenAsAFullRedraw() {
+        for (int level = 0; level < GameObject.LEVELS; level++) {
+            assertJumpLeavesTheSameScreenAsAFullRedraw(false, level);
+            assertJumpLeavesTheSameScreenAsAFullRedraw(true, level);
+        }
+    }
+
+    private void assertJumpLeavesTheSameScreenAsAFullRedraw(boolean halfBlocks, int level) {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        Raster map = assets.getMap("desert").getRaster(level);
+        Raster skin = assets.getSkin(assets.getSkinNames().iterator().next()).getRaster(level);
+        int[] rowIds = RasterRenderer.identifyRows(skin);
+        RasterRenderer renderer = new RasterRenderer(halfBlocks);
+        renderer.setLevel(level);
+        String context = "half blocks: " + halfBlocks + ", level " + level;
+        VirtualTerminal moved = new VirtualTerminal(map.getWidth() * 2 + 1, map.getHeight() + MAP_LINE);
+        PrintStream out = printStream(moved);
+
+        int y = FLOOR;
+        drawScene(renderer, assets, map, skin, y).flush(out);
+        moved.resetCounters();
+        for (int newY : JUMP) {
+            renderer.moveForeground(assets, skin, rowIds, map, PLAYER_X + 1, playerLine(y), PLAYER_X, y, newY - y).flush(out);
+            y = newY;
+        }
+        long moveBytes = moved.getByteCount();
+
+        VirtualTerminal redrawn = new VirtualTerminal(moved.getColumns(), moved.getRows());
+        drawScene(renderer, assets, map, skin, y).flush(printStream(redrawn));
+        assertEquals(0, moved.countDifferences(redrawn), context);
+
+        VirtualTerminal erased = new VirtualTerminal(moved.getColumns(), moved.getRows());
+        PrintStream erasedOut = printStream(erased);
+        y = FLOOR;
+        drawScene(renderer, assets, map, skin, y).flush(erasedOut);
+        erased.resetCounters();
+        for (int newY : JUMP) {
+            renderer.erase(assets, skin, map, PLAYER_X + 1, playerLine(y), PLAYER_X, y)
+                .drawForeground(assets, skin, map, PLAYER_X + 1, playerLine(newY), PLAYER_X, newY)
+                .flush(erasedOut);
+            y = newY;
+        }
+        assertEquals(0, erased.countDifferences(redrawn), context);
+        assertTrue(moveBytes < erased.getByteCount(), context + ": " + moveBytes + " bytes instead of " + erased.getByteCount());
+    }
+
+    /**
+     * The line of the screen where the top of the player is, without half blocks (the renderer converts it).
+     */
+    private static int playerLine(int playerY) {
+        return MAP_LINE + playerY - 2;
+    }
+
+    private static RasterRenderer drawScene(RasterRenderer renderer, AssetRegistry assets, Raster map, Raster skin, int playerY) {
+        return renderer.drawRows(assets, map, 0, map.getHeight(), 1, MAP_LINE)
+            .drawForeground(assets, skin, map, PLAYER_X + 1, playerLine(playerY), PLAYER_X, playerY);
+    }
+
+    /**
+     * Moving an obstacle step by step, the way the game does it, leaves the same screen as drawing it again from scratch,
+     * with or without half blocks, at each level. Once erased, only the map is left.
+     */
+    @Test
+    public void testObstacleStepsLeaveTheSameScreenAsAFullRedraw() {
+        for (int level = 0; level < GameObject.LEVELS; level++) {
+            assertObstacleStepsLeaveTheSameScreenAsAFullRedraw(false, level);
+            assertObstacleStepsLeaveTheSameScreenAsAFullRedraw(true, level);
+        }
+    }
+
+    private void assertObstacleStepsLeaveTheSameScreenAsAFullRedraw(boolean halfBlocks, int level) {
+        AssetRegistry assets = AssetRegistry.getDefault();
+        Raster map = assets.getMap("desert").getRaster(level);
+        Raster obstacle = assets.getObstacle("cactus").getRaster(level);
+        RasterRenderer renderer = new RasterRenderer(halfBlocks);
+        renderer.setLevel(level);
+        String context = "half blocks: " + halfBlocks + ", level " + level;
+        VirtualTerminal moved = new VirtualTerminal(map.getWidth() * 2 + 1, map.getHeight() + MAP_LINE);
+        PrintStream out = printStream(moved);
+
+        // like `Game.ObstacleMovement`, whose positions are at the size of the map and converted by the renderer
+        Raster fullMap = assets.getMap("desert").getRaster();
+        int x = (fullMap.getWidth() - assets.getObstacle("cactus").getRaster().getWidth()) * 2;
+        renderer.drawRows(assets, map, 0, map.getHeight(), 1, MAP_LINE)
+            .drawForeground(assets, obstacle, map, x, OBSTACLE_Y, x, OBSTACLE_Y)
+            .flush(out);
+        for (int step = 0; step < OBSTACLE_STEPS; step++) {
+            renderer.erase(assets, obstacle, map, x, OBSTACLE_Y, x, OBSTACLE_Y)
+                .drawForeground(assets, obstacle, map, x - 1, OBSTACLE_Y, x - 1, OBSTACLE_Y)
+                .flush(out);
+            x--;
+        }
+
+        VirtualTerminal redrawn = new VirtualTerminal(moved.getColumns(), moved.getRows());
+        renderer.drawRows(assets, map, 0, map.getHeight(), 1, MAP_LINE)
+            .drawForeground(assets, obstacle, map, x, OBSTACLE_Y, x, OBSTACLE_Y)
+            .flush(printStream(redrawn));
+        assertEquals(0, moved.countDifferences(redrawn), context);
+
+        VirtualTerminal mapOnly = new VirtualTerminal(moved.getColumns(), moved.getRows());
+        renderer.drawRows(assets, map, 0, map.getHeight(), 1, MAP_LINE).flush(printStream(mapOnly));
+        assertTrue(redrawn.countDifferences(mapOnly) > 0, context + ": the obstacle must be visible");
+        renderer.erase(assets, obstacle, map, x, OBSTACLE_Y, x, OBSTACLE_Y).flush(out);
+        assertEquals(0, moved.countDifferences(mapOnly), context);
+    }
+
+    /**
+     * The main menu drawn by a real game: the logo between two lines of equals, the choices with the selector on the first one,
+     * and the selector moving without changing anything else.
+     */
+    @Test
+    public void testMainMenuFrame() throws IOException, InterruptedException {
+        VirtualTerminal screen = new VirtualTerminal(FrameTap.SCREEN_COLUMNS, FrameTap.SCREEN_ROWS);
+        PrintStream out = printStream(screen);
+        PipedOutputStream keys = new PipedOutputStream();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Thread loop;
+        try {
+            Game game = new Game(new PipedInputStream(keys), out, scheduler, AssetRegistry::getDefault);
+            loop = new Thread(game::start);
+            loop.start();
+            List<String> logo = Files.readAllLines(Path.of("assets/menu/logo.txt"), StandardCharsets.UTF_8);
+            int firstChoice = logo.size() + 12;
+            waitForLine(screen, out, firstChoice + 4 + 8, "Appuie sur 'q' pour quitter.");
+
+            List<String> expected = new ArrayList<>();
+            expected.add("");
+            expected.add("=".repeat(155));
+            for (String line : logo) {
+                expected.add(line.stripTrailing());
+            }
+            expected.add("=".repeat(155));
+            for (int i = 0; i < 8; i++) {
+                expected.add("");
+            }
+            String indent = " ".repeat(GameMenu.LEFT_MARGIN);
+            expected.add(" ".repeat(GameMenu.LEFT_MARGIN - 2) + "> Mode normal");
+            expected.add(indent + "Mode Arcade");
+            expected.add(indent + "Vérifier l'écran");
+            expected.add(indent + "Crédits");
+            for (int i = 0; i < 8; i++) {
+                expected.add("");
+            }
+            expected.add("Appuie sur 'q' pour quitter.");
+            expected.add("Disclaimer : certains terminaux sont incompatibles avec le jeu.");
+            List<String> shown = lines(screen, out);
+            assertEquals(expected, shown.subList(0, expected.size()));
+            for (String line : shown.subList(expected.size(), shown.size())) {
+                assertEquals("", line, "nothing is drawn under the menu");
+            }
+
+            keys.write("\033[B".getBytes(StandardCharsets.US_ASCII));
+            keys.flush();
+            waitForLine(screen, out, firstChoice + 1, "> Mode Arcade");
+            List<String> moved = new ArrayList<>(expected);
+            moved.set(firstChoice - 1, indent + "Mode normal");
+            moved.set(firstChoice, " ".repeat(GameMenu.LEFT_MARGIN - 2) + "> Mode Arcade");
+            assertEquals(moved, lines(screen, out).subList(0, expected.size()));
+
+            keys.write("\033[A".getBytes(StandardCharsets.US_ASCII));
+            keys.flush();
+            waitForLine(screen, out, firstChoice, "> Mode normal");
+            assertEquals(shown, lines(screen, out));
+
+            keys.write('q');
+            keys.flush();
+            loop.join(5_000);
+        } finally {
+            keys.close();
+            scheduler.shutdownNow();
+        }
+        assertFalse(loop.isAlive());
+    }
+
+    /**
+     * Reads all the lines of a screen written by a game, while the game can't write.
+     */
+    private static List<String> lines(VirtualTerminal screen, PrintStream out) {
+        synchronized (out) {
+            List<String> lines = new ArrayList<>();
+            for (int y = 1; y <= screen.getRows(); y++) {
+                lines.add(screen.getLine(y));
+            }
+            return lines;
+        }
+    }
+
+    private static void waitForLine(VirtualTerminal screen, PrintStream out, int y, String text) throws InterruptedException {
+        for (int i = 0; i < 500 && !lines(screen, out).get(y - 1).endsWith(text); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(lines(screen, out).get(y - 1).endsWith(text), "'" + text + "' was never drawn on the line " + y);
+    }
+}